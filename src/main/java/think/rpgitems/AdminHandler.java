@@ -26,6 +26,7 @@ import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.inventory.meta.tags.CustomItemTagContainer;
 import org.bukkit.inventory.meta.tags.ItemTagType;
 import org.librazy.nclangchecker.LangKey;
+import think.rpgitems.item.BackupStore;
 import think.rpgitems.item.ItemGroup;
 import think.rpgitems.item.ItemManager;
 import think.rpgitems.item.RPGItem;
@@ -82,6 +83,7 @@ public class AdminHandler extends RPGCommandReceiver {
         Player player = asPlayer(sender);
         ItemStack item = player.getInventory().getItemInMainHand();
         player.sendMessage(ItemStackUtils.itemToJson(item).replace(ChatColor.COLOR_CHAR, '&'));
+        player.sendMessage(ParticleEmitter.instance().stats());
         if (item == null || item.getType() == Material.AIR) {
             player.sendMessage("empty");
             return;
@@ -133,6 +135,20 @@ public class AdminHandler extends RPGCommandReceiver {
         }
     }
 
+    @SubCommand("loadbench")
+    @Attribute("command")
+    public void loadBenchmark(CommandSender sender, Arguments args) throws Exception {
+        int count = args.top() == null ? 2000 : args.nextInt();
+        sender.sendMessage(ItemManager.benchmarkCache(count));
+    }
+
+    @SubCommand("propertybench")
+    @Attribute("command")
+    public void propertyBenchmark(CommandSender sender, Arguments args) {
+        int rounds = args.top() == null ? 1000 : args.nextInt();
+        sender.sendMessage(PowerManager.benchmarkProperties(rounds));
+    }
+
     @SubCommand("save-all")
     @Attribute("command")
     public void save(CommandSender sender, Arguments args) {
@@ -266,9 +282,87 @@ public class AdminHandler extends RPGCommandReceiver {
                 return FileVisitResult.CONTINUE;
             }
         });
+        BackupStore.clear();
         msg(sender, "message.item.cleanbackup");
     }
 
+    @SubCommand("backups")
+    @Attribute("item")
+    public void listBackups(CommandSender sender, Arguments args) {
+        RPGItem item = getItem(args.nextString(), sender, true);
+        String key = ItemManager.backupKey(item);
+        List<BackupStore.Version> versions = key == null ? Collections.emptyList() : BackupStore.versions(key);
+        if (versions.isEmpty()) {
+            msg(sender, "message.item.no_backup", item.getName());
+            return;
+        }
+        msg(sender, "message.backups.list", item.getName(), versions.size());
+        for (BackupStore.Version version : versions) {
+            msg(sender, "message.backups.version", version.getNumber(), new Date(version.getTime()), version.getHash().substring(0, 12), version.getSize());
+        }
+    }
+
+    @SubCommand("restore")
+    @Attribute("item")
+    public void restoreItem(CommandSender sender, Arguments args) throws IOException {
+        RPGItem item = getItem(args.nextString(), sender);
+        int number = args.nextInt();
+        String key = ItemManager.backupKey(item);
+        Optional<byte[]> content = key == null ? Optional.empty() : BackupStore.get(key, number);
+        if (!content.isPresent()) {
+            msg(sender, "message.backups.not_found", item.getName(), number);
+            return;
+        }
+        if (ItemManager.restore(item, content.get(), sender)) {
+            msg(sender, "message.backups.restored", item.getName(), number);
+        } else {
+            msg(sender, "message.backups.failed", item.getName(), number);
+        }
+    }
+
+    @SubCommand("diff")
+    @Attribute("item")
+    public void diffItem(CommandSender sender, Arguments args) throws IOException {
+        RPGItem item = getItem(args.nextString(), sender, true);
+        int from = args.nextInt();
+        String key = ItemManager.backupKey(item);
+        Optional<byte[]> fromContent = key == null ? Optional.empty() : BackupStore.get(key, from);
+        if (!fromContent.isPresent()) {
+            msg(sender, "message.backups.not_found", item.getName(), from);
+            return;
+        }
+        byte[] toContent;
+        if (args.top() != null) {
+            int to = args.nextInt();
+            Optional<byte[]> content = BackupStore.get(key, to);
+            if (!content.isPresent()) {
+                msg(sender, "message.backups.not_found", item.getName(), to);
+                return;
+            }
+            toContent = content.get();
+        } else {
+            YamlConfiguration current = new YamlConfiguration();
+            item.save(current);
+            toContent = current.saveToString().getBytes(StandardCharsets.UTF_8);
+        }
+        List<String> diff = BackupStore.diff(lines(fromContent.get()), lines(toContent));
+        if (diff.isEmpty()) {
+            msg(sender, "message.backups.identical");
+            return;
+        }
+        int shown = Math.min(diff.size(), 100);
+        for (String line : diff.subList(0, shown)) {
+            sender.sendMessage((line.startsWith("+") ? ChatColor.GREEN : ChatColor.RED) + line);
+        }
+        if (shown < diff.size()) {
+            msg(sender, "message.backups.more", diff.size() - shown);
+        }
+    }
+
+    private static List<String> lines(byte[] content) {
+        return Arrays.asList(new String(content, StandardCharsets.UTF_8).split("\\r?\\n", -1));
+    }
+
     private static Pair<Integer, Integer> getPaging(int size, int perPage, Arguments args) {
         int max = (int) Math.ceil(size / (double) perPage);
         int page = args.top() == null ? 1 : args.nextInt();
@@ -866,17 +960,8 @@ public class AdminHandler extends RPGCommandReceiver {
             String typeS = type.toString();
             if (chance > 0) {
                 item.getDropChances().put(typeS, chance);
-                if (!Events.drops.containsKey(typeS)) {
-                    Events.drops.put(typeS, new HashSet<>());
-                }
-                Set<Integer> set = Events.drops.get(typeS);
-                set.add(item.getUid());
             } else {
                 item.getDropChances().remove(typeS);
-                if (Events.drops.containsKey(typeS)) {
-                    Set<Integer> set = Events.drops.get(typeS);
-                    set.remove(item.getUid());
-                }
             }
             ItemManager.save(item);
             msg(sender, "message.drop.set", item.getDisplayName(), typeS.toLowerCase(), item.getDropChances().get(typeS));
@@ -903,8 +988,7 @@ public class AdminHandler extends RPGCommandReceiver {
                 msg(sender, "message.power_property.property_notfound", property);
                 return;
             }
-            Field field = prop.field();
-            String value = Utils.getProperty(pow, property, field);
+            String value = Utils.getProperty(pow, property, prop);
             msg(sender, "message.power_property.get", nth, pow.getName(), property, value);
         } else {
             pow.save(conf);
@@ -1234,17 +1318,17 @@ public class AdminHandler extends RPGCommandReceiver {
                 String name = prop.getKey();
                 String value = args.argString(name, null);
                 if (value != null) {
-                    Utils.setPowerProperty(sender, power, field, value);
+                    Utils.setPowerProperty(sender, power, prop.getValue(), value);
                     required.remove(field);
                     settled.add(field);
                 }
             }
-            for (Field field : argMap.values()
-                                     .stream()
-                                     .filter(PowerProperty::required)
-                                     .sorted(Comparator.comparing(PowerProperty::order))
-                                     .map(PowerProperty::field)
-                                     .collect(Collectors.toList())) {
+            for (PowerProperty property : argMap.values()
+                                                .stream()
+                                                .filter(PowerProperty::required)
+                                                .sorted(Comparator.comparing(PowerProperty::order))
+                                                .collect(Collectors.toList())) {
+                Field field = property.field();
                 if (settled.contains(field)) continue;
                 String value = args.next();
                 if (value == null) {
@@ -1256,7 +1340,7 @@ public class AdminHandler extends RPGCommandReceiver {
                         break;
                     }
                 }
-                Utils.setPowerProperty(sender, power, field, value);
+                Utils.setPowerProperty(sender, power, property, value);
                 required.remove(field);
                 settled.add(field);
             }
@@ -1282,7 +1366,7 @@ public class AdminHandler extends RPGCommandReceiver {
         String desc = PowerManager.getDescription(powerKey, name);
         msg(sender, "message.power.property", name, Strings.isNullOrEmpty(desc) ? I18n.format("message.power.no_description") : desc);
         if (powerObj != null) {
-            msg(sender, "message.power.property_value", Utils.getProperty(powerObj, name, prop.field()));
+            msg(sender, "message.power.property_value", Utils.getProperty(powerObj, name, prop));
         }
     }
 
@@ -1731,7 +1815,7 @@ public class AdminHandler extends RPGCommandReceiver {
                 if (property.required()) {
                     propertiesDesc.append(propertyRequired);
                 } else {
-                    String value = Utils.getProperty(instance, name, property.field());
+                    String value = Utils.getProperty(instance, name, property);
                     if (value != null && !value.trim().isEmpty()) {
                         propertiesDesc.append(propertyDefaultValue.replace("${}", value));
                     }
@@ -2104,9 +2188,9 @@ public class AdminHandler extends RPGCommandReceiver {
         }
         for (RPGItem item : items) {
             ItemManager.addItem(item);
+            ItemManager.save(item);
             msg(sender, "message.import.success", item.getName(), item.getUid());
         }
-        ItemManager.save();
     }
 
     public static class CommandException extends BadCommandException {
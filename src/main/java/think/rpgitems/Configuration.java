@@ -82,6 +82,39 @@ public class Configuration extends PluginConfigure {
     @Serializable(name = "general.item.show_loaded")
     public boolean itemShowLoaded = false;
 
+    @Serializable(name = "general.item.load_threads")
+    public int itemLoadThreads = 0;
+
+    @Serializable(name = "general.item.compiled_cache")
+    public boolean itemCompiledCache = false;
+
+    @Serializable(name = "general.item.backup_versions")
+    public int itemBackupVersions = 20;
+
+    @Serializable(name = "general.item.backup_compress")
+    public boolean itemBackupCompress = true;
+
+    @Serializable(name = "general.particle.batch")
+    public boolean particleBatch = true;
+
+    @Serializable(name = "general.particle.view_distance")
+    public int particleViewDistance = 64;
+
+    @Serializable(name = "general.particle.view_angle")
+    public int particleViewAngle = 160;
+
+    @Serializable(name = "general.particle.budget")
+    public int particleBudget = 256;
+
+    @Serializable(name = "general.item.defer_durability_write")
+    public boolean deferDurabilityWrite = false;
+
+    @Serializable(name = "general.drop.looting_bonus")
+    public double dropLootingBonus = 0;
+
+    @Serializable(name = "general.drop.luck_bonus")
+    public double dropLuckBonus = 0;
+
     @SuppressWarnings("unused")
     @Serializable(name = "unused.locale_inv", alias = {"general.locale_inv", "localeInv"})
     public boolean oldLocaleInv = false;
@@ -4,8 +4,11 @@ import cat.nyaa.nyaacore.utils.TridentUtils;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
+import org.bukkit.attribute.Attribute;
+import org.bukkit.attribute.AttributeInstance;
 import org.bukkit.block.Block;
 import org.bukkit.entity.*;
+import org.bukkit.enchantments.Enchantment;
 import org.bukkit.event.*;
 import org.bukkit.event.block.Action;
 import org.bukkit.event.block.BlockBreakEvent;
@@ -23,6 +26,9 @@ import org.bukkit.metadata.FixedMetadataValue;
 import org.bukkit.projectiles.ProjectileSource;
 import org.bukkit.scheduler.BukkitRunnable;
 import think.rpgitems.data.Context;
+import think.rpgitems.data.CooldownTable;
+import think.rpgitems.data.PlayerEquipment;
+import think.rpgitems.item.DropTable;
 import think.rpgitems.item.ItemManager;
 import think.rpgitems.item.RPGItem;
 import think.rpgitems.power.Power;
@@ -51,7 +57,6 @@ public class Events implements Listener {
     public static final String SUPPRESS_MELEE = "SuppressMelee";
     public static final String SUPPRESS_PROJECTILE = "SuppressProjectile";
     public static final String DAMAGE_SOURCE_ITEM = "DamageSourceItem";
-    public static HashMap<String, Set<Integer>> drops = new HashMap<>();
 
     static HashMap<String, Integer> recipeWindows = new HashMap<>();
 
@@ -166,27 +171,35 @@ public class Events implements Listener {
 
     @EventHandler
     public void onEntityDeath(EntityDeathEvent e) {
-        String type = e.getEntity().getType().toString();
         if (PowerTranslocator.translocatorPlayerMap.getIfPresent(e.getEntity().getUniqueId()) != null) {
             e.getDrops().clear();
         }
-        Random random = new Random();
-        if (drops.containsKey(type)) {
-            Set<Integer> items = drops.get(type);
-            Iterator<Integer> it = items.iterator();
-            while (it.hasNext()) {
-                int id = it.next();
-                RPGItem item = ItemManager.getItem(id).orElse(null);
-                if (item == null) {
-                    it.remove();
-                    continue;
-                }
-                double chance = item.getDropChances().get(type);
-                if (random.nextDouble() < chance / 100d) {
-                    e.getDrops().add(item.toItemStack());
-                }
+        DropTable table = DropTable.of(e.getEntityType());
+        if (table.isEmpty()) {
+            return;
+        }
+        table.roll(dropMultiplier(e.getEntity().getKiller()), e.getDrops());
+    }
+
+    /**
+     * @return how much the killer's looting level and luck scale the drop chances
+     */
+    private static double dropMultiplier(Player killer) {
+        double multiplier = 1;
+        if (killer == null) {
+            return multiplier;
+        }
+        if (plugin.cfg.dropLootingBonus != 0) {
+            ItemStack weapon = killer.getInventory().getItemInMainHand();
+            multiplier += plugin.cfg.dropLootingBonus * weapon.getEnchantmentLevel(Enchantment.LOOT_BONUS_MOBS);
+        }
+        if (plugin.cfg.dropLuckBonus != 0) {
+            AttributeInstance luck = killer.getAttribute(Attribute.GENERIC_LUCK);
+            if (luck != null) {
+                multiplier += plugin.cfg.dropLuckBonus * luck.getValue();
             }
         }
+        return Math.max(multiplier, 0);
     }
 
     @EventHandler
@@ -426,6 +439,7 @@ public class Events implements Listener {
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent e) {
         Player player = e.getPlayer();
+        CooldownTable.instance().unpark(player.getUniqueId());
         PlayerInventory in = player.getInventory();
         for (int i = 0; i < in.getSize(); i++) {
             ItemStack item = in.getItem(i);
@@ -439,6 +453,40 @@ public class Events implements Listener {
         }
     }
 
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void flushBeforeClick(InventoryClickEvent e) {
+        ItemManager.flushDurability();
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void flushBeforeDrag(InventoryDragEvent e) {
+        ItemManager.flushDurability();
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void flushBeforeDrop(PlayerDropItemEvent e) {
+        ItemManager.flushDurability();
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void flushBeforeSwap(PlayerSwapHandItemsEvent e) {
+        ItemManager.flushDurability();
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void flushBeforeDeath(PlayerDeathEvent e) {
+        ItemManager.flushDurability();
+    }
+
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent e) {
+        ItemManager.flushDurability();
+        CooldownTable.instance().park(e.getPlayer().getUniqueId());
+        Context.instance().clear(e.getPlayer().getUniqueId());
+        PlayerEquipment.instance().clear(e.getPlayer().getUniqueId());
+        WGSupport.removePolicy(e.getPlayer());
+    }
+
     @SuppressWarnings("deprecation")
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
     public void onPlayerPickupTrident(PlayerPickupArrowEvent e) {
@@ -510,7 +558,7 @@ public class Events implements Listener {
             }
             item.setHasRecipe(true);
             item.resetRecipe(true);
-            ItemManager.save();
+            ItemManager.save(item);
             e.getPlayer().sendMessage(ChatColor.AQUA + "Recipe set for " + item.getName());
         }
         updatePlayerInventory(e.getInventory(), e);
@@ -611,29 +659,30 @@ public class Events implements Listener {
     private void playerDamager(EntityDamageByEntityEvent e) {
         Player player = (Player) e.getDamager();
         Entity entity = e.getEntity();
-        ItemStack item = player.getInventory().getItemInMainHand();
+        PlayerEquipment.Snapshot equipment = PlayerEquipment.instance().get(player);
+        ItemStack item = equipment.getMainHand();
+        RPGItem rItem = equipment.getMainHandItem();
 
         if (e.getCause() == EntityDamageEvent.DamageCause.THORNS)
             return;
 
-        Boolean suppressMelee = Context.instance().getBoolean(player.getUniqueId(), SUPPRESS_MELEE);
-        Double overridingDamage = Context.instance().getDouble(player.getUniqueId(), OVERRIDING_DAMAGE);
-        Object sourceItem = Context.instance().get(player.getUniqueId(), DAMAGE_SOURCE_ITEM);
+        Context.DamageFrame frame = Context.instance().getDamage(player.getUniqueId());
+        boolean suppressMelee = frame != null && frame.isSuppressMelee();
+        Double overridingDamage = frame == null ? null : frame.getOverridingDamage();
+        ItemStack sourceItem = frame == null ? null : frame.getSourceItem();
 
-        if (sourceItem!=null){
-            item = ((ItemStack) sourceItem);
+        if (sourceItem != null) {
+            item = sourceItem;
+            rItem = ItemManager.toRPGItem(item).orElse(null);
         }
 
-        if (suppressMelee != null && suppressMelee) {
+        if (suppressMelee) {
             if (overridingDamage != null) {
                 e.setDamage(overridingDamage);
             }
             return;
         }
 
-
-        RPGItem rItem = ItemManager.toRPGItem(item).orElse(null);
-        ItemStack[] armorContents = player.getInventory().getArmorContents();
         double originDamage = e.getDamage();
         double damage = originDamage;
         if (rItem != null && overridingDamage == null) {
@@ -650,7 +699,7 @@ public class Events implements Listener {
         if (rItem != null) {
             damage = maxWithCancel(rItem.power(player, item, e, Trigger.HIT).orElse(null), damage);
         }
-        runHitTrigger(e, player, damage, armorContents);
+        runHitTrigger(e, player, damage, equipment);
     }
 
     private void projectileDamager(EntityDamageByEntityEvent e) {
@@ -674,8 +723,9 @@ public class Events implements Listener {
             return;
         }
         Player player = (Player) projectile.getShooter();
-        ItemStack item = player.getInventory().getItemInMainHand();
-        RPGItem hItem = ItemManager.toRPGItem(item).orElse(null);
+        PlayerEquipment.Snapshot equipment = PlayerEquipment.instance().get(player);
+        ItemStack item = equipment.getMainHand();
+        RPGItem hItem = equipment.getMainHandItem();
 
         if (hasLocalItemStack(projectile.getUniqueId())) {
             item = getLocalItemStack(projectile.getUniqueId());
@@ -683,18 +733,19 @@ public class Events implements Listener {
             if (rItem == null) throw new IllegalStateException();
         } else {
             if (rItem != hItem) {
-                item = player.getInventory().getItemInOffHand();
-                hItem = ItemManager.toRPGItem(item).orElse(null);
+                item = equipment.getOffHand();
+                hItem = equipment.getOffHandItem();
                 if (rItem != hItem) {
                     return;
                 }
             }
         }
 
-        Boolean suppressProjectile = Context.instance().getBoolean(player.getUniqueId(), SUPPRESS_PROJECTILE);
-        Double overridingDamage = Context.instance().getDouble(player.getUniqueId(), OVERRIDING_DAMAGE);
+        Context.DamageFrame frame = Context.instance().getDamage(player.getUniqueId());
+        boolean suppressProjectile = frame != null && frame.isSuppressProjectile();
+        Double overridingDamage = frame == null ? null : frame.getOverridingDamage();
 
-        if (suppressProjectile != null && suppressProjectile) {
+        if (suppressProjectile) {
             if (overridingDamage != null) {
                 e.setDamage(overridingDamage);
             }
@@ -713,18 +764,17 @@ public class Events implements Listener {
             return;
         }
         e.setDamage(damage);
-        ItemStack[] armorContents = player.getInventory().getArmorContents();
         if (!(e.getEntity() instanceof LivingEntity)) return;
         damage = maxWithCancel(rItem.power(player, item, e, Trigger.HIT).orElse(null), damage);
-        runHitTrigger(e, player, damage, armorContents);
+        runHitTrigger(e, player, damage, equipment);
     }
 
-    private void runHitTrigger(EntityDamageByEntityEvent e, Player player, double damage, ItemStack[] armorContents) {
-        for (ItemStack armorContent : armorContents) {
-            if (armorContent == null) continue;
-            RPGItem rpgItem = ItemManager.toRPGItem(armorContent).orElse(null);
+    private void runHitTrigger(EntityDamageByEntityEvent e, Player player, double damage, PlayerEquipment.Snapshot equipment) {
+        ItemStack[] armorContents = equipment.getArmour();
+        for (int i = 0; i < armorContents.length; i++) {
+            RPGItem rpgItem = equipment.getArmourItem(i);
             if (rpgItem == null) continue;
-            damage = maxWithCancel(rpgItem.power(player, armorContent, e, Trigger.HIT).orElse(null), damage);
+            damage = maxWithCancel(rpgItem.power(player, armorContents[i], e, Trigger.HIT).orElse(null), damage);
         }
         if (damage == -1) {
             e.setCancelled(true);
@@ -735,19 +785,21 @@ public class Events implements Listener {
 
     private void playerHit(EntityDamageByEntityEvent e) {
         Player player = (Player) e.getEntity();
-        ItemStack[] armour = player.getInventory().getArmorContents();
+        PlayerEquipment.Snapshot equipment = PlayerEquipment.instance().get(player);
+        ItemStack[] armour = equipment.getArmour();
         boolean hasRPGItem = false;
         double damage = e.getDamage();
-        for (ItemStack pArmour : armour) {
-            RPGItem pRItem = ItemManager.toRPGItem(pArmour).orElse(null);
+        for (int i = 0; i < armour.length; i++) {
+            RPGItem pRItem = equipment.getArmourItem(i);
             if (pRItem == null) {
                 continue;
             }
             hasRPGItem = true;
-            damage = pRItem.takeDamage(player, damage, pArmour, e.getDamager());
+            damage = pRItem.takeDamage(player, damage, armour[i], e.getDamager());
         }
         if (hasRPGItem) {
             player.getInventory().setArmorContents(armour);
+            PlayerEquipment.instance().invalidate(player);
         }
         e.setDamage(damage);
     }
@@ -761,8 +813,12 @@ public class Events implements Listener {
 
     private double playerHitTaken(Player e, EntityDamageEvent ev) {
         double ret = ev.getDamage();
-        for (ItemStack item : e.getInventory().getContents()) {
-            RPGItem ri = ItemManager.toRPGItem(item).orElse(null);
+        int[] slots = PlayerEquipment.instance().get(e).getHitTakenSlots();
+        if (slots.length == 0) return ret;
+        PlayerInventory inventory = e.getInventory();
+        for (int slot : slots) {
+            ItemStack item = inventory.getItem(slot);
+            RPGItem ri = slotItem(e, item, Trigger.HIT_TAKEN);
             if (ri == null) continue;
             ret = minWithCancel(ri.power(e, item, ev, Trigger.HIT_TAKEN).orElse(null), ret);
         }
@@ -773,14 +829,30 @@ public class Events implements Listener {
     private void onPlayerHurt(EntityDamageByEntityEvent ev) {
         if (ev.getEntity() instanceof Player) {
             Player e = (Player) ev.getEntity();
-            for (ItemStack item : e.getInventory().getContents()) {
-                RPGItem ri = ItemManager.toRPGItem(item).orElse(null);
+            int[] slots = PlayerEquipment.instance().get(e).getHurtSlots();
+            if (slots.length == 0) return;
+            PlayerInventory inventory = e.getInventory();
+            for (int slot : slots) {
+                ItemStack item = inventory.getItem(slot);
+                RPGItem ri = slotItem(e, item, Trigger.HURT);
                 if (ri == null) continue;
                 ri.power(e, item, ev, Trigger.HURT);
             }
         }
     }
 
+    /**
+     * Resolves an item from a precomputed slot list, dropping the player's snapshot if the slot changed under it
+     */
+    private RPGItem slotItem(Player player, ItemStack item, Trigger trigger) {
+        RPGItem ri = ItemManager.toRPGItem(item).orElse(null);
+        if (ri == null || !ri.hasTrigger(trigger)) {
+            PlayerEquipment.instance().invalidate(player);
+            return null;
+        }
+        return ri;
+    }
+
     @Deprecated
     @EventHandler(ignoreCancelled = true, priority = EventPriority.HIGHEST)
     public void onItemCraft(PrepareItemCraftEvent e) {
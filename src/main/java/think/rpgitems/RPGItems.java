@@ -2,17 +2,16 @@ package think.rpgitems;
 
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
-import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.server.ServerLoadEvent;
-import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.InvalidDescriptionException;
 import org.bukkit.plugin.InvalidPluginException;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.librazy.nclangchecker.LangKey;
+import think.rpgitems.data.CooldownTable;
 import think.rpgitems.data.Font;
 import think.rpgitems.item.ItemManager;
 import think.rpgitems.power.*;
@@ -20,8 +19,6 @@ import think.rpgitems.power.impl.BasePower;
 import think.rpgitems.support.WGSupport;
 
 import java.io.File;
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
@@ -71,10 +68,10 @@ public class RPGItems extends JavaPlugin {
         cfg.load();
         i18n = new I18n(this, cfg.language);
 
-        PowerManager.registerAdapter(PowerPlain.class, PowerOffhandClick.class, p -> getWrapper(p, PowerOffhandClick.class, "offhandClick"));
-        PowerManager.registerAdapter(PowerPlain.class, PowerSprint.class, p -> getWrapper(p, PowerSprint.class, "sprint"));
-        PowerManager.registerAdapter(PowerPlain.class, PowerSneak.class, p -> getWrapper(p, PowerSneak.class, "sneak"));
-        PowerManager.registerAdapter(PowerPlain.class, PowerAttachment.class, p -> getWrapper(p, PowerAttachment.class, "attachment"));
+        PowerManager.registerAdapter(PowerPlain.class, PowerOffhandClick.class, PowerPlainAdapter::new);
+        PowerManager.registerAdapter(PowerPlain.class, PowerSprint.class, PowerPlainAdapter::new);
+        PowerManager.registerAdapter(PowerPlain.class, PowerSneak.class, PowerPlainAdapter::new);
+        PowerManager.registerAdapter(PowerPlain.class, PowerAttachment.class, PowerPlainAdapter::new);
 
         PowerManager.addDescriptionResolver(RPGItems.plugin, (power, property) -> {
             if (property == null) {
@@ -183,8 +180,13 @@ public class RPGItems extends JavaPlugin {
             WGSupport.init(RPGItems.this);
             logger.info("Loading RPGItems...");
             ItemManager.load(RPGItems.this);
+            CooldownTable.instance().load(new File(getDataFolder(), "cooldowns.yml"));
+            getServer().getOnlinePlayers().forEach(player -> CooldownTable.instance().unpark(player.getUniqueId()));
             logger.info("Done");
-            new Ticker().runTaskTimer(RPGItems.this, 0, 0);
+            Ticker ticker = new Ticker();
+            getServer().getPluginManager().registerEvents(ticker, RPGItems.this);
+            ticker.runTaskTimer(RPGItems.this, 0, 0);
+            ParticleEmitter.instance().start(RPGItems.this);
         }
     }
 
@@ -195,19 +197,8 @@ public class RPGItems extends JavaPlugin {
         getCommand("rpgitem").setExecutor(null);
         getCommand("rpgitem").setTabCompleter(null);
         this.getServer().getScheduler().cancelTasks(plugin);
+        CooldownTable.instance().save(new File(getDataFolder(), "cooldowns.yml"));
         ItemManager.unload();
         managedPlugins.forEach(Bukkit.getPluginManager()::disablePlugin);
     }
-
-    @SuppressWarnings({"unchecked", "JavaReflectionInvocation"})
-    private static <T> T getWrapper(final PowerPlain obj, final Class<T> implInterface, final String delegateMethod) {
-        InvocationHandler invocationHandler = (proxy, method, args) -> {
-            if (!method.getName().equals(delegateMethod)) {
-                return obj.getClass().getMethod(method.getName(), method.getParameterTypes()).invoke(obj, args);
-            } else {
-                return obj.getClass().getDeclaredMethod("fire", Player.class, ItemStack.class).invoke(obj, args[0], args[1]);
-            }
-        };
-        return (T) Proxy.newProxyInstance(obj.getClass().getClassLoader(), new Class[]{implInterface}, invocationHandler);
-    }
 }
@@ -1,17 +1,27 @@
 package think.rpgitems.data;
 
-import cat.nyaa.nyaacore.Pair;
 import org.bukkit.Location;
 import org.bukkit.entity.LivingEntity;
+import org.bukkit.inventory.ItemStack;
+import think.rpgitems.Events;
 
-import javax.annotation.Nonnull;
-import javax.annotation.Nullable;
 import java.util.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
+/**
+ * Per-player key-value storage with expiring and temporary (per power dispatch) entries.
+ * <p>
+ * Lookups are single hash lookups, expiry is checked lazily on access. Expired entries are removed by
+ * {@link #cleanTick()}, which only sweeps the 50ms buckets whose deadline has passed since the last call.
+ * The damage context keys from {@link Events} live in typed slots instead of the map, and powers dealing damage
+ * push a {@link DamageFrame} that takes precedence over them.
+ */
 public class Context {
-    private HashMap<UUID, ExpiringMap<String, Object>> storage = new HashMap<>();
+    private static final long TEMP = Long.MAX_VALUE;
+    private static final long BUCKET_MILLIS = 50;
+
+    private final HashMap<UUID, Store> storage = new HashMap<>();
+    private final HashMap<Long, List<Expiry>> buckets = new HashMap<>();
+    private long sweptBucket = getCurrentMillis() / BUCKET_MILLIS - 1;
 
     private static Context instance = new Context();
 
@@ -20,9 +30,7 @@ public class Context {
     }
 
     public LivingEntity getLivingEntity(UUID context, String key) {
-        ExpiringMap<String, Object> local = storage.get(context);
-        if (local == null) return null;
-        Object obj = local.get(key);
+        Object obj = get(context, key);
         if (obj instanceof LivingEntity) {
             return (LivingEntity) obj;
         }
@@ -30,9 +38,7 @@ public class Context {
     }
 
     public Boolean getBoolean(UUID context, String key) {
-        ExpiringMap<String, Object> local = storage.get(context);
-        if (local == null) return null;
-        Object obj = local.get(key);
+        Object obj = get(context, key);
         if (obj instanceof Boolean) {
             return (Boolean) obj;
         }
@@ -40,19 +46,25 @@ public class Context {
     }
 
     public Double getDouble(UUID context, String key) {
-        ExpiringMap<String, Object> local = storage.get(context);
+        Store local = storage.get(context);
         if (local == null) return null;
-        Object obj = local.get(key);
-        if (obj instanceof Double) {
-            return (Double) obj;
+        Object obj = local.getSlot(key);
+        if (obj == null) {
+            obj = local.get(key);
+        }
+        return obj instanceof Double ? (Double) obj : null;
+    }
+
+    public ItemStack getItemStack(UUID context, String key) {
+        Object obj = get(context, key);
+        if (obj instanceof ItemStack) {
+            return (ItemStack) obj;
         }
         return null;
     }
 
     public Location getLocation(UUID context, String key) {
-        ExpiringMap<String, Object> local = storage.get(context);
-        if (local == null) return null;
-        Object obj = local.get(key);
+        Object obj = get(context, key);
         if (obj instanceof Location) {
             return (Location) obj;
         }
@@ -60,25 +72,95 @@ public class Context {
     }
 
     public Object get(UUID context, String key) {
-        ExpiringMap<String, Object> local = storage.get(context);
+        Store local = storage.get(context);
+        if (local == null) return null;
+        Object slot = local.getSlot(key);
+        return slot != null ? slot : local.get(key);
+    }
+
+    /**
+     * Makes the damage {@code context} deals until the frame is closed power-caused. Frames nest, so damage dealt
+     * by powers triggered from within sees its own frame and the outer one is restored afterwards.
+     */
+    public DamageFrame pushDamage(UUID context, String source, Double overridingDamage, boolean suppressMelee, boolean suppressProjectile, ItemStack sourceItem) {
+        Store local = storage.computeIfAbsent(context, (ignored) -> new Store());
+        DamageFrame frame = new DamageFrame(context, source, overridingDamage, suppressMelee, suppressProjectile, sourceItem);
+        if (local.frames == null) {
+            local.frames = new ArrayDeque<>(2);
+        }
+        local.frames.push(frame);
+        return frame;
+    }
+
+    public DamageFrame pushDamage(UUID context, String source, Double overridingDamage, boolean suppressMelee, ItemStack sourceItem) {
+        return pushDamage(context, source, overridingDamage, suppressMelee, false, sourceItem);
+    }
+
+    /**
+     * @return the innermost damage frame of this context, or one made of the legacy damage keys if none is pushed
+     */
+    public DamageFrame getDamage(UUID context) {
+        Store local = storage.get(context);
         if (local == null) return null;
-        return local.get(key);
+        if (local.frames != null && !local.frames.isEmpty()) {
+            return local.frames.peek();
+        }
+        if (local.damageSource == null && !local.hasOverridingDamage && local.suppressMelee == null
+                    && local.suppressProjectile == null && local.damageSourceItem == null) {
+            return null;
+        }
+        return new DamageFrame(context, local.damageSource, local.hasOverridingDamage ? local.overridingDamage : null,
+                Boolean.TRUE.equals(local.suppressMelee), Boolean.TRUE.equals(local.suppressProjectile), local.damageSourceItem);
     }
 
+    private void popDamage(DamageFrame frame) {
+        Store local = storage.get(frame.context);
+        if (local == null || local.frames == null) return;
+        if (local.frames.peek() == frame) {
+            local.frames.pop();
+        } else {
+            local.frames.removeFirstOccurrence(frame);
+        }
+        if (local.isEmpty()) {
+            storage.remove(frame.context);
+        }
+    }
+
+    /**
+     * Puts an entry that is only visible within the current millisecond
+     */
     public void put(UUID context, String key, Object obj) {
-        storage.computeIfAbsent(context, (ignored) -> new ExpiringMap<>()).put(key, obj);
+        put(context, key, obj, getCurrentMillis());
     }
 
     public void putTemp(UUID context, String key, Object obj) {
-        storage.computeIfAbsent(context, (ignored) -> new ExpiringMap<>()).putTemp(key, obj);
+        Store local = storage.computeIfAbsent(context, (ignored) -> new Store());
+        if (local.putSlot(key, obj)) {
+            return;
+        }
+        local.entries.put(key, new Entry(obj, TEMP));
+        local.temp.add(key);
     }
 
-    public void removeTemp(UUID context, String key){
-        storage.computeIfAbsent(context, uuid -> new ExpiringMap<>()).remove(key);
+    public void removeTemp(UUID context, String key) {
+        Store local = storage.get(context);
+        if (local == null) return;
+        if (local.putSlot(key, null)) {
+            return;
+        }
+        local.entries.remove(key);
     }
 
+    /**
+     * Puts an entry that expires after the monotonic millis {@code expire}
+     */
     public void put(UUID context, String key, Object obj, long expire) {
-        storage.computeIfAbsent(context, (ignored) -> new ExpiringMap<>()).put(key, obj, expire);
+        Store local = storage.computeIfAbsent(context, (ignored) -> new Store());
+        local.clearSlot(key);
+        Entry entry = new Entry(obj, expire);
+        local.entries.put(key, entry);
+        long bucket = Math.max(expire / BUCKET_MILLIS, sweptBucket + 1);
+        buckets.computeIfAbsent(bucket, (ignored) -> new ArrayList<>()).add(new Expiry(context, key, entry));
     }
 
     public void putExpiringSeconds(UUID context, String key, Object obj, int expiringSeconds) {
@@ -86,178 +168,256 @@ public class Context {
     }
 
     public void cleanTemp(UUID context) {
-        ExpiringMap<String, Object> local = storage.get(context);
+        Store local = storage.get(context);
         if (local == null) return;
         local.cleanupTemp();
     }
 
-    public void cleanTick() {
-        for (ExpiringMap<String, Object> local : storage.values()) {
-            local.cleanup(null, null, ExpiringMap.TICK);
+    /**
+     * Drops everything but the still running timed entries of this context, which the sweep removes once expired
+     */
+    public void clear(UUID context) {
+        Store local = storage.get(context);
+        if (local == null) return;
+        local.cleanupTemp();
+        long now = getCurrentMillis();
+        local.entries.values().removeIf(entry -> entry.expire < now);
+        if (local.entries.isEmpty()) {
+            storage.remove(context);
         }
     }
 
-    public class ExpiringMap<K, V> implements Map<K, V> {
-        private final int aliveAge;
-        private final HashMap<K, Long> birth = new HashMap<>();
-        private final HashMap<K, V> inner;
-
-        private static final long TEMP = Long.MAX_VALUE;
-        private static final long TICK = Long.MAX_VALUE - 1;
-
-        public ExpiringMap() {
-            this(0);
+    public void cleanTick() {
+        long now = getCurrentMillis();
+        long current = now / BUCKET_MILLIS;
+        if (current - 1 <= sweptBucket) {
+            return;
         }
-
-        public ExpiringMap(int aliveAge) {
-            inner = new HashMap<>();
-            this.aliveAge = aliveAge;
+        if (current - 1 - sweptBucket > buckets.size()) {
+            Iterator<Map.Entry<Long, List<Expiry>>> iterator = buckets.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, List<Expiry>> bucket = iterator.next();
+                if (bucket.getKey() < current) {
+                    sweep(bucket.getValue(), now);
+                    iterator.remove();
+                }
+            }
+        } else {
+            for (long bucket = sweptBucket + 1; bucket < current; bucket++) {
+                List<Expiry> expiries = buckets.remove(bucket);
+                if (expiries != null) {
+                    sweep(expiries, now);
+                }
+            }
         }
+        sweptBucket = current - 1;
+    }
 
-        public ExpiringMap(int initialCapacity, int aliveAge) {
-            inner = new HashMap<>(initialCapacity);
-            this.aliveAge = aliveAge;
+    private void sweep(List<Expiry> expiries, long now) {
+        for (Expiry expiry : expiries) {
+            Store local = storage.get(expiry.context);
+            if (local == null) continue;
+            if (local.entries.get(expiry.key) == expiry.entry && expiry.entry.expire < now) {
+                local.entries.remove(expiry.key);
+                if (local.isEmpty()) {
+                    storage.remove(expiry.context);
+                }
+            }
         }
+    }
 
-        private void rec(K i, long birth) {
-            this.birth.put(i, birth);
-            this.cleanup();
+    private final class Store {
+        private final HashMap<String, Entry> entries = new HashMap<>();
+        private final Set<String> temp = new HashSet<>();
+
+        private String damageSource;
+        private boolean hasOverridingDamage;
+        private double overridingDamage;
+        private Boolean suppressMelee;
+        private Boolean suppressProjectile;
+        private ItemStack damageSourceItem;
+        private Deque<DamageFrame> frames;
+
+        Object get(String key) {
+            Entry entry = entries.get(key);
+            if (entry == null) return null;
+            if (entry.expire != TEMP && getCurrentMillis() > entry.expire) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.value;
         }
 
-        private void rec(K key) {
-            long currentMillis = getCurrentMillis();
-            rec(key, currentMillis);
+        Object getSlot(String key) {
+            if (frames != null && !frames.isEmpty()) {
+                return frames.peek().getSlot(key);
+            }
+            switch (key) {
+                case Events.DAMAGE_SOURCE:
+                    return damageSource;
+                case Events.OVERRIDING_DAMAGE:
+                    return hasOverridingDamage ? overridingDamage : null;
+                case Events.SUPPRESS_MELEE:
+                    return suppressMelee;
+                case Events.SUPPRESS_PROJECTILE:
+                    return suppressProjectile;
+                case Events.DAMAGE_SOURCE_ITEM:
+                    return damageSourceItem;
+                default:
+                    return null;
+            }
         }
 
-        public void cleanup() {
-            cleanup(null, null, null);
+        /**
+         * @return whether {@code key} is a typed slot
+         */
+        boolean putSlot(String key, Object obj) {
+            switch (key) {
+                case Events.DAMAGE_SOURCE:
+                    if (obj != null && !(obj instanceof String)) return false;
+                    damageSource = (String) obj;
+                    break;
+                case Events.OVERRIDING_DAMAGE:
+                    if (obj != null && !(obj instanceof Double)) return false;
+                    hasOverridingDamage = obj != null;
+                    overridingDamage = obj == null ? 0 : (Double) obj;
+                    break;
+                case Events.SUPPRESS_MELEE:
+                    if (obj != null && !(obj instanceof Boolean)) return false;
+                    suppressMelee = (Boolean) obj;
+                    break;
+                case Events.SUPPRESS_PROJECTILE:
+                    if (obj != null && !(obj instanceof Boolean)) return false;
+                    suppressProjectile = (Boolean) obj;
+                    break;
+                case Events.DAMAGE_SOURCE_ITEM:
+                    if (obj != null && !(obj instanceof ItemStack)) return false;
+                    damageSourceItem = (ItemStack) obj;
+                    break;
+                default:
+                    return false;
+            }
+            entries.remove(key);
+            return true;
         }
 
-        public void cleanupTemp() {
-            cleanup(null, null, TEMP);
+        void clearSlot(String key) {
+            putSlot(key, null);
         }
 
-        @Nullable
-        public Pair<K, V> cleanup(Object findKey, Object findValue, Long removing) {
-            long currentMillis = getCurrentMillis();
-            Iterator<Map.Entry<K, Long>> expireIter = this.birth.entrySet().iterator();
-
-            while (expireIter.hasNext()) {
-                Map.Entry<K, Long> entry = expireIter.next();
-                K key = entry.getKey();
-                V value = inner.get(key);
-                Long birth = entry.getValue();
-
-                if ((currentMillis - birth <= (long) this.aliveAge)
-                            && !Objects.equals(birth, removing)) {
-                    if (Objects.equals(findKey, key)) {
-                        return Pair.of(key, value);
-                    }
-                    if (value != null && Objects.equals(findValue, value)) {
-                        return Pair.of(key, value);
-                    }
-                    continue;
+        void cleanupTemp() {
+            damageSource = null;
+            hasOverridingDamage = false;
+            suppressMelee = null;
+            suppressProjectile = null;
+            damageSourceItem = null;
+            if (temp.isEmpty()) return;
+            for (String key : temp) {
+                Entry entry = entries.get(key);
+                if (entry != null && entry.expire == TEMP) {
+                    entries.remove(key);
                 }
-
-                inner.remove(key);
-                expireIter.remove();
             }
-            return null;
-        }
-
-        @Override
-        public int size() {
-            this.cleanup();
-            return inner.size();
-        }
-
-        @Override
-        public boolean isEmpty() {
-            this.cleanup();
-            return inner.isEmpty();
+            temp.clear();
         }
 
-        @Override
-        public boolean containsKey(Object key) {
-            return this.cleanup(key, null, null) == null;
+        boolean isEmpty() {
+            return entries.isEmpty() && damageSource == null && !hasOverridingDamage && suppressMelee == null
+                           && suppressProjectile == null && damageSourceItem == null && (frames == null || frames.isEmpty());
         }
+    }
 
-        @Override
-        public boolean containsValue(Object value) {
-            return this.cleanup(null, value, null) == null;
+    /**
+     * Damage dealt by a power on behalf of a context, as seen by the damage events it causes
+     */
+    public static final class DamageFrame implements AutoCloseable {
+        private final UUID context;
+        private final String source;
+        private final Double overridingDamage;
+        private final boolean suppressMelee;
+        private final boolean suppressProjectile;
+        private final ItemStack sourceItem;
+
+        private DamageFrame(UUID context, String source, Double overridingDamage, boolean suppressMelee, boolean suppressProjectile, ItemStack sourceItem) {
+            this.context = context;
+            this.source = source;
+            this.overridingDamage = overridingDamage;
+            this.suppressMelee = suppressMelee;
+            this.suppressProjectile = suppressProjectile;
+            this.sourceItem = sourceItem;
         }
 
-        @SuppressWarnings("unchecked")
-        @Override
-        public V get(Object key) {
-            Pair<K, V> cleanup = this.cleanup(key, null, null);
-            if (cleanup == null) {
-                return null;
-            }
-            return cleanup.getValue();
+        /**
+         * @return key of the power dealing the damage
+         */
+        public String getSource() {
+            return source;
         }
 
-        @Override
-        public V put(K i, V value) {
-            this.rec(i);
-            return inner.put(i, value);
+        /**
+         * @return damage to deal instead of what the event carries, or null
+         */
+        public Double getOverridingDamage() {
+            return overridingDamage;
         }
 
-        public V put(K i, V value, long birth) {
-            this.rec(i, birth);
-            return inner.put(i, value);
+        public boolean isSuppressMelee() {
+            return suppressMelee;
         }
 
-        public V putTemp(K i, V value) {
-            this.rec(i, TEMP);
-            return inner.put(i, value);
+        public boolean isSuppressProjectile() {
+            return suppressProjectile;
         }
 
-        @Override
-        public V remove(Object key) {
-            birth.remove(key);
-            return inner.remove(key);
+        /**
+         * @return the stack of the item dealing the damage, if not the one in main hand
+         */
+        public ItemStack getSourceItem() {
+            return sourceItem;
         }
 
-        @Override
-        public void putAll(@Nonnull Map<? extends K, ? extends V> map) {
-            long currentMillis = getCurrentMillis();
-            birth.putAll(map.keySet().stream().collect(Collectors.toMap(e -> e, e -> currentMillis)));
-            inner.putAll(map);
-            cleanup();
+        Object getSlot(String key) {
+            switch (key) {
+                case Events.DAMAGE_SOURCE:
+                    return source;
+                case Events.OVERRIDING_DAMAGE:
+                    return overridingDamage;
+                case Events.SUPPRESS_MELEE:
+                    return suppressMelee;
+                case Events.SUPPRESS_PROJECTILE:
+                    return suppressProjectile;
+                case Events.DAMAGE_SOURCE_ITEM:
+                    return sourceItem;
+                default:
+                    return null;
+            }
         }
 
         @Override
-        public void clear() {
-            birth.clear();
-            inner.clear();
+        public void close() {
+            instance().popDamage(this);
         }
+    }
 
-        @Override
-        @Nonnull
-        public Set<K> keySet() {
-            cleanup();
-            return birth.keySet();
-        }
+    private static final class Entry {
+        private final Object value;
+        private final long expire;
 
-        @Override
-        public V computeIfAbsent(K key, Function<? super K, ? extends V> value) {
-            this.birth.put(key, getCurrentMillis());
-            return inner.computeIfAbsent(key, value);
+        Entry(Object value, long expire) {
+            this.value = value;
+            this.expire = expire;
         }
+    }
 
-        @Override
-        @Nonnull
-        public Collection<V> values() {
-            this.cleanup();
-            return inner.values();
-        }
+    private static final class Expiry {
+        private final UUID context;
+        private final String key;
+        private final Entry entry;
 
-        @Override
-        @Nonnull
-        public Set<Entry<K, V>> entrySet() {
-            this.cleanup();
-            return inner.entrySet();
+        Expiry(UUID context, String key, Entry entry) {
+            this.context = context;
+            this.key = key;
+            this.entry = entry;
         }
     }
 
@@ -0,0 +1,315 @@
+package think.rpgitems.data;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import think.rpgitems.RPGItems;
+import think.rpgitems.power.Power;
+import think.rpgitems.power.PowerManager;
+import think.rpgitems.power.UnknownExtensionException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.logging.Level;
+
+/**
+ * Cooldown deadlines per player, indexed by (item uid, cooldown id).
+ * <p>
+ * Power cooldowns use the compact power id from {@link PowerManager#getPowerId(Class)}, named cooldowns get
+ * negative ids from this table. Deadlines are wall clock ticks ({@code currentTimeMillis / 50}), so they
+ * survive relogging and, through {@link #save(File)} and {@link #load(File)}, restarts.
+ * <p>
+ * A player's map lives only while they are online. On quit the cooldowns still running are {@link #park(UUID) parked}
+ * as a packed array until they join again or all of them expired.
+ */
+public class CooldownTable {
+    private static final String POWER_PREFIX = "power:";
+    private static final String NAMED_PREFIX = "named:";
+
+    private final HashMap<UUID, CooldownMap> storage = new HashMap<>();
+    /**
+     * Cooldowns of offline players, as (key, deadline) pairs
+     */
+    private final HashMap<UUID, long[]> parked = new HashMap<>();
+    private int pruneAt = 64;
+    private final HashMap<String, Integer> namedIds = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    private static CooldownTable instance = new CooldownTable();
+
+    public static CooldownTable instance() {
+        return instance;
+    }
+
+    public static long nowTick() {
+        return System.currentTimeMillis() / 50;
+    }
+
+    /**
+     * @return the id of a named cooldown, which never collides with a power id
+     */
+    public int namedId(String name) {
+        Integer id = namedIds.get(name);
+        if (id == null) {
+            names.add(name);
+            id = -names.size();
+            namedIds.put(name, id);
+        }
+        return id;
+    }
+
+    public static long key(int itemUid, int cooldownId) {
+        return ((long) itemUid << 32) | (cooldownId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return the deadline tick of this cooldown, or 0 if there is none
+     */
+    public long getDeadline(UUID player, long key) {
+        CooldownMap map = storage.get(player);
+        return map == null ? 0 : map.get(key);
+    }
+
+    public void setDeadline(UUID player, long key, long deadline) {
+        storage.computeIfAbsent(player, (ignored) -> new CooldownMap()).put(key, deadline, nowTick());
+    }
+
+    /**
+     * @return remaining cooldown of this power for the player in ticks, 0 if it is ready
+     */
+    public long getRemaining(UUID player, Power power) {
+        return getRemaining(player, power.getItem().getUid(), power.getClass());
+    }
+
+    public long getRemaining(UUID player, int itemUid, Class<? extends Power> power) {
+        int id = PowerManager.getPowerId(power);
+        if (id < 0) return 0;
+        return Math.max(0, getDeadline(player, key(itemUid, id)) - nowTick());
+    }
+
+    public long getRemaining(UUID player, int itemUid, String name) {
+        Integer id = namedIds.get(name);
+        if (id == null) return 0;
+        return Math.max(0, getDeadline(player, key(itemUid, id)) - nowTick());
+    }
+
+    public void clear(UUID player) {
+        storage.remove(player);
+        parked.remove(player);
+    }
+
+    /**
+     * Drops the player's map, keeping the cooldowns still running until {@link #unpark(UUID)}
+     */
+    public void park(UUID player) {
+        CooldownMap map = storage.remove(player);
+        if (map == null) return;
+        long[] entries = map.live(nowTick());
+        if (entries.length == 0) return;
+        parked.put(player, entries);
+        if (parked.size() >= pruneAt) {
+            prune(nowTick());
+            pruneAt = Math.max(64, parked.size() * 2);
+        }
+    }
+
+    public void unpark(UUID player) {
+        long[] entries = parked.remove(player);
+        if (entries == null) return;
+        long now = nowTick();
+        for (int i = 0; i < entries.length; i += 2) {
+            if (entries[i + 1] > now) {
+                setDeadline(player, entries[i], entries[i + 1]);
+            }
+        }
+    }
+
+    private void prune(long now) {
+        storage.values().removeIf(map -> map.live(now).length == 0);
+        parked.values().removeIf(entries -> {
+            for (int i = 1; i < entries.length; i += 2) {
+                if (entries[i] > now) return false;
+            }
+            return true;
+        });
+    }
+
+    public void save(File file) {
+        long now = nowTick();
+        prune(now);
+        Map<UUID, long[]> all = new HashMap<>(parked);
+        storage.forEach((player, map) -> all.put(player, map.live(now)));
+        YamlConfiguration yaml = new YamlConfiguration();
+        for (Map.Entry<UUID, long[]> entry : all.entrySet()) {
+            List<String> lines = new ArrayList<>();
+            long[] entries = entry.getValue();
+            for (int i = 0; i < entries.length; i += 2) {
+                long key = entries[i];
+                long deadline = entries[i + 1];
+                if (deadline <= now) continue;
+                int itemUid = (int) (key >> 32);
+                int id = (int) key;
+                String name;
+                if (id >= 0) {
+                    NamespacedKey powerKey = PowerManager.getPowerKey(id);
+                    if (powerKey == null) continue;
+                    name = POWER_PREFIX + powerKey;
+                } else {
+                    name = NAMED_PREFIX + names.get(-id - 1);
+                }
+                lines.add(deadline + " " + itemUid + " " + name);
+            }
+            if (!lines.isEmpty()) {
+                yaml.set(entry.getKey().toString(), lines);
+            }
+        }
+        try {
+            yaml.save(file);
+        } catch (IOException e) {
+            RPGItems.logger.log(Level.WARNING, "Error saving cooldowns", e);
+        }
+    }
+
+    /**
+     * Loads the saved cooldowns as parked, online players are unparked by the caller
+     */
+    public void load(File file) {
+        storage.clear();
+        parked.clear();
+        if (!file.exists()) return;
+        YamlConfiguration yaml = new YamlConfiguration();
+        try {
+            yaml.load(file);
+        } catch (IOException | InvalidConfigurationException e) {
+            RPGItems.logger.log(Level.WARNING, "Error loading cooldowns", e);
+            return;
+        }
+        long now = nowTick();
+        ConfigurationSection root = yaml.getRoot();
+        for (String player : root.getKeys(false)) {
+            UUID uuid;
+            try {
+                uuid = UUID.fromString(player);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            for (String line : root.getStringList(player)) {
+                String[] split = line.split(" ", 3);
+                if (split.length != 3) continue;
+                try {
+                    long deadline = Long.parseLong(split[0]);
+                    int itemUid = Integer.parseInt(split[1]);
+                    if (deadline <= now) continue;
+                    int id;
+                    if (split[2].startsWith(POWER_PREFIX)) {
+                        id = PowerManager.getPowerId(PowerManager.parseKey(split[2].substring(POWER_PREFIX.length())));
+                        if (id < 0) continue;
+                    } else if (split[2].startsWith(NAMED_PREFIX)) {
+                        id = namedId(split[2].substring(NAMED_PREFIX.length()));
+                    } else {
+                        continue;
+                    }
+                    long[] entries = parked.get(uuid);
+                    entries = entries == null ? new long[2] : Arrays.copyOf(entries, entries.length + 2);
+                    entries[entries.length - 2] = key(itemUid, id);
+                    entries[entries.length - 1] = deadline;
+                    parked.put(uuid, entries);
+                } catch (IllegalArgumentException | UnknownExtensionException e) {
+                    RPGItems.logger.log(Level.FINE, "Skipping cooldown " + line, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Open addressing long to long map. A deadline of 0 marks an empty slot,
+     * expired entries are dropped when the table is rehashed.
+     */
+    private static final class CooldownMap {
+        private long[] keys = new long[8];
+        private long[] deadlines = new long[8];
+        private int size = 0;
+
+        private static int slot(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+
+        long get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); deadlines[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return deadlines[i];
+                }
+            }
+            return 0;
+        }
+
+        void put(long key, long deadline, long now) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            for (; deadlines[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    deadlines[i] = deadline;
+                    return;
+                }
+            }
+            if ((size + 1) * 2 > keys.length) {
+                rehash(now);
+                put(key, deadline, now);
+                return;
+            }
+            keys[i] = key;
+            deadlines[i] = deadline;
+            size++;
+        }
+
+        private void rehash(long now) {
+            long[] oldKeys = keys;
+            long[] oldDeadlines = deadlines;
+            int live = 0;
+            for (long deadline : oldDeadlines) {
+                if (deadline > now) live++;
+            }
+            int capacity = 8;
+            while (capacity < (live + 1) * 4) {
+                capacity <<= 1;
+            }
+            keys = new long[capacity];
+            deadlines = new long[capacity];
+            size = 0;
+            int mask = capacity - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldDeadlines[j] <= now) continue;
+                int i = slot(oldKeys[j], mask);
+                while (deadlines[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                deadlines[i] = oldDeadlines[j];
+                size++;
+            }
+        }
+
+        /**
+         * @return the entries not expired yet, as (key, deadline) pairs
+         */
+        long[] live(long now) {
+            int count = 0;
+            for (long deadline : deadlines) {
+                if (deadline > now) count++;
+            }
+            long[] entries = new long[count * 2];
+            int j = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (deadlines[i] > now) {
+                    entries[j++] = keys[i];
+                    entries[j++] = deadlines[i];
+                }
+            }
+            return entries;
+        }
+    }
+}
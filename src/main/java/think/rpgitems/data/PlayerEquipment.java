@@ -0,0 +1,172 @@
+package think.rpgitems.data;
+
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import think.rpgitems.item.ItemManager;
+import think.rpgitems.item.RPGItem;
+import think.rpgitems.power.Trigger;
+
+import java.util.*;
+
+/**
+ * Resolved equipment of online players, shared by all triggers fired within one server tick.
+ * <p>
+ * The armour and hand part of a {@link Snapshot} lives until the next tick or until the player's inventory
+ * changes. The inventory slots holding HIT_TAKEN or HURT powers are kept across ticks and only rebuilt when
+ * the inventory changes or every {@link #SLOT_MAX_AGE} ticks, so players without such items never scan
+ * their inventory on damage. Changes without an inventory event are invalidated by their source: items
+ * given by the plugin, and item edits or reloads that change which items carry these triggers. Items other
+ * plugins add without an event are picked up by the next periodic rescan.
+ */
+public class PlayerEquipment {
+    private static final int SLOT_MAX_AGE = 20;
+    private static final int[] NO_SLOTS = new int[0];
+
+    private final HashMap<UUID, Snapshot> storage = new HashMap<>();
+    private long tick = 0;
+
+    private static PlayerEquipment instance = new PlayerEquipment();
+
+    public static PlayerEquipment instance() {
+        return instance;
+    }
+
+    /**
+     * Starts a new tick, making every armour and hand snapshot stale
+     */
+    public void nextTick() {
+        tick++;
+    }
+
+    public Snapshot get(Player player) {
+        Snapshot snapshot = storage.computeIfAbsent(player.getUniqueId(), (ignored) -> new Snapshot());
+        if (snapshot.tick != tick) {
+            snapshot.refresh(player.getInventory(), tick);
+        }
+        if (snapshot.slotsTick < 0 || tick - snapshot.slotsTick >= SLOT_MAX_AGE) {
+            snapshot.rescanSlots(player.getInventory(), tick);
+        }
+        return snapshot;
+    }
+
+    public void invalidate(Player player) {
+        Snapshot snapshot = storage.get(player.getUniqueId());
+        if (snapshot == null) return;
+        snapshot.tick = -1;
+        snapshot.slotsTick = -1;
+    }
+
+    public void invalidateAll() {
+        storage.clear();
+    }
+
+    public void clear(UUID player) {
+        storage.remove(player);
+    }
+
+    private static boolean isEmpty(ItemStack stack) {
+        return stack == null || stack.getType() == Material.AIR || stack.getAmount() <= 0;
+    }
+
+    public static final class Snapshot {
+        private long tick = -1;
+        private long slotsTick = -1;
+
+        private ItemStack[] armour;
+        private RPGItem[] armourItems;
+        private ItemStack mainHand;
+        private RPGItem mainHandItem;
+        private ItemStack offHand;
+        private RPGItem offHandItem;
+
+        private int[] hitTakenSlots = NO_SLOTS;
+        private int[] hurtSlots = NO_SLOTS;
+
+        private void refresh(PlayerInventory inventory, long tick) {
+            armour = inventory.getArmorContents();
+            armourItems = new RPGItem[armour.length];
+            for (int i = 0; i < armour.length; i++) {
+                armourItems[i] = ItemManager.toRPGItem(armour[i]).orElse(null);
+            }
+            mainHand = inventory.getItemInMainHand();
+            mainHandItem = ItemManager.toRPGItem(mainHand).orElse(null);
+            offHand = inventory.getItemInOffHand();
+            offHandItem = ItemManager.toRPGItem(offHand).orElse(null);
+            this.tick = tick;
+        }
+
+        private void rescanSlots(PlayerInventory inventory, long tick) {
+            ItemStack[] contents = inventory.getContents();
+            int[] hitTaken = new int[contents.length];
+            int[] hurt = new int[contents.length];
+            int hitTakenCount = 0;
+            int hurtCount = 0;
+            for (int slot = 0; slot < contents.length; slot++) {
+                RPGItem item = ItemManager.toRPGItem(contents[slot]).orElse(null);
+                if (item == null) continue;
+                if (item.hasTrigger(Trigger.HIT_TAKEN)) {
+                    hitTaken[hitTakenCount++] = slot;
+                }
+                if (item.hasTrigger(Trigger.HURT)) {
+                    hurt[hurtCount++] = slot;
+                }
+            }
+            hitTakenSlots = hitTakenCount == 0 ? NO_SLOTS : Arrays.copyOf(hitTaken, hitTakenCount);
+            hurtSlots = hurtCount == 0 ? NO_SLOTS : Arrays.copyOf(hurt, hurtCount);
+            slotsTick = tick;
+        }
+
+        /**
+         * @return armour contents, the stacks mirror the player's inventory
+         */
+        public ItemStack[] getArmour() {
+            return armour;
+        }
+
+        /**
+         * @return the RPGItem of this armour slot, or null if there is none or the stack broke since the snapshot
+         */
+        public RPGItem getArmourItem(int index) {
+            return isEmpty(armour[index]) ? null : armourItems[index];
+        }
+
+        public boolean hasArmourItem() {
+            for (int i = 0; i < armour.length; i++) {
+                if (getArmourItem(i) != null) return true;
+            }
+            return false;
+        }
+
+        public ItemStack getMainHand() {
+            return mainHand;
+        }
+
+        public RPGItem getMainHandItem() {
+            return isEmpty(mainHand) ? null : mainHandItem;
+        }
+
+        public ItemStack getOffHand() {
+            return offHand;
+        }
+
+        public RPGItem getOffHandItem() {
+            return isEmpty(offHand) ? null : offHandItem;
+        }
+
+        /**
+         * @return inventory slots (as in {@link PlayerInventory#getContents()}) holding items with HIT_TAKEN powers
+         */
+        public int[] getHitTakenSlots() {
+            return hitTakenSlots;
+        }
+
+        /**
+         * @return inventory slots (as in {@link PlayerInventory#getContents()}) holding items with HURT powers
+         */
+        public int[] getHurtSlots() {
+            return hurtSlots;
+        }
+    }
+}
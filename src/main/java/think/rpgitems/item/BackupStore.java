@@ -0,0 +1,443 @@
+package think.rpgitems.item;
+
+import think.rpgitems.RPGItems;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Versioned backups of item files, addressed by the SHA-256 of their content.
+ * <p>
+ * Each distinct content is stored once, optionally deflated, in the append only {@code store.seg}.
+ * {@code store.index} keeps the last {@code general.item.backup_versions} versions of every item file.
+ * Content no version refers to any more is dropped when the segment is compacted.
+ */
+public final class BackupStore {
+    private static final String SEGMENT = "store.seg";
+    private static final String INDEX = "store.index";
+    private static final int HASH_LENGTH = 32;
+    private static final byte FLAG_DEFLATE = 1;
+    private static final long COMPACT_THRESHOLD = 1024 * 1024;
+
+    private static final Map<String, Blob> blobs = new HashMap<>();
+    private static final Map<String, ArrayDeque<Version>> versions = new HashMap<>();
+    private static File dir;
+    private static FileChannel segment;
+    private static int maxVersions;
+    private static boolean compress;
+    private static long deadBytes;
+
+    private BackupStore() {
+        throw new IllegalStateException();
+    }
+
+    public static final class Version {
+        private final int number;
+        private final long time;
+        private final String hash;
+        private final int size;
+
+        Version(int number, long time, String hash, int size) {
+            this.number = number;
+            this.time = time;
+            this.hash = hash;
+            this.size = size;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public int getSize() {
+            return size;
+        }
+    }
+
+    private static final class Blob {
+        private long offset;
+        private final int length;
+        private final byte flags;
+        private int refs;
+
+        Blob(long offset, int length, byte flags) {
+            this.offset = offset;
+            this.length = length;
+            this.flags = flags;
+        }
+
+        long recordLength() {
+            return HASH_LENGTH + 1 + 4 + length;
+        }
+    }
+
+    static synchronized void open(File backupsDir, int maxVersions, boolean compress) {
+        close();
+        BackupStore.dir = backupsDir;
+        BackupStore.maxVersions = Math.max(1, maxVersions);
+        BackupStore.compress = compress;
+        try {
+            segment = FileChannel.open(new File(dir, SEGMENT).toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            scanSegment();
+            readIndex();
+        } catch (IOException e) {
+            RPGItems.logger.log(Level.SEVERE, "Error opening backup store in " + dir, e);
+            close();
+        }
+    }
+
+    static synchronized void close() {
+        blobs.clear();
+        versions.clear();
+        deadBytes = 0;
+        if (segment != null) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                RPGItems.logger.log(Level.WARNING, "Error closing backup store", e);
+            }
+            segment = null;
+        }
+    }
+
+    /**
+     * Records {@code content} as the newest version of {@code key}, unless it equals the current newest
+     *
+     * @return the version holding this content
+     */
+    static synchronized Version put(String key, byte[] content) throws IOException {
+        if (segment == null) {
+            throw new IOException("Backup store is not open");
+        }
+        String hash = hash(content);
+        ArrayDeque<Version> ring = versions.computeIfAbsent(key, (ignored) -> new ArrayDeque<>());
+        Version last = ring.peekLast();
+        if (last != null && last.hash.equals(hash)) {
+            return last;
+        }
+        Blob blob = blobs.get(hash);
+        if (blob == null) {
+            blob = append(hash, content);
+            blobs.put(hash, blob);
+        } else if (blob.refs == 0) {
+            deadBytes -= blob.recordLength();
+        }
+        blob.refs++;
+        Version version = new Version(last == null ? 1 : last.number + 1, System.currentTimeMillis(), hash, content.length);
+        ring.addLast(version);
+        while (ring.size() > maxVersions) {
+            release(ring.removeFirst().hash);
+        }
+        writeIndex();
+        if (deadBytes > COMPACT_THRESHOLD && deadBytes > segment.size() / 2) {
+            compact();
+        }
+        return version;
+    }
+
+    /**
+     * @return versions of {@code key}, oldest first
+     */
+    public static synchronized List<Version> versions(String key) {
+        ArrayDeque<Version> ring = versions.get(key);
+        return ring == null ? Collections.emptyList() : new ArrayList<>(ring);
+    }
+
+    public static synchronized Optional<byte[]> get(String key, int number) throws IOException {
+        ArrayDeque<Version> ring = versions.get(key);
+        if (ring == null || segment == null) {
+            return Optional.empty();
+        }
+        for (Version version : ring) {
+            if (version.number == number) {
+                return Optional.of(read(blobs.get(version.hash)));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Line diff of two versions, as {@code "- "} and {@code "+ "} prefixed lines with the line number
+     * in {@code from} or {@code to}. Unchanged lines are left out.
+     */
+    public static List<String> diff(List<String> from, List<String> to) {
+        int start = 0;
+        while (start < from.size() && start < to.size() && from.get(start).equals(to.get(start))) {
+            start++;
+        }
+        int endFrom = from.size(), endTo = to.size();
+        while (endFrom > start && endTo > start && from.get(endFrom - 1).equals(to.get(endTo - 1))) {
+            endFrom--;
+            endTo--;
+        }
+        int n = endFrom - start, m = endTo - start;
+        List<String> result = new ArrayList<>();
+        if ((long) n * m > 4_000_000) {
+            for (int i = 0; i < n; i++) result.add("- " + (start + i + 1) + ": " + from.get(start + i));
+            for (int j = 0; j < m; j++) result.add("+ " + (start + j + 1) + ": " + to.get(start + j));
+            return result;
+        }
+        // lcs[i][j]: longest common subsequence of from[start + i..] and to[start + j..]
+        int[][] lcs = new int[n + 1][m + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            for (int j = m - 1; j >= 0; j--) {
+                lcs[i][j] = from.get(start + i).equals(to.get(start + j)) ? lcs[i + 1][j + 1] + 1 : Math.max(lcs[i + 1][j], lcs[i][j + 1]);
+            }
+        }
+        int i = 0, j = 0;
+        while (i < n || j < m) {
+            if (i < n && j < m && from.get(start + i).equals(to.get(start + j))) {
+                i++;
+                j++;
+            } else if (i < n && (j == m || lcs[i + 1][j] >= lcs[i][j + 1])) {
+                result.add("- " + (start + i + 1) + ": " + from.get(start + i));
+                i++;
+            } else {
+                result.add("+ " + (start + j + 1) + ": " + to.get(start + j));
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drops every version and truncates the segment
+     */
+    public static synchronized void clear() throws IOException {
+        versions.clear();
+        blobs.clear();
+        deadBytes = 0;
+        if (segment != null) {
+            segment.truncate(0);
+            writeIndex();
+        }
+    }
+
+    private static void release(String hash) {
+        Blob blob = blobs.get(hash);
+        if (blob != null && --blob.refs == 0) {
+            deadBytes += blob.recordLength();
+        }
+    }
+
+    private static Blob append(String hash, byte[] content) throws IOException {
+        byte flags = 0;
+        byte[] data = content;
+        if (compress) {
+            byte[] deflated = deflate(content);
+            if (deflated.length < content.length) {
+                data = deflated;
+                flags = FLAG_DEFLATE;
+            }
+        }
+        long offset = segment.size();
+        ByteBuffer buffer = ByteBuffer.allocate(HASH_LENGTH + 1 + 4 + data.length);
+        buffer.put(unhex(hash)).put(flags).putInt(data.length).put(data).flip();
+        while (buffer.hasRemaining()) {
+            segment.write(buffer, offset + buffer.position());
+        }
+        segment.force(false);
+        return new Blob(offset, data.length, flags);
+    }
+
+    private static byte[] read(Blob blob) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(blob.length);
+        long position = blob.offset + HASH_LENGTH + 1 + 4;
+        while (buffer.hasRemaining()) {
+            if (segment.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        byte[] data = buffer.array();
+        return (blob.flags & FLAG_DEFLATE) != 0 ? inflate(data) : data;
+    }
+
+    /**
+     * Indexes every complete record, cutting off a torn one at the end
+     */
+    private static void scanSegment() throws IOException {
+        long size = segment.size();
+        long offset = 0;
+        ByteBuffer header = ByteBuffer.allocate(HASH_LENGTH + 1 + 4);
+        while (offset + header.capacity() <= size) {
+            header.clear();
+            while (header.hasRemaining()) {
+                segment.read(header, offset + header.position());
+            }
+            header.flip();
+            byte[] hash = new byte[HASH_LENGTH];
+            header.get(hash);
+            byte flags = header.get();
+            int length = header.getInt();
+            if (length < 0 || offset + header.capacity() + length > size) {
+                break;
+            }
+            Blob blob = new Blob(offset, length, flags);
+            blobs.put(hex(hash), blob);
+            deadBytes += blob.recordLength();
+            offset += blob.recordLength();
+        }
+        if (offset < size) {
+            RPGItems.logger.warning("Dropping " + (size - offset) + " bytes of incomplete backups");
+            segment.truncate(offset);
+        }
+    }
+
+    private static void readIndex() throws IOException {
+        File index = new File(dir, INDEX);
+        if (!index.exists()) {
+            return;
+        }
+        for (String line : Files.readAllLines(index.toPath(), StandardCharsets.UTF_8)) {
+            String[] parts = line.split("\t");
+            if (parts.length != 5) continue;
+            Blob blob = blobs.get(parts[3]);
+            if (blob == null) continue;
+            Version version = new Version(Integer.parseInt(parts[1]), Long.parseLong(parts[2]), parts[3], Integer.parseInt(parts[4]));
+            versions.computeIfAbsent(parts[0], (ignored) -> new ArrayDeque<>()).addLast(version);
+            if (blob.refs++ == 0) {
+                deadBytes -= blob.recordLength();
+            }
+        }
+        for (ArrayDeque<Version> ring : versions.values()) {
+            while (ring.size() > maxVersions) {
+                release(ring.removeFirst().hash);
+            }
+        }
+    }
+
+    private static void writeIndex() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, ArrayDeque<Version>> entry : versions.entrySet()) {
+            for (Version version : entry.getValue()) {
+                builder.append(entry.getKey()).append('\t')
+                       .append(version.number).append('\t')
+                       .append(version.time).append('\t')
+                       .append(version.hash).append('\t')
+                       .append(version.size).append('\n');
+            }
+        }
+        File tmp = new File(dir, INDEX + ".tmp");
+        Files.write(tmp.toPath(), builder.toString().getBytes(StandardCharsets.UTF_8));
+        move(tmp, new File(dir, INDEX));
+    }
+
+    /**
+     * Rewrites the segment with only the content some version still refers to
+     */
+    private static void compact() throws IOException {
+        File tmp = new File(dir, SEGMENT + ".tmp");
+        Map<String, Long> offsets = new HashMap<>();
+        try (FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = 0;
+            for (Map.Entry<String, Blob> entry : blobs.entrySet()) {
+                Blob blob = entry.getValue();
+                if (blob.refs == 0) continue;
+                long transferred = 0;
+                while (transferred < blob.recordLength()) {
+                    transferred += segment.transferTo(blob.offset + transferred, blob.recordLength() - transferred, out);
+                }
+                offsets.put(entry.getKey(), position);
+                position += blob.recordLength();
+            }
+            out.force(true);
+        }
+        segment.close();
+        move(tmp, new File(dir, SEGMENT));
+        segment = FileChannel.open(new File(dir, SEGMENT).toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        blobs.entrySet().removeIf(entry -> entry.getValue().refs == 0);
+        for (Map.Entry<String, Blob> entry : blobs.entrySet()) {
+            entry.getValue().offset = offsets.get(entry.getKey());
+        }
+        deadBytes = 0;
+    }
+
+    private static void move(File from, File to) throws IOException {
+        try {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static byte[] deflate(byte[] content) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2 + 16);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int read = inflater.inflate(buffer);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new EOFException("Truncated backup");
+                }
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted backup", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            return hex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+    private static byte[] unhex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+}
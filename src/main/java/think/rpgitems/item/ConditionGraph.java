@@ -0,0 +1,222 @@
+package think.rpgitems.item;
+
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import think.rpgitems.RPGItems;
+import think.rpgitems.power.ConditionResults;
+import think.rpgitems.power.Power;
+import think.rpgitems.power.PowerCompositeCondition;
+import think.rpgitems.power.PowerCondition;
+import think.rpgitems.power.PowerResult;
+
+import java.util.*;
+
+/**
+ * The conditions of an item, compiled into a graph whose nodes reference each other by index.
+ * <p>
+ * Powers and {@link PowerCompositeCondition}s are resolved to node indices when the item is rebuilt. An
+ * {@link Evaluation} lives for one dispatch: it evaluates a node the first time it is asked for and keeps the
+ * result in a flat array. Results of non-static conditions are dropped by {@link Evaluation#next()} before the
+ * next power is checked, as those may change while the powers of a dispatch run.
+ */
+final class ConditionGraph {
+    static final ConditionGraph EMPTY = new ConditionGraph(new PowerCondition[0], new int[0][], new int[0], Collections.emptyMap());
+
+    private static final int[] NONE = new int[0];
+
+    private final PowerCondition[] nodes;
+    /**
+     * Referenced nodes of composite conditions, null for the others
+     */
+    private final int[][] children;
+    private final int[] volatileNodes;
+    private final Map<String, int[]> byId;
+
+    private ConditionGraph(PowerCondition[] nodes, int[][] children, int[] volatileNodes, Map<String, int[]> byId) {
+        this.nodes = nodes;
+        this.children = children;
+        this.volatileNodes = volatileNodes;
+        this.byId = byId;
+    }
+
+    /**
+     * Static composites only see static conditions, as before they were all evaluated ahead of the powers.
+     * References that would close a cycle are dropped.
+     */
+    static ConditionGraph compile(List<PowerCondition> conditions, String itemName) {
+        if (conditions.isEmpty()) {
+            return EMPTY;
+        }
+        PowerCondition[] nodes = conditions.toArray(new PowerCondition[0]);
+        Map<String, List<Integer>> ids = new HashMap<>();
+        for (int i = 0; i < nodes.length; i++) {
+            ids.computeIfAbsent(nodes[i].id(), k -> new ArrayList<>()).add(i);
+        }
+        Map<String, int[]> byId = new HashMap<>();
+        ids.forEach((id, list) -> byId.put(id, list.stream().mapToInt(Integer::intValue).toArray()));
+
+        int[][] children = new int[nodes.length][];
+        List<Integer> volatileNodes = new ArrayList<>();
+        for (int i = 0; i < nodes.length; i++) {
+            PowerCondition node = nodes[i];
+            if (!node.isStatic()) {
+                volatileNodes.add(i);
+            }
+            if (node instanceof PowerCompositeCondition) {
+                int[] refs = resolve(byId, node.getConditions());
+                children[i] = node.isStatic() ? Arrays.stream(refs).filter(c -> nodes[c].isStatic()).toArray() : refs;
+            }
+        }
+        byte[] state = new byte[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            breakCycles(i, nodes, children, state, itemName);
+        }
+        return new ConditionGraph(nodes, children, volatileNodes.stream().mapToInt(Integer::intValue).toArray(), byId);
+    }
+
+    private static void breakCycles(int node, PowerCondition[] nodes, int[][] children, byte[] state, String itemName) {
+        if (state[node] != 0) {
+            return;
+        }
+        state[node] = 1;
+        int[] refs = children[node];
+        if (refs != null) {
+            int kept = 0;
+            for (int ref : refs) {
+                if (state[ref] == 1) {
+                    RPGItems.logger.warning("Condition " + nodes[node].id() + " on item " + itemName + " references " + nodes[ref].id() + " in a cycle, ignoring the reference");
+                    continue;
+                }
+                breakCycles(ref, nodes, children, state, itemName);
+                refs[kept++] = ref;
+            }
+            if (kept < refs.length) {
+                children[node] = Arrays.copyOf(refs, kept);
+            }
+        }
+        state[node] = 2;
+    }
+
+    private static int[] resolve(Map<String, int[]> byId, Set<String> ids) {
+        if (ids.isEmpty()) {
+            return NONE;
+        }
+        return ids.stream()
+                  .map(byId::get)
+                  .filter(Objects::nonNull)
+                  .flatMapToInt(Arrays::stream)
+                  .sorted()
+                  .toArray();
+    }
+
+    /**
+     * @return the nodes of the conditions with these ids, in the order of the item's powers
+     */
+    int[] resolve(Set<String> ids) {
+        return resolve(byId, ids);
+    }
+
+    /**
+     * @param context results of the powers that ran so far in this dispatch, passed on to the conditions
+     */
+    Evaluation begin(Player player, ItemStack stack, Map<Power, PowerResult> context) {
+        return new Evaluation(player, stack, context);
+    }
+
+    final class Evaluation implements ConditionResults {
+        private final Player player;
+        private final ItemStack stack;
+        private final Map<Power, PowerResult> context;
+        private final PowerResult[] results = new PowerResult[nodes.length];
+        private int[] current = NONE;
+
+        private Evaluation(Player player, ItemStack stack, Map<Power, PowerResult> context) {
+            this.player = player;
+            this.stack = stack;
+            this.context = context;
+        }
+
+        /**
+         * @return null if all conditions pass, otherwise {@link PowerResult#abort()} if a critical one fails
+         * and {@link PowerResult#condition()} if not
+         */
+        <T> PowerResult<T> check(int[] conditions) {
+            boolean failed = false;
+            for (int node : conditions) {
+                if (!evaluate(node).isOK()) {
+                    if (nodes[node].isCritical()) {
+                        return PowerResult.abort();
+                    }
+                    failed = true;
+                }
+            }
+            return failed ? PowerResult.condition() : null;
+        }
+
+        /**
+         * Drops the results of non-static conditions
+         */
+        void next() {
+            for (int node : volatileNodes) {
+                results[node] = null;
+            }
+        }
+
+        /**
+         * @return results of the static conditions evaluated in this dispatch, followed by {@code powerResults}
+         */
+        Map<Power, PowerResult> withStaticResults(Map<Power, PowerResult> powerResults) {
+            Map<Power, PowerResult> all = null;
+            for (int i = 0; i < nodes.length; i++) {
+                if (results[i] != null && nodes[i].isStatic()) {
+                    if (all == null) {
+                        all = new LinkedHashMap<>();
+                    }
+                    all.put(nodes[i], results[i]);
+                }
+            }
+            if (all == null) {
+                return powerResults;
+            }
+            all.putAll(powerResults);
+            return all;
+        }
+
+        @Override
+        public int size() {
+            return current.length;
+        }
+
+        @Override
+        public PowerCondition condition(int index) {
+            return nodes[current[index]];
+        }
+
+        @Override
+        public PowerResult result(int index) {
+            return evaluate(current[index]);
+        }
+
+        @SuppressWarnings("unchecked")
+        private PowerResult evaluate(int node) {
+            PowerResult result = results[node];
+            if (result != null) {
+                return result;
+            }
+            PowerCondition condition = nodes[node];
+            if (children[node] != null) {
+                int[] outer = current;
+                current = children[node];
+                try {
+                    result = ((PowerCompositeCondition) condition).combine(this);
+                } finally {
+                    current = outer;
+                }
+            } else {
+                result = condition.check(player, stack, context);
+            }
+            results[node] = result;
+            return result;
+        }
+    }
+}
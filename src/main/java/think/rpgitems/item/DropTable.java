@@ -0,0 +1,101 @@
+package think.rpgitems.item;
+
+import org.bukkit.entity.EntityType;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The items an entity type may drop, compiled from the drop chances of all loaded items.
+ * <p>
+ * Tables are built on the first death after {@link #invalidateAll()}. Each keeps the chances in a primitive
+ * array and a template stack per item, which drops are cloned from until the item starts a new revision.
+ */
+public final class DropTable {
+    private static final DropTable EMPTY = new DropTable(new RPGItem[0], new double[0]);
+
+    private static EnumMap<EntityType, DropTable> tables;
+
+    private final RPGItem[] items;
+    private final double[] chances;
+    private final ItemStack[] templates;
+    private final long[] revisions;
+
+    private DropTable(RPGItem[] items, double[] chances) {
+        this.items = items;
+        this.chances = chances;
+        this.templates = new ItemStack[items.length];
+        this.revisions = new long[items.length];
+    }
+
+    /**
+     * Drops the tables, to be compiled again from the items loaded by then
+     */
+    public static void invalidateAll() {
+        tables = null;
+    }
+
+    public static DropTable of(EntityType type) {
+        if (tables == null) {
+            tables = compile();
+        }
+        return tables.getOrDefault(type, EMPTY);
+    }
+
+    private static EnumMap<EntityType, DropTable> compile() {
+        Map<EntityType, List<RPGItem>> items = new EnumMap<>(EntityType.class);
+        Map<EntityType, List<Double>> chances = new EnumMap<>(EntityType.class);
+        for (RPGItem item : ItemManager.items()) {
+            for (Map.Entry<String, Double> entry : item.getDropChances().entrySet()) {
+                EntityType type;
+                try {
+                    type = EntityType.valueOf(entry.getKey());
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+                double chance = entry.getValue() == null ? 0 : entry.getValue();
+                if (chance <= 0) {
+                    continue;
+                }
+                items.computeIfAbsent(type, k -> new ArrayList<>()).add(item);
+                chances.computeIfAbsent(type, k -> new ArrayList<>()).add(Math.min(chance, 100.0) / 100d);
+            }
+        }
+        EnumMap<EntityType, DropTable> compiled = new EnumMap<>(EntityType.class);
+        items.forEach((type, list) -> compiled.put(type, new DropTable(
+                list.toArray(new RPGItem[0]),
+                chances.get(type).stream().mapToDouble(Double::doubleValue).toArray()
+        )));
+        return compiled;
+    }
+
+    public boolean isEmpty() {
+        return items.length == 0;
+    }
+
+    /**
+     * @param multiplier scales every chance, 1 for the configured ones
+     * @param drops      receives the items that dropped
+     */
+    public void roll(double multiplier, Collection<ItemStack> drops) {
+        if (items.length == 0) {
+            return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < items.length; i++) {
+            if (random.nextDouble() < chances[i] * multiplier) {
+                drops.add(stack(i));
+            }
+        }
+    }
+
+    private ItemStack stack(int i) {
+        RPGItem item = items[i];
+        if (templates[i] == null || revisions[i] != item.getRevision()) {
+            templates[i] = item.toItemStack();
+            revisions[i] = item.getRevision();
+        }
+        return item.copyOf(templates[i]);
+    }
+}
@@ -0,0 +1,91 @@
+package think.rpgitems.item;
+
+import org.bukkit.Bukkit;
+import org.bukkit.inventory.ItemStack;
+import think.rpgitems.RPGItems;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static think.rpgitems.utils.ItemTagUtils.peekHandle;
+
+/**
+ * Coalesces durability writes per item stack, flushing them on the next tick.
+ * <p>
+ * Writes are keyed by the server's stack behind a CraftItemStack, as every inventory read returns a new mirror
+ * of it. Other stacks are detached copies that may be stored anywhere before the flush, so they are written at once.
+ * Writes that use the item up are never deferred, and {@link ItemManager#flushDurability()} is called before
+ * events that move stacks, so a split or dropped stack keeps the durability it was used to.
+ */
+final class DurabilityWriteBack {
+    private static final Map<Object, Pending> pending = new IdentityHashMap<>();
+    private static boolean scheduled = false;
+
+    private DurabilityWriteBack() {
+        throw new IllegalStateException();
+    }
+
+    static Integer pending(ItemStack stack) {
+        if (pending.isEmpty()) {
+            return null;
+        }
+        Object handle = peekHandle(stack);
+        Pending p = handle == null ? null : pending.get(handle);
+        return p == null ? null : p.durability;
+    }
+
+    /**
+     * @return false if the write cannot be deferred and has to be applied now
+     */
+    static boolean defer(RPGItem item, ItemStack stack, int original, int durability) {
+        Object handle = peekHandle(stack);
+        if (handle == null) {
+            return false;
+        }
+        if (durability <= 0) {
+            // breaks the item, which must not wait a tick
+            pending.remove(handle);
+            return false;
+        }
+        Pending p = pending.get(handle);
+        if (p == null) {
+            pending.put(handle, new Pending(item, stack, original, durability));
+        } else {
+            p.durability = durability;
+        }
+        if (!scheduled) {
+            scheduled = true;
+            Bukkit.getScheduler().runTask(RPGItems.plugin, DurabilityWriteBack::flush);
+        }
+        return true;
+    }
+
+    static void flush() {
+        scheduled = false;
+        if (pending.isEmpty()) {
+            return;
+        }
+        Pending[] values = pending.values().toArray(new Pending[0]);
+        pending.clear();
+        for (Pending p : values) {
+            p.item.applyDurability(p.stack, p.original, p.durability);
+        }
+    }
+
+    private static final class Pending {
+        final RPGItem item;
+        /**
+         * Any mirror of the stack, they all write through to it
+         */
+        final ItemStack stack;
+        final int original;
+        int durability;
+
+        Pending(RPGItem item, ItemStack stack, int original, int durability) {
+            this.item = item;
+            this.stack = stack;
+            this.original = original;
+            this.durability = durability;
+        }
+    }
+}
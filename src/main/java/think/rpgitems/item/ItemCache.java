@@ -0,0 +1,407 @@
+package think.rpgitems.item;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import think.rpgitems.RPGItems;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Compiled images of item files, so a full load can skip SnakeYAML.
+ * <p>
+ * An image is the parsed configuration tree in a compact binary form. It is used when the file's mtime,
+ * size and SHA-256 all match what was recorded, otherwise the file is parsed as YAML. Powers are still
+ * resolved from the tree as usual, so new or removed extensions never see a stale image.
+ * The cache is rewritten in the background after each full load.
+ */
+final class ItemCache {
+    private static final int MAGIC = 0x52504943;
+    private static final int FORMAT = 1;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte FLOAT = 5;
+    private static final byte BOOLEAN = 6;
+    private static final byte BIG_INTEGER = 7;
+    private static final byte LIST = 8;
+    private static final byte SECTION = 9;
+    private static final byte MAP = 10;
+    private static final byte SERIALIZABLE = 11;
+
+    private static volatile Map<String, Entry> cached = Collections.emptyMap();
+    private static volatile Map<String, Entry> fresh;
+    private static final AtomicInteger hits = new AtomicInteger();
+    private static final AtomicInteger misses = new AtomicInteger();
+    private static File cacheFile;
+
+    private ItemCache() {
+        throw new IllegalStateException();
+    }
+
+    private static final class Entry {
+        private final long mtime;
+        private final long size;
+        private final byte[] hash;
+        private final byte[] image;
+
+        Entry(long mtime, long size, byte[] hash, byte[] image) {
+            this.mtime = mtime;
+            this.size = size;
+            this.hash = hash;
+            this.image = image;
+        }
+    }
+
+    /**
+     * Reads the cache before a full load. Files parsed until {@link #commit} are recorded for the next one.
+     */
+    static void begin(File cacheFile) {
+        ItemCache.cacheFile = cacheFile;
+        hits.set(0);
+        misses.set(0);
+        fresh = new ConcurrentHashMap<>();
+        cached = Collections.emptyMap();
+        if (!cacheFile.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT || in.readInt() != RPGItems.getVersion() || in.readInt() != RPGItems.getSerial()) {
+                return;
+            }
+            int count = in.readInt();
+            Map<String, Entry> entries = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                long mtime = in.readLong();
+                long size = in.readLong();
+                byte[] hash = new byte[32];
+                in.readFully(hash);
+                byte[] image = new byte[in.readInt()];
+                in.readFully(image);
+                entries.put(path, new Entry(mtime, size, hash, image));
+            }
+            cached = entries;
+        } catch (IOException e) {
+            RPGItems.logger.log(Level.WARNING, "Ignoring unreadable item cache " + cacheFile, e);
+        }
+    }
+
+    /**
+     * Parses an item file, from its compiled image when it is still valid. Safe to call on loader threads.
+     */
+    static YamlConfiguration read(File file) throws IOException, InvalidConfigurationException {
+        Map<String, Entry> fresh = ItemCache.fresh;
+        if (fresh == null) {
+            YamlConfiguration config = new YamlConfiguration();
+            config.load(file);
+            return config;
+        }
+        String path = file.getAbsolutePath();
+        long mtime = file.lastModified();
+        byte[] content = Files.readAllBytes(file.toPath());
+        byte[] hash = sha256(content);
+        Entry entry = cached.get(path);
+        if (entry != null && entry.mtime == mtime && entry.size == content.length && Arrays.equals(entry.hash, hash)) {
+            try {
+                YamlConfiguration config = decode(entry.image);
+                hits.incrementAndGet();
+                fresh.put(path, entry);
+                return config;
+            } catch (Exception e) {
+                RPGItems.logger.log(Level.WARNING, "Ignoring broken cached image of " + file, e);
+            }
+        }
+        misses.incrementAndGet();
+        YamlConfiguration config = new YamlConfiguration();
+        config.loadFromString(new String(content, StandardCharsets.UTF_8));
+        try {
+            fresh.put(path, new Entry(mtime, content.length, hash, encode(config)));
+        } catch (Exception e) {
+            RPGItems.logger.log(Level.FINE, "Not caching " + file, e);
+        }
+        return config;
+    }
+
+    /**
+     * Ends a full load and writes the images recorded since {@link #begin} on a background thread
+     */
+    static void commit() {
+        Map<String, Entry> entries = fresh;
+        if (entries == null) return;
+        int previous = cached.size();
+        fresh = null;
+        cached = Collections.emptyMap();
+        RPGItems.logger.info(String.format("Item cache: %d hits, %d misses", hits.get(), misses.get()));
+        if (misses.get() == 0 && entries.size() == previous) {
+            return;
+        }
+        File target = cacheFile;
+        Thread writer = new Thread(() -> write(target, entries), "RPGItems-ItemCache");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private static void write(File target, Map<String, Entry> entries) {
+        File tmp = new File(target.getParentFile(), target.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeInt(RPGItems.getVersion());
+            out.writeInt(RPGItems.getSerial());
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                out.writeUTF(e.getKey());
+                out.writeLong(entry.mtime);
+                out.writeLong(entry.size);
+                out.write(entry.hash);
+                out.writeInt(entry.image.length);
+                out.write(entry.image);
+            }
+        } catch (IOException e) {
+            RPGItems.logger.log(Level.WARNING, "Error writing item cache", e);
+            return;
+        }
+        try {
+            try {
+                Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            RPGItems.logger.log(Level.WARNING, "Error writing item cache", e);
+        }
+    }
+
+    static byte[] encode(ConfigurationSection section) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeValue(out, section);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static YamlConfiguration decode(byte[] image) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(image));
+        if (in.readByte() != SECTION) {
+            throw new IOException("Image is not a section");
+        }
+        YamlConfiguration config = new YamlConfiguration();
+        readSection(in, config);
+        return config;
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof BigInteger) {
+            out.writeByte(BIG_INTEGER);
+            writeString(out, value.toString());
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            out.writeByte(LIST);
+            out.writeInt(list.size());
+            for (Object element : list) {
+                writeValue(out, element);
+            }
+        } else if (value instanceof ConfigurationSection) {
+            Map<String, Object> values = ((ConfigurationSection) value).getValues(false);
+            out.writeByte(SECTION);
+            writeEntries(out, values);
+        } else if (value instanceof Map) {
+            out.writeByte(MAP);
+            writeEntries(out, (Map<?, ?>) value);
+        } else if (value instanceof ConfigurationSerializable) {
+            out.writeByte(SERIALIZABLE);
+            writeString(out, ConfigurationSerialization.getAlias(((ConfigurationSerializable) value).getClass()));
+            writeEntries(out, ((ConfigurationSerializable) value).serialize());
+        } else {
+            throw new IOException("Unsupported value " + value.getClass());
+        }
+    }
+
+    private static void writeEntries(DataOutputStream out, Map<?, ?> values) throws IOException {
+        out.writeInt(values.size());
+        for (Map.Entry<?, ?> entry : values.entrySet()) {
+            if (!(entry.getKey() instanceof String)) {
+                throw new IOException("Unsupported key " + entry.getKey());
+            }
+            writeString(out, (String) entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case INT:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case FLOAT:
+                return in.readFloat();
+            case BOOLEAN:
+                return in.readBoolean();
+            case BIG_INTEGER:
+                return new BigInteger(readString(in));
+            case LIST: {
+                int size = in.readInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            case MAP:
+                return readMap(in);
+            case SERIALIZABLE: {
+                String alias = readString(in);
+                Map<String, Object> map = readMap(in);
+                map.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, alias);
+                ConfigurationSerializable object = ConfigurationSerialization.deserializeObject(map);
+                if (object == null) {
+                    throw new IOException("Cannot deserialize " + alias);
+                }
+                return object;
+            }
+            default:
+                // sections are only valid as values of a section
+                throw new IOException("Unexpected type " + type);
+        }
+    }
+
+    private static Map<String, Object> readMap(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        Map<String, Object> map = new LinkedHashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            map.put(key, readValue(in));
+        }
+        return map;
+    }
+
+    private static void readSection(DataInputStream in, ConfigurationSection section) throws IOException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            in.mark(1);
+            if (in.readByte() == SECTION) {
+                readSection(in, section.createSection(key));
+            } else {
+                in.reset();
+                section.set(key, readValue(in));
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Times YAML parsing against image decoding over {@code count} item files generated from the loaded items
+     */
+    static String benchmark(Collection<RPGItem> templates, int count) throws Exception {
+        if (templates.isEmpty()) {
+            throw new IllegalStateException("No item to generate the corpus from");
+        }
+        List<String> corpus = new ArrayList<>(count);
+        Iterator<RPGItem> iterator = templates.iterator();
+        for (int i = 0; i < count; i++) {
+            if (!iterator.hasNext()) {
+                iterator = templates.iterator();
+            }
+            YamlConfiguration config = new YamlConfiguration();
+            iterator.next().save(config);
+            config.set("name", "benchmark_" + i);
+            config.set("uid", -1 - i);
+            corpus.add(config.saveToString());
+        }
+        long yamlBytes = 0;
+        long start = System.nanoTime();
+        List<YamlConfiguration> parsed = new ArrayList<>(count);
+        for (String yaml : corpus) {
+            YamlConfiguration config = new YamlConfiguration();
+            config.loadFromString(yaml);
+            parsed.add(config);
+            yamlBytes += yaml.length();
+        }
+        long yamlTime = System.nanoTime() - start;
+        long imageBytes = 0;
+        start = System.nanoTime();
+        List<byte[]> images = new ArrayList<>(count);
+        for (YamlConfiguration config : parsed) {
+            byte[] image = encode(config);
+            images.add(image);
+            imageBytes += image.length;
+        }
+        long encodeTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (byte[] image : images) {
+            decode(image);
+        }
+        long decodeTime = System.nanoTime() - start;
+        return String.format("%d items: yaml %dms (%d KiB), image encode %dms, decode %dms (%d KiB), %.1fx faster",
+                count, TimeUnit.NANOSECONDS.toMillis(yamlTime), yamlBytes / 1024,
+                TimeUnit.NANOSECONDS.toMillis(encodeTime), TimeUnit.NANOSECONDS.toMillis(decodeTime), imageBytes / 1024,
+                yamlTime / (double) Math.max(1, decodeTime));
+    }
+}
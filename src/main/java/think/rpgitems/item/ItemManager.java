@@ -21,6 +21,8 @@ import org.bukkit.util.FileUtil;
 import think.rpgitems.AdminHandler;
 import think.rpgitems.I18n;
 import think.rpgitems.RPGItems;
+import think.rpgitems.data.PlayerEquipment;
+import think.rpgitems.power.Power;
 import think.rpgitems.power.UnknownExtensionException;
 import think.rpgitems.power.UnknownPowerException;
 import think.rpgitems.support.WGSupport;
@@ -34,7 +36,7 @@ import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.*;
 import java.util.logging.Level;
 
 import static think.rpgitems.item.RPGItem.*;
@@ -110,14 +112,28 @@ public class ItemManager {
         load(pl);
     }
 
+    /**
+     * Applies the durability writes deferred so far
+     */
+    public static void flushDurability() {
+        DurabilityWriteBack.flush();
+    }
+
     public static void unload() {
+        DurabilityWriteBack.flush();
+        ItemWriter.flush();
         itemByName.values().forEach(RPGItem::deinit);
         itemById = new HashMap<>();
         itemByName = new HashMap<>();
+        PlayerEquipment.instance().invalidateAll();
+        WGSupport.invalidatePolicies();
+        DropTable.invalidateAll();
         resetLock();
     }
 
     public static void refreshItem() {
+        itemByName.values().forEach(RPGItem::invalidateRender);
+        PlayerEquipment.instance().invalidateAll();
         for (Player player : Bukkit.getOnlinePlayers()) {
             for (ItemStack item : player.getInventory()) {
                 Optional<RPGItem> rpgItem = ItemManager.toRPGItem(item);
@@ -157,6 +173,8 @@ public class ItemManager {
         if (!dirItems.exists() || !dirItems.isDirectory()) {
             setItemsDir(mkdir());
             setBackupsDir(mkbkdir());
+            BackupStore.open(getBackupsDir(), plugin.cfg.itemBackupVersions, plugin.cfg.itemBackupCompress);
+            ItemWriter.open(new File(plugin.getDataFolder(), "items.journal"), getBackupsDir());
             File f = new File(plugin.getDataFolder(), "items.yml");
             if (!f.exists()) {
                 return;
@@ -175,60 +193,99 @@ public class ItemManager {
         }
         setItemsDir(mkdir());
         setBackupsDir(mkbkdir());
-        load(getItemsDir(), plugin.cfg.itemShowLoaded ? Bukkit.getConsoleSender() : null);
+        BackupStore.open(getBackupsDir(), plugin.cfg.itemBackupVersions, plugin.cfg.itemBackupCompress);
+        ItemWriter.open(new File(plugin.getDataFolder(), "items.journal"), getBackupsDir());
+        if (plugin.cfg.itemCompiledCache) {
+            ItemCache.begin(new File(plugin.getDataFolder(), "items.cache"));
+        }
+        try {
+            load(getItemsDir(), plugin.cfg.itemShowLoaded ? Bukkit.getConsoleSender() : null);
+        } finally {
+            ItemCache.commit();
+        }
         groupById.values().forEach(ItemGroup::refresh);
     }
 
     public static boolean load(File file, CommandSender sender) {
+        LoadTimings timings = new LoadTimings();
+        long start = System.nanoTime();
+        List<File> files = new ArrayList<>();
+        discover(file, sender, files);
+        timings.discover = System.nanoTime() - start;
+        if (files.isEmpty()) {
+            return false;
+        }
+
+        List<PendingLoad> pending = new ArrayList<>(files.size());
+        for (File f : files) {
+            PendingLoad load = new PendingLoad(f);
+            try {
+                load.file = prepare(f);
+            } catch (Exception e) {
+                load.error = e;
+            }
+            pending.add(load);
+        }
+
+        int threads = files.size() == 1 ? 0 : loadThreads(files.size());
+        ExecutorService executor = threads == 0 ? null : Executors.newFixedThreadPool(threads, new LoaderThreadFactory());
         try {
-            if (!file.exists()) {
-                plugin.getLogger().severe("Trying to load " + file + " that does not exist.");
-                throw new IllegalStateException("Trying to load " + file + " that does not exist.");
-            }
-            if (file.isDirectory()) {
-                File[] subFiles = file.listFiles((d, n) -> (d.isFile() && n.endsWith("yml")) || d.isDirectory());
-                if (Objects.requireNonNull(subFiles).length == 0) {
-                    if (sender != null) {
-                        new Message(I18n.format("message.item.empty_dir", file.getPath())).send(sender);
-                    } else {
-                        new Message(I18n.format("message.item.empty_dir", file.getPath())).send(Bukkit.getConsoleSender());
-                    }
-                    return false;
-                }
-                for (File subFile : subFiles) {
-                    load(subFile, sender);
-                }
-                return false;
+            for (PendingLoad load : pending) {
+                if (load.error != null) continue;
+                load.parsed = executor == null ? CompletableFuture.completedFuture(parse(load.file))
+                                      : CompletableFuture.supplyAsync(() -> parse(load.file), executor);
             }
-            RPGItem item = load(file);
-            if (sender != null) {
-                new Message("")
-                        .append(I18n.format("message.item.load", item.getName()), Collections.singletonMap("{item}", item.getComponent()))
-                        .send(sender);
+            boolean loaded = false;
+            for (PendingLoad load : pending) {
+                loaded = finish(load, sender, timings);
             }
-            return true;
-        } catch (Exception e) {
-            if (e instanceof UnknownExtensionException || e instanceof UnknownPowerException) {
-                plugin.getLogger().log(Level.WARNING, "Missing dependency when loading " + file + ". ", e);
-            } else {
-                plugin.getLogger().log(Level.SEVERE, "Error loading " + file + ".", e);
+            timings.total = System.nanoTime() - start;
+            if (files.size() > 1) {
+                plugin.getLogger().info(timings.report(threads));
+            }
+            return !file.isDirectory() && loaded;
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
             }
+        }
+    }
 
-            Message message = new Message(I18n.format("message.error.loading", file.getPath(), e.getLocalizedMessage()));
+    private static void discover(File file, CommandSender sender, List<File> files) {
+        if (!file.isDirectory()) {
+            files.add(file);
+            return;
+        }
+        File[] subFiles = file.listFiles();
+        if (Objects.requireNonNull(subFiles).length == 0) {
             if (sender != null) {
-                message.send(sender);
+                new Message(I18n.format("message.item.empty_dir", file.getPath())).send(sender);
             } else {
-                message.send(Bukkit.getConsoleSender());
+                new Message(I18n.format("message.item.empty_dir", file.getPath())).send(Bukkit.getConsoleSender());
             }
+            return;
+        }
+        for (File subFile : subFiles) {
+            discover(subFile, sender, files);
+        }
+    }
 
-            if (sender == null || sender instanceof ConsoleCommandSender) {
-                Bukkit.getOperators().forEach(message::send);
-            }
+    private static int loadThreads(int files) {
+        int threads = plugin.cfg.itemLoadThreads;
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors() - 1;
         }
-        return false;
+        return Math.max(1, Math.min(threads, files));
     }
 
-    private static RPGItem load(File file) throws Exception {
+    /**
+     * Checks and relocates an item file before it is parsed. Runs on the main thread.
+     */
+    private static File prepare(File file) throws Exception {
+        if (!file.exists()) {
+            plugin.getLogger().severe("Trying to load " + file + " that does not exist.");
+            throw new IllegalStateException("Trying to load " + file + " that does not exist.");
+        }
         String canonicalPath = file.getCanonicalPath();
         if (itemFileLocks.containsKey(canonicalPath) && itemFileLocks.get(canonicalPath).isValid()) {
             plugin.getLogger().severe("Trying to load " + file + " that already loaded.");
@@ -243,19 +300,152 @@ public class ItemManager {
             Files.copy(file.toPath(), newFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
             file = newFile;
         }
-        YamlConfiguration itemStorage = new YamlConfiguration();
-        itemStorage.load(file);
-        if (file.getName().endsWith("-group.yml")) {
-            ItemGroup group = new ItemGroup(itemStorage, file);
+        return file;
+    }
+
+    /**
+     * Reads, parses and validates an item file and instantiates its powers. Runs on a loader thread,
+     * so it must not touch the registries or any other server state.
+     */
+    private static ParsedFile parse(File file) {
+        long start = System.nanoTime();
+        ParsedFile parsed = new ParsedFile();
+        try {
+            YamlConfiguration itemStorage = ItemCache.read(file);
+            parsed.config = itemStorage;
+            parsed.group = file.getName().endsWith("-group.yml");
+            if (!parsed.group) {
+                parsed.powers = RPGItem.preparePowers(itemStorage);
+            }
+        } catch (Exception e) {
+            parsed.error = e;
+        }
+        parsed.time = System.nanoTime() - start;
+        return parsed;
+    }
+
+    private static boolean finish(PendingLoad load, CommandSender sender, LoadTimings timings) {
+        try {
+            if (load.error != null) {
+                throw load.error;
+            }
+            long waitStart = System.nanoTime();
+            ParsedFile parsed;
+            try {
+                parsed = load.parsed.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+            timings.wait += System.nanoTime() - waitStart;
+            timings.parse += parsed.time;
+            if (parsed.error != null) {
+                throw parsed.error;
+            }
+            RPGItem item = load(load.file, parsed, timings);
+            if (sender != null && item != null) {
+                new Message("")
+                        .append(I18n.format("message.item.load", item.getName()), Collections.singletonMap("{item}", item.getComponent()))
+                        .send(sender);
+            }
+            return true;
+        } catch (Exception e) {
+            timings.failed++;
+            if (e instanceof UnknownExtensionException || e instanceof UnknownPowerException) {
+                plugin.getLogger().log(Level.WARNING, "Missing dependency when loading " + load.source + ". ", e);
+            } else {
+                plugin.getLogger().log(Level.SEVERE, "Error loading " + load.source + ".", e);
+            }
+
+            Message message = new Message(I18n.format("message.error.loading", load.source.getPath(), e.getLocalizedMessage()));
+            if (sender != null) {
+                message.send(sender);
+            } else {
+                message.send(Bukkit.getConsoleSender());
+            }
+
+            if (sender == null || sender instanceof ConsoleCommandSender) {
+                Bukkit.getOperators().forEach(message::send);
+            }
+        }
+        return false;
+    }
+
+    private static RPGItem load(File file, ParsedFile parsed, LoadTimings timings) throws Exception {
+        long buildStart = System.nanoTime();
+        if (parsed.group) {
+            ItemGroup group = new ItemGroup(parsed.config, file);
+            long registerStart = System.nanoTime();
+            timings.build += registerStart - buildStart;
             addGroup(group);
+            timings.register += System.nanoTime() - registerStart;
+            timings.groups++;
             return null;
         }
-        RPGItem item = new RPGItem(itemStorage, file);
+        RPGItem item = new RPGItem(parsed.config, file, parsed.powers);
+        long registerStart = System.nanoTime();
+        timings.build += registerStart - buildStart;
         addItem(item);
         lock(file);
+        timings.register += System.nanoTime() - registerStart;
+        timings.items++;
         return item;
     }
 
+    private static final class PendingLoad {
+        private final File source;
+        private File file;
+        private Exception error;
+        private CompletableFuture<ParsedFile> parsed;
+
+        PendingLoad(File source) {
+            this.source = source;
+        }
+    }
+
+    private static final class ParsedFile {
+        private YamlConfiguration config;
+        private boolean group;
+        private Map<String, Power> powers;
+        private Exception error;
+        private long time;
+    }
+
+    private static final class LoaderThreadFactory implements ThreadFactory {
+        private int count = 0;
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "RPGItems-ItemLoader-" + count++);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Wall time of each loading phase. Parsing runs on the loader threads, {@code wait} is the part of it
+     * the main thread actually blocked on.
+     */
+    private static final class LoadTimings {
+        private long discover;
+        private long parse;
+        private long wait;
+        private long build;
+        private long register;
+        private long total;
+        private int items;
+        private int groups;
+        private int failed;
+
+        String report(int threads) {
+            return String.format("Loaded %d items and %d groups (%d failed) in %dms: discover %dms, parse %dms on %d threads (waited %dms), build %dms, register %dms",
+                    items, groups, failed, millis(total), millis(discover), millis(parse), threads, millis(wait), millis(build), millis(register));
+        }
+
+        private static long millis(long nanos) {
+            return TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+    }
+
     @SuppressWarnings("deprecation")
     public static void addItem(RPGItem item) {
         try {
@@ -271,6 +461,9 @@ public class ItemManager {
                 throw new IllegalArgumentException("Duplicated item name:" + item.getName());
             }
             item.resetRecipe(true);
+                PlayerEquipment.instance().invalidateAll();
+            WGSupport.invalidatePolicies();
+            DropTable.invalidateAll();
         } catch (Exception e) {
             itemById.remove(item.getId(), item);
             itemById.remove(item.getUid(), item);
@@ -287,6 +480,7 @@ public class ItemManager {
             if (itemByName.containsKey(group.getName()) || groupByName.putIfAbsent(group.getName(), group) != null) {
                 throw new IllegalArgumentException("Duplicated group name:" + group.getName());
             }
+            WGSupport.invalidatePolicies();
         } catch (Exception e) {
             groupById.remove(group.getUid(), group);
             groupByName.remove(group.getName(), group);
@@ -388,56 +582,108 @@ public class ItemManager {
         return backup;
     }
 
+    /**
+     * Serialises the item and queues it for {@link ItemWriter}. Errors while writing are reported to the
+     * console and operators once the write finished.
+     */
     public static void save(RPGItem item) {
-        String itemName = item.getName();
         File itemFile = item.getFile() == null ? createFile(getItemsDir(), item.getName(), "-item", true) : item.getFile();
-        boolean exist = itemFile.exists();
-        String cfgStr = "";
-        File backup = null;
         item.setPluginVersion(RPGItems.getVersion());
         item.setPluginSerial(RPGItems.getSerial());
+        item.invalidateRender();
+        DropTable.invalidateAll();
+        YamlConfiguration configuration = new YamlConfiguration();
+        item.save(configuration);
+        String cfgStr = configuration.saveToString();
         try {
-            YamlConfiguration configuration = new YamlConfiguration();
-            item.save(configuration);
-            cfgStr = configuration.saveToString();
-            if (exist) {
-                backup = unlockAndBackup(item, false);
+            releaseLock(itemFile);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Error unlocking " + itemFile + ".", e);
+        }
+        item.setFile(itemFile);
+        ItemWriter.submit(item.getName(), itemFile, cfgStr);
+    }
+
+    /**
+     * @see ItemCache#benchmark(Collection, int)
+     */
+    public static String benchmarkCache(int count) throws Exception {
+        return ItemCache.benchmark(itemByName.values(), count);
+    }
+
+    /**
+     * @return key of the item's versions in the {@link BackupStore}, or null if it was never saved
+     */
+    public static String backupKey(RPGItem item) {
+        return item.getFile() == null ? null : ItemWriter.backupKey(item.getFile());
+    }
+
+    /**
+     * Replaces the item file with {@code content} and reloads the item. The write goes through the
+     * {@link ItemWriter}, so the current content is stored as a new version first and a restore can be undone;
+     * if the new content fails to load it is put back.
+     */
+    public static boolean restore(RPGItem item, byte[] content, CommandSender sender) throws IOException {
+        ItemWriter.flush();
+        File itemFile = item.getFile();
+        String name = item.getName();
+        byte[] current = itemFile.exists() ? Files.readAllBytes(itemFile.toPath()) : null;
+        remove(item, false);
+        unlock(itemFile, true);
+        try {
+            ItemWriter.writeNow(name, itemFile, new String(content, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Error restoring " + name + ".", e);
+            if (current != null) {
+                load(itemFile, sender);
             }
-            configuration.save(itemFile);
+            return false;
+        }
+        if (load(itemFile, sender)) {
+            return true;
+        }
+        if (current != null) {
+            ItemWriter.writeNow(name, itemFile, new String(current, StandardCharsets.UTF_8));
+            load(itemFile, sender);
+        }
+        return false;
+    }
 
+    /**
+     * Called on the main thread for each finished write
+     */
+    static void written(String itemName, File itemFile, String backup, String cfgStr, Exception error, boolean recovered) {
+        RPGItem item = itemByName.get(itemName);
+        if (item != null && itemFile.equals(item.getFile()) && !ItemWriter.isPending(itemFile)) {
             try {
-                String canonicalPath = itemFile.getCanonicalPath();
-                YamlConfiguration test = new YamlConfiguration();
-                test.load(canonicalPath);
-                RPGItem testItem = new RPGItem(test, null);
-                testItem.deinit();
-                if (backup != null && backup.exists()) {
-                    backup.deleteOnExit();
+                FileLock oldLock = itemFileLocks.get(itemFile.getCanonicalPath());
+                if (oldLock == null || !oldLock.isValid()) {
+                    lock(itemFile);
                 }
-                item.setFile(itemFile);
-                lock(itemFile);
             } catch (Exception e) {
-                plugin.getLogger().log(Level.SEVERE, "Error verifying integrity for " + itemName + ".", e);
-                throw new AdminHandler.CommandException("message.error.verifying", e, itemName, e.getLocalizedMessage());
+                plugin.getLogger().log(Level.WARNING, "Error locking " + itemFile + ".", e);
             }
-        } catch (Exception e) {
-            plugin.getLogger().log(Level.SEVERE, "Error saving " + itemName + ".", e);
-            plugin.getLogger().severe("Dumping current item");
-            plugin.getLogger().severe("===============");
-            plugin.getLogger().severe(cfgStr);
-            plugin.getLogger().severe("===============");
-            if (exist && backup != null && backup.exists()) {
-                try {
-                    plugin.getLogger().severe("Recovering backup: " + backup);
-                    Files.copy(backup.toPath(), itemFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                    lock(itemFile);
-                } catch (Exception exRec) {
-                    plugin.getLogger().log(Level.SEVERE, "Error recovering backup: " + backup, exRec);
-                    throw new AdminHandler.CommandException("message.error.recovering", exRec, itemName, backup.getPath(), exRec.getLocalizedMessage());
-                }
+        }
+        if (error == null) {
+            return;
+        }
+        plugin.getLogger().log(Level.SEVERE, "Error saving " + itemName + ".", error);
+        plugin.getLogger().severe("Dumping current item");
+        plugin.getLogger().severe("===============");
+        plugin.getLogger().severe(cfgStr);
+        plugin.getLogger().severe("===============");
+        Message message;
+        if (backup != null && !recovered) {
+            plugin.getLogger().severe("Error recovering backup: " + backup);
+            message = new Message(I18n.format("message.error.recovering", itemName, backup, error.getLocalizedMessage()));
+        } else {
+            if (backup != null) {
+                plugin.getLogger().severe("Recovered backup: " + backup);
             }
-            rethrow(e);
+            message = new Message(I18n.format("message.error.verifying", itemName, error.getLocalizedMessage()));
         }
+        message.send(Bukkit.getConsoleSender());
+        Bukkit.getOperators().forEach(message::send);
     }
 
     public static void save(ItemGroup itemGroup) {
@@ -457,6 +703,7 @@ public class ItemManager {
                 ItemGroup testGroup = new ItemGroup(test, null);
                 itemGroup.setFile(itemFile);
                 lock(itemFile);
+                WGSupport.invalidatePolicies();
             } catch (Exception e) {
                 plugin.getLogger().log(Level.SEVERE, "Error verifying integrity for " + itemName + ".", e);
                 throw new AdminHandler.CommandException("message.error.verifying", e, itemName, e.getLocalizedMessage());
@@ -499,6 +746,20 @@ public class ItemManager {
         }
     }
 
+    /**
+     * Releases the lock of a file about to be written, if it holds one
+     */
+    private static void releaseLock(File itemFile) throws IOException {
+        if (!plugin.cfg.itemFsLock) return;
+        FileLock fileLock = itemFileLocks.remove(itemFile.getCanonicalPath());
+        if (fileLock != null) {
+            if (fileLock.isValid()) {
+                fileLock.release();
+            }
+            fileLock.channel().close();
+        }
+    }
+
     private static void unlock(File itemFile, boolean remove) throws IOException {
         if (!plugin.cfg.itemFsLock) return;
         FileLock fileLock = remove ? itemFileLocks.remove(itemFile.getCanonicalPath()) : itemFileLocks.get(itemFile.getCanonicalPath());
@@ -562,6 +823,7 @@ public class ItemManager {
     }
 
     public static File unlockAndBackup(RPGItem item, boolean remove) throws IOException {
+        ItemWriter.flush();
         File itemFile = item.getFile();
         File backup = new File(getBackupsDir(), itemFile.getName().replaceAll("\\.yml$", "") + "." + System.currentTimeMillis() + ".bak");
         unlock(itemFile, remove);
@@ -581,32 +843,68 @@ public class ItemManager {
     public static Optional<RPGItem> toRPGItem(ItemStack item, boolean ignoreModel) {
         if (item == null || item.getType() == Material.AIR)
             return Optional.empty();
-        if (!item.hasItemMeta())
-            return Optional.empty();
-        ItemMeta meta = item.getItemMeta();
-        CustomItemTagContainer tagContainer = meta.getCustomTagContainer();
-        if (tagContainer.hasCustomTag(TAG_META, ItemTagType.TAG_CONTAINER)) {
-            CustomItemTagContainer metaTag = getTag(tagContainer, TAG_META);
-            int uid = getInt(metaTag, TAG_ITEM_UID);
-            Optional<Boolean> optIsModel = optBoolean(metaTag, TAG_IS_MODEL);
-            if (ignoreModel && optIsModel.orElse(false)) {
-                return Optional.empty();
+        if (hasTagContainer(item, TAG_META)) {
+            Integer uid = peekInt(item, TAG_META, TAG_ITEM_UID);
+            if (uid != null) {
+                if (ignoreModel) {
+                    Byte model = peekByte(item, TAG_META, TAG_IS_MODEL);
+                    if (model != null && model == 1) {
+                        return Optional.empty();
+                    }
+                }
+                return ItemManager.getItem(uid);
             }
-            return ItemManager.getItem(uid);
         }
-        if (!plugin.cfg.itemCompat) {
+        Resolution resolution = resolve(item);
+        if (ignoreModel && resolution.model) {
             return Optional.empty();
         }
+        return Optional.ofNullable(resolution.item);
+    }
 
-        // Old
-        if (!meta.hasLore() || meta.getLore().size() <= 0)
-            return Optional.empty();
-        try {
-            @SuppressWarnings("deprecation") Optional<Integer> id = decodeId(meta.getLore().get(0));
-            return id.map(ItemManager::getItemById);
-        } catch (Exception e) {
-            RPGItems.logger.log(Level.WARNING, "Error migrating old item", e);
-            return Optional.empty();
+    /**
+     * Whether this item carries the RPGItems meta tag, without materialising the full ItemMeta when possible.
+     * Legacy lore encoded items are not detected.
+     */
+    public static boolean hasRPGTag(ItemStack item) {
+        if (item == null || item.getType() == Material.AIR)
+            return false;
+        return hasTagContainer(item, TAG_META);
+    }
+
+    private static Resolution resolve(ItemStack item) {
+        if (!hasTagContainer(item, TAG_META)) {
+            if (!plugin.cfg.itemCompat || !item.hasItemMeta()) {
+                return Resolution.NONE;
+            }
+            // Old
+            ItemMeta meta = item.getItemMeta();
+            if (!meta.hasLore() || meta.getLore().size() <= 0)
+                return Resolution.NONE;
+            try {
+                @SuppressWarnings("deprecation") Optional<Integer> id = decodeId(meta.getLore().get(0));
+                return new Resolution(id.map(ItemManager::getItemById).orElse(null), false);
+            } catch (Exception e) {
+                RPGItems.logger.log(Level.WARNING, "Error migrating old item", e);
+                return Resolution.NONE;
+            }
+        }
+        ItemMeta meta = item.getItemMeta();
+        CustomItemTagContainer metaTag = getTag(meta.getCustomTagContainer(), TAG_META);
+        int uid = getInt(metaTag, TAG_ITEM_UID);
+        Optional<Boolean> optIsModel = optBoolean(metaTag, TAG_IS_MODEL);
+        return new Resolution(ItemManager.getItem(uid).orElse(null), optIsModel.orElse(false));
+    }
+
+    private static final class Resolution {
+        static final Resolution NONE = new Resolution(null, false);
+
+        final RPGItem item;
+        final boolean model;
+
+        Resolution(RPGItem item, boolean model) {
+            this.item = item;
+            this.model = model;
         }
     }
 
@@ -756,6 +1054,9 @@ public class ItemManager {
         itemByName.remove(item.getName());
         itemById.remove(item.getId());
         itemById.remove(item.getUid());
+        PlayerEquipment.instance().invalidateAll();
+        WGSupport.invalidatePolicies();
+        DropTable.invalidateAll();
         if (delete) {
             try {
                 File backup = unlockAndBackup(item, true);
@@ -770,6 +1071,7 @@ public class ItemManager {
     public static void remove(ItemGroup group, boolean delete) {
         groupByName.remove(group.getName());
         groupById.remove(group.getUid());
+        WGSupport.invalidatePolicies();
         if (delete) {
             try {
                 File itemFile = group.getFile();
@@ -0,0 +1,381 @@
+package think.rpgitems.item;
+
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import think.rpgitems.RPGItems;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+/**
+ * Writes item files on a dedicated thread.
+ * <p>
+ * The main thread only serialises the item; repeated saves of an item still waiting in the queue replace
+ * its content instead of writing it again. The writer thread records the content in an append only journal,
+ * records the old file in the {@link BackupStore}, replaces it atomically, and verifies what landed on disk. A write that has not been
+ * marked done in the journal is replayed by {@link #open} on the next start.
+ */
+final class ItemWriter {
+    private static final byte RECORD_WRITE = 1;
+    private static final byte RECORD_DONE = 2;
+
+    private static final Map<String, Job> queued = new HashMap<>();
+    private static final Map<String, Integer> outstanding = new HashMap<>();
+    private static final Queue<Job> completed = new ConcurrentLinkedQueue<>();
+    private static ExecutorService executor;
+    private static File journalFile;
+    private static File backupsDir;
+    private static FileChannel journal;
+    private static long sequence = 0;
+    private static boolean drainScheduled = false;
+
+    private ItemWriter() {
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Replays unfinished writes from the journal and starts a new one. Must be called before items are loaded.
+     */
+    static void open(File journalFile, File backupsDir) {
+        flush();
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                RPGItems.logger.log(Level.WARNING, "Error closing item journal", e);
+            }
+            journal = null;
+        }
+        ItemWriter.journalFile = journalFile;
+        ItemWriter.backupsDir = backupsDir;
+        if (journalFile.exists()) {
+            replay(journalFile);
+        }
+    }
+
+    static void submit(String name, File file, String content) {
+        String path = file.getAbsolutePath();
+        synchronized (queued) {
+            Job job = queued.get(path);
+            if (job != null) {
+                job.name = name;
+                job.content = content;
+                return;
+            }
+            queued.put(path, new Job(name, file, content));
+            outstanding.merge(path, 1, Integer::sum);
+        }
+        executor().execute(() -> write(path));
+    }
+
+    /**
+     * Writes the file through the same journal, backup and verification as a queued write, and waits for it.
+     * A failed write has been rolled back to the previous content, unless the exception says otherwise.
+     * Must be called on the main thread.
+     */
+    static void writeNow(String name, File file, String content) throws IOException {
+        String path = file.getAbsolutePath();
+        Job job = new Job(name, file, content);
+        synchronized (queued) {
+            outstanding.merge(path, 1, Integer::sum);
+        }
+        try {
+            executor().submit(() -> perform(path, job)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted writing " + file, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error writing " + file, e.getCause());
+        }
+        if (job.error == null) {
+            return;
+        }
+        IOException error = job.error instanceof IOException ? (IOException) job.error : new IOException(job.error);
+        if (!job.recovered) {
+            error.addSuppressed(new IOException("Error recovering backup " + job.backup));
+        }
+        throw error;
+    }
+
+    /**
+     * @return whether a write of this file is queued or running
+     */
+    static boolean isPending(File file) {
+        synchronized (queued) {
+            return outstanding.containsKey(file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Blocks until every submitted write finished, then reports them. Must be called on the main thread.
+     */
+    static void flush() {
+        if (executor != null) {
+            try {
+                executor.submit(() -> {
+                }).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                RPGItems.logger.log(Level.WARNING, "Error waiting for item writes", e);
+            }
+        }
+        drain();
+    }
+
+    private static ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "RPGItems-ItemWriter");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    private static void drain() {
+        synchronized (completed) {
+            drainScheduled = false;
+        }
+        Job job;
+        while ((job = completed.poll()) != null) {
+            ItemManager.written(job.name, job.file, job.backup, job.content, job.error, job.recovered);
+        }
+    }
+
+    private static void write(String path) {
+        Job job;
+        synchronized (queued) {
+            job = queued.remove(path);
+        }
+        perform(path, job);
+        completed.add(job);
+        scheduleDrain();
+    }
+
+    private static void perform(String path, Job job) {
+        long seq;
+        synchronized (queued) {
+            seq = ++sequence;
+        }
+        try {
+            byte[] content = job.content.getBytes(StandardCharsets.UTF_8);
+            appendJournal(RECORD_WRITE, seq, path, content);
+            backup(job);
+            replace(job.file, content);
+            verify(job.file, job.content);
+            appendJournal(RECORD_DONE, seq, null, null);
+        } catch (Exception e) {
+            job.error = e;
+            if (job.previous != null) {
+                try {
+                    replace(job.file, job.previous);
+                } catch (Exception exRec) {
+                    e.addSuppressed(exRec);
+                    job.recovered = false;
+                }
+            }
+        }
+        job.previous = null;
+        synchronized (queued) {
+            outstanding.computeIfPresent(path, (p, count) -> count > 1 ? count - 1 : null);
+            if (outstanding.isEmpty()) {
+                truncateJournal();
+            }
+        }
+    }
+
+    private static void scheduleDrain() {
+        synchronized (completed) {
+            if (drainScheduled) return;
+            drainScheduled = true;
+        }
+        try {
+            Bukkit.getScheduler().runTask(RPGItems.plugin, ItemWriter::drain);
+        } catch (Exception e) {
+            // plugin disabling, flush() drains the rest
+            synchronized (completed) {
+                drainScheduled = false;
+            }
+        }
+    }
+
+    static String backupKey(File file) {
+        return file.getName().replaceAll("\\.yml$", "");
+    }
+
+    /**
+     * Keeps the current content of the file in memory for recovery, and as a version in the store
+     */
+    private static void backup(Job job) throws IOException {
+        if (!job.file.exists()) {
+            return;
+        }
+        job.previous = Files.readAllBytes(job.file.toPath());
+        String key = backupKey(job.file);
+        try {
+            job.backup = key + " #" + BackupStore.put(key, job.previous).getNumber();
+        } catch (IOException e) {
+            RPGItems.logger.log(Level.SEVERE, "Cannot create backup for " + job.name + ".", e);
+        }
+    }
+
+    private static void replace(File file, byte[] content) throws IOException {
+        // outside the items directory so a leftover is never loaded as an item
+        File tmp = new File(backupsDir, file.getName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Checks the written file reads back as the item it was saved from. Runs on the writer thread,
+     * so powers are only checked for structure and not resolved through the power registry.
+     */
+    private static void verify(File file, String content) throws Exception {
+        String written = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        if (!written.equals(content)) {
+            throw new IOException("Content of " + file + " differs from what was written");
+        }
+        YamlConfiguration test = new YamlConfiguration();
+        test.loadFromString(written);
+        ConfigurationSection powers = test.getConfigurationSection("powers");
+        if (powers == null) {
+            return;
+        }
+        for (String key : powers.getKeys(false)) {
+            ConfigurationSection power = powers.getConfigurationSection(key);
+            if (power == null || !power.isString("powerName")) {
+                throw new IOException("Power " + key + " in " + file + " has no powerName");
+            }
+        }
+    }
+
+    private static void appendJournal(byte type, long seq, String path, byte[] content) throws IOException {
+        if (journal == null) {
+            journal = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(content == null ? 16 : content.length + 64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(type);
+        out.writeLong(seq);
+        if (type == RECORD_WRITE) {
+            out.writeUTF(path);
+            out.writeInt(content.length);
+            out.write(content);
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            out.writeLong(crc.getValue());
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        while (buffer.hasRemaining()) {
+            journal.write(buffer);
+        }
+        if (type == RECORD_WRITE) {
+            journal.force(false);
+        }
+    }
+
+    private static void truncateJournal() {
+        if (journal == null) return;
+        try {
+            journal.truncate(0);
+            journal.force(false);
+        } catch (IOException e) {
+            RPGItems.logger.log(Level.WARNING, "Error truncating item journal", e);
+        }
+    }
+
+    /**
+     * Rewrites every file whose last journaled write was not marked done. A torn record at the end,
+     * from a crash while appending, is ignored: the file it was about to write was not touched yet.
+     */
+    private static void replay(File journalFile) {
+        Map<Long, Map.Entry<String, byte[]>> writes = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+            while (true) {
+                byte type;
+                try {
+                    type = in.readByte();
+                } catch (EOFException e) {
+                    break;
+                }
+                long seq = in.readLong();
+                if (type == RECORD_DONE) {
+                    writes.remove(seq);
+                    continue;
+                }
+                if (type != RECORD_WRITE) {
+                    throw new IOException("Unknown journal record " + type);
+                }
+                String path = in.readUTF();
+                byte[] content = new byte[in.readInt()];
+                in.readFully(content);
+                CRC32 crc = new CRC32();
+                crc.update(content);
+                if (in.readLong() != crc.getValue()) {
+                    throw new IOException("Checksum mismatch for " + path);
+                }
+                writes.put(seq, new AbstractMap.SimpleImmutableEntry<>(path, content));
+            }
+        } catch (IOException e) {
+            RPGItems.logger.log(Level.WARNING, "Item journal ends with an incomplete record, ignoring it", e);
+        }
+        Map<String, byte[]> latest = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> write : writes.values()) {
+            latest.put(write.getKey(), write.getValue());
+        }
+        for (Map.Entry<String, byte[]> write : latest.entrySet()) {
+            File file = new File(write.getKey());
+            RPGItems.logger.warning("Replaying interrupted write of " + file);
+            try {
+                backup(new Job(file.getName(), file, null));
+                replace(file, write.getValue());
+            } catch (IOException e) {
+                RPGItems.logger.log(Level.SEVERE, "Error replaying write of " + file, e);
+            }
+        }
+        try {
+            Files.delete(journalFile.toPath());
+        } catch (IOException e) {
+            RPGItems.logger.log(Level.WARNING, "Error deleting item journal", e);
+        }
+    }
+
+    private static final class Job {
+        private final File file;
+        private String name;
+        private String content;
+        private String backup;
+        private byte[] previous;
+        private Exception error;
+        private boolean recovered = true;
+
+        Job(String name, File file, String content) {
+            this.name = name;
+            this.file = file;
+            this.content = content;
+        }
+    }
+}
@@ -36,10 +36,10 @@ import org.bukkit.potion.PotionEffectType;
 import org.librazy.nclangchecker.LangKey;
 import org.librazy.nclangchecker.LangKeyType;
 import think.rpgitems.AdminHandler;
-import think.rpgitems.Events;
 import think.rpgitems.I18n;
 import think.rpgitems.RPGItems;
 import think.rpgitems.data.Context;
+import think.rpgitems.data.PlayerEquipment;
 import think.rpgitems.power.*;
 import think.rpgitems.power.impl.*;
 import think.rpgitems.utils.MaterialUtils;
@@ -64,6 +64,18 @@ public class RPGItem {
     public static final NamespacedKey TAG_DURABILITY = new NamespacedKey(RPGItems.plugin, "durability");
     public static final NamespacedKey TAG_OWNER = new NamespacedKey(RPGItems.plugin, "owner");
     public static final NamespacedKey TAG_STACK_ID = new NamespacedKey(RPGItems.plugin, "stack_id");
+    /**
+     * Render revision stamped on stacks by earlier builds, removed by the next full {@link #updateItem}
+     */
+    private static final NamespacedKey TAG_LEGACY_REVISION = new NamespacedKey(RPGItems.plugin, "revision");
+
+    private static final String MCMMO_LORE = "mcMMO Ability Tool";
+    private static final int MAX_CACHED_BARS = 1024;
+
+    /**
+     * Revisions are drawn from one sequence for all items. They are only kept in memory, never on stacks.
+     */
+    private static long nextRevision = 0;
 
     static RPGItems plugin;
     private boolean ignoreWorldGuard = false;
@@ -78,6 +90,12 @@ public class RPGItem {
     // Powers
     private List<Power> powers = new ArrayList<>();
     private HashMap<Power, NamespacedKey> powerKeys = new HashMap<>();
+    // Dispatch tables, derived from powers in rebuildDispatch()
+    private Map<Trigger, TriggerDispatch> dispatchTable = Collections.emptyMap();
+    private ConditionGraph conditionGraph = ConditionGraph.EMPTY;
+    // Rendering, see updateItem()
+    private long revision = nextRevision++;
+    private RenderCache render;
     // Recipes
     private int recipeChance = 6;
     private boolean hasRecipe = false;
@@ -142,6 +160,13 @@ public class RPGItem {
     }
 
     public RPGItem(ConfigurationSection s, File f) throws UnknownPowerException, UnknownExtensionException {
+        this(s, f, null);
+    }
+
+    /**
+     * @param preparedPowers powers instantiated ahead by {@link #preparePowers(ConfigurationSection)}, or null
+     */
+    RPGItem(ConfigurationSection s, File f, Map<String, Power> preparedPowers) throws UnknownPowerException, UnknownExtensionException {
         setFile(f);
         name = s.getString("name");
         id = s.getInt("id");
@@ -150,14 +175,14 @@ public class RPGItem {
         if (uid == 0) {
             uid = ItemManager.nextUid();
         }
-        restore(s);
+        restore(s, preparedPowers);
     }
 
     public RPGItem(ConfigurationSection s, String name, int uid) throws UnknownPowerException, UnknownExtensionException {
         if (uid >= 0) throw new IllegalArgumentException();
         this.name = name;
         this.uid = uid;
-        restore(s);
+        restore(s, null);
     }
 
     public static void updateItemStack(ItemStack item) {
@@ -193,7 +218,31 @@ public class RPGItem {
         return plugin;
     }
 
-    private void restore(ConfigurationSection s) throws UnknownPowerException, UnknownExtensionException {
+    /**
+     * Resolves and instantiates the powers of an item config without initializing them.
+     * Touches no server state, so item loading can call it off the main thread.
+     *
+     * @return uninitialized powers by their section key
+     */
+    static Map<String, Power> preparePowers(ConfigurationSection s) throws UnknownPowerException, UnknownExtensionException {
+        ConfigurationSection powerList = s.getConfigurationSection("powers");
+        if (powerList == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, Power> prepared = new HashMap<>();
+        for (String sectionKey : powerList.getKeys(false)) {
+            ConfigurationSection section = powerList.getConfigurationSection(sectionKey);
+            NamespacedKey key = PowerManager.parseKey(section.getString("powerName"));
+            Class<? extends Power> power = PowerManager.getPower(key);
+            if (power == null) {
+                throw new UnknownPowerException(key);
+            }
+            prepared.put(sectionKey, PowerManager.instantiate(power));
+        }
+        return prepared;
+    }
+
+    private void restore(ConfigurationSection s, Map<String, Power> preparedPowers) throws UnknownPowerException, UnknownExtensionException {
         setAuthor(s.getString("author", ""));
         setNote(s.getString("note", ""));
         setLicense(s.getString("license", ""));
@@ -243,7 +292,7 @@ public class RPGItem {
                     plugin.getLogger().warning("Unknown power:" + key + " on item " + this.name);
                     throw new UnknownPowerException(key);
                 }
-                Power pow = PowerManager.instantiate(power);
+                Power pow = preparedPowers != null && power.isInstance(preparedPowers.get(sectionKey)) ? preparedPowers.get(sectionKey) : PowerManager.instantiate(power);
                 pow.setItem(this);
                 pow.init(section);
                 addPower(key, pow, false);
@@ -289,20 +338,6 @@ public class RPGItem {
             for (String key : drops.getKeys(false)) {
                 double chance = drops.getDouble(key, 0.0);
                 chance = Math.min(chance, 100.0);
-                if (chance > 0) {
-                    dropChances.put(key, chance);
-                    if (!Events.drops.containsKey(key)) {
-                        Events.drops.put(key, new HashSet<>());
-                    }
-                    Set<Integer> set = Events.drops.get(key);
-                    set.add(getUid());
-                } else {
-                    dropChances.remove(key);
-                    if (Events.drops.containsKey(key)) {
-                        Set<Integer> set = Events.drops.get(key);
-                        set.remove(getUid());
-                    }
-                }
                 dropChances.put(key, chance);
             }
         }
@@ -494,37 +529,21 @@ public class RPGItem {
     }
 
     public void updateItem(ItemStack item, boolean loreOnly) {
-        List<String> reservedLores = this.filterLores(item);
+        RenderCache render = render();
+        if (!loreOnly && isRendered(item, render)) {
+            return;
+        }
         item.setType(getItem());
         ItemMeta meta = item.getItemMeta();
-        List<String> lore = new ArrayList<>(getLore());
         CustomItemTagContainer itemTagContainer = meta.getCustomTagContainer();
         SubItemTagContainer rpgitemsTagContainer = makeTag(itemTagContainer, TAG_META);
         set(rpgitemsTagContainer, TAG_ITEM_UID, getUid());
-        addDurabilityBar(rpgitemsTagContainer, lore);
+        int durability = getMaxDurability() > 0 ? computeIfAbsent(rpgitemsTagContainer, TAG_DURABILITY, ItemTagType.INTEGER, this::getDefaultDurability) : 0;
         if (meta instanceof LeatherArmorMeta) {
             ((LeatherArmorMeta) meta).setColor(Color.fromRGB(getDataValue()));
         }
-        Damageable damageable = (Damageable) meta;
-        if (getMaxDurability() > 0) {
-            int durability = computeIfAbsent(rpgitemsTagContainer, TAG_DURABILITY, ItemTagType.INTEGER, this::getDefaultDurability);
-            if (isCustomItemModel()) {
-                damageable.setDamage(getDataValue());
-            } else {
-                damageable.setDamage((getItem().getMaxDurability() - ((short) ((double) getItem().getMaxDurability() * ((double) durability / (double) getMaxDurability())))));
-            }
-        } else {
-            if (isCustomItemModel()) {
-                damageable.setDamage(getDataValue());
-            } else {
-                damageable.setDamage(getItem().getMaxDurability() != 0 ? 0 : getDataValue());
-            }
-        }
-        // Patch for mcMMO buff. See SkillUtils.java#removeAbilityBuff in mcMMO
-        if (item.hasItemMeta() && item.getItemMeta().hasLore() && item.getItemMeta().getLore().contains("mcMMO Ability Tool"))
-            lore.add("mcMMO Ability Tool");
-        lore.addAll(reservedLores);
-        meta.setLore(lore);
+        ((Damageable) meta).setDamage(damage(durability));
+        meta.setLore(render.lore(durability, meta.hasLore() ? meta.getLore() : null));
 
         if (loreOnly) {
             rpgitemsTagContainer.commit();
@@ -554,52 +573,212 @@ public class RPGItem {
                 meta.addEnchant(e.getKey(), Math.max(meta.getEnchantLevel(e.getKey()), e.getValue()), true);
             }
         }
+        rpgitemsTagContainer.removeCustomTag(TAG_LEGACY_REVISION);
         rpgitemsTagContainer.commit();
         item.setItemMeta(refreshAttributeModifiers(meta));
     }
 
-    private void addDurabilityBar(CustomItemTagContainer meta, List<String> lore) {
-        int maxDurability = getMaxDurability();
-        if (maxDurability > 0) {
-            int durability = computeIfAbsent(meta, TAG_DURABILITY, ItemTagType.INTEGER, this::getDefaultDurability);
-            if (isHasDurabilityBar()) {
-                StringBuilder out = new StringBuilder();
-                char boxChar = '\u25A0';
-                double ratio = (double) durability / (double) maxDurability;
-                BarFormat barFormat = getBarFormat();
-                switch (barFormat) {
-                    case NUMERIC_BIN:
-                    case NUMERIC_BIN_MINUS_ONE:
-                    case NUMERIC_HEX:
-                    case NUMERIC_HEX_MINUS_ONE:
-                    case NUMERIC:
-                    case NUMERIC_MINUS_ONE: {
-                        out.append(ChatColor.GREEN.toString()).append(boxChar).append(" ");
-                        out.append(ratio < 0.1 ? ChatColor.RED : ratio < 0.3 ? ChatColor.YELLOW : ChatColor.GREEN);
-                        out.append(formatBar(durability, maxDurability, barFormat));
-                        out.append(ChatColor.RESET).append(" / ").append(ChatColor.AQUA);
-                        out.append(formatBar(maxDurability, maxDurability, barFormat));
-                        out.append(ChatColor.GREEN).append(boxChar);
-                        break;
-                    }
-                    case DEFAULT: {
-                        int boxCount = tooltipWidth / 7;
-                        int mid = (int) ((double) boxCount * (ratio));
-                        for (int i = 0; i < boxCount; i++) {
-                            out.append(i < mid ? ChatColor.GREEN : i == mid ? ChatColor.YELLOW : ChatColor.RED);
-                            out.append(boxChar);
+    /**
+     * @return whether the stack already shows everything a full {@link #updateItem} of this revision writes,
+     * so that rendering it again would not change it
+     */
+    private boolean isRendered(ItemStack item, RenderCache render) {
+        if (item.getType() != getItem() || !item.hasItemMeta()) {
+            return false;
+        }
+        ItemMeta meta = item.getItemMeta();
+        CustomItemTagContainer tagContainer = getTag(meta.getCustomTagContainer(), TAG_META);
+        if (tagContainer == null) {
+            return false;
+        }
+        if (tagContainer.hasCustomTag(TAG_LEGACY_REVISION, ItemTagType.LONG)) {
+            return false;
+        }
+        int durability = 0;
+        if (getMaxDurability() > 0) {
+            OptionalInt stored = optInt(tagContainer, TAG_DURABILITY);
+            if (!stored.isPresent()) {
+                return false;
+            }
+            durability = stored.getAsInt();
+        }
+        if (((Damageable) meta).getDamage() != damage(durability)) {
+            return false;
+        }
+        if (meta instanceof LeatherArmorMeta && !((LeatherArmorMeta) meta).getColor().equals(Color.fromRGB(getDataValue()))) {
+            return false;
+        }
+        if (meta.isUnbreakable() != (isCustomItemModel() || hasPower(PowerUnbreakable.class))
+                    || !meta.getItemFlags().equals(new HashSet<>(getItemFlags()))) {
+            return false;
+        }
+        Map<Enchantment, Integer> enchants = meta.getEnchants();
+        if (getEnchantMode() == EnchantMode.DISALLOW) {
+            if (!enchants.equals(enchantMap == null ? Collections.emptyMap() : enchantMap)) {
+                return false;
+            }
+        } else if (enchantMap != null) {
+            for (Entry<Enchantment, Integer> e : enchantMap.entrySet()) {
+                if (enchants.getOrDefault(e.getKey(), 0) < e.getValue()) {
+                    return false;
+                }
+            }
+        }
+        if (!hasAttributeModifiers(meta)) {
+            return false;
+        }
+        List<String> lore = meta.hasLore() ? meta.getLore() : null;
+        return render.lore(durability, lore).equals(lore == null ? Collections.emptyList() : lore);
+    }
+
+    private RenderCache render() {
+        RenderCache render = this.render;
+        if (render == null || render.revision != revision || render.barFormat != getBarFormat() || render.maxDurability != getMaxDurability()) {
+            render = this.render = new RenderCache();
+        }
+        return render;
+    }
+
+    /**
+     * What {@link #updateItem} renders in one revision: the lore above the durability bar,
+     * the bars drawn so far by durability and the compiled lore filters.
+     */
+    private final class RenderCache {
+        final long revision = RPGItem.this.revision;
+        final BarFormat barFormat = getBarFormat();
+        final int maxDurability = getMaxDurability();
+        final List<String> prefix;
+        final boolean hasBar;
+        final Map<Integer, String> bars = new HashMap<>();
+        final List<PowerLoreFilter> filters;
+
+        RenderCache() {
+            List<String> lore = getLore();
+            hasBar = maxDurability > 0 && isHasDurabilityBar();
+            if (hasBar && !lore.isEmpty() && lore.get(lore.size() - 1).contains("\u25A0")) {
+                prefix = new ArrayList<>(lore.subList(0, lore.size() - 1));
+            } else {
+                prefix = new ArrayList<>(lore);
+            }
+            filters = getPower(PowerLoreFilter.class).stream()
+                                                     .filter(p -> !Strings.isNullOrEmpty(p.regex))
+                                                     .map(PowerLoreFilter::compile)
+                                                     .collect(Collectors.toList());
+        }
+
+        String bar(int durability) {
+            String bar = bars.get(durability);
+            if (bar == null) {
+                if (bars.size() >= MAX_CACHED_BARS) {
+                    bars.clear();
+                }
+                bar = durabilityBar(durability);
+                bars.put(durability, bar);
+            }
+            return bar;
+        }
+
+        /**
+         * @param current lore of the stack, whose lines matching a lore filter are kept
+         */
+        List<String> lore(int durability, List<String> current) {
+            List<String> lore = new ArrayList<>(prefix.size() + 2);
+            lore.addAll(prefix);
+            if (hasBar) {
+                lore.add(bar(durability));
+            }
+            if (current == null) {
+                return lore;
+            }
+            // Patch for mcMMO buff. See SkillUtils.java#removeAbilityBuff in mcMMO
+            if (current.contains(MCMMO_LORE)) {
+                lore.add(MCMMO_LORE);
+            }
+            if (!filters.isEmpty()) {
+                for (String str : current) {
+                    String stripped = ChatColor.stripColor(str);
+                    for (PowerLoreFilter p : filters) {
+                        Matcher matcher = p.pattern().matcher(stripped);
+                        if (p.find ? matcher.find() : matcher.matches()) {
+                            lore.add(str);
+                            break;
                         }
-                        break;
                     }
                 }
-                if (lore.isEmpty() || !lore.get(lore.size() - 1).contains(boxChar + ""))
-                    lore.add(out.toString());
-                else
-                    lore.set(lore.size() - 1, out.toString());
             }
+            return lore;
         }
     }
 
+    private String durabilityBar(int durability) {
+        int maxDurability = getMaxDurability();
+        StringBuilder out = new StringBuilder();
+        char boxChar = '\u25A0';
+        double ratio = (double) durability / (double) maxDurability;
+        BarFormat barFormat = getBarFormat();
+        switch (barFormat) {
+            case NUMERIC_BIN:
+            case NUMERIC_BIN_MINUS_ONE:
+            case NUMERIC_HEX:
+            case NUMERIC_HEX_MINUS_ONE:
+            case NUMERIC:
+            case NUMERIC_MINUS_ONE: {
+                out.append(ChatColor.GREEN.toString()).append(boxChar).append(" ");
+                out.append(ratio < 0.1 ? ChatColor.RED : ratio < 0.3 ? ChatColor.YELLOW : ChatColor.GREEN);
+                out.append(formatBar(durability, maxDurability, barFormat));
+                out.append(ChatColor.RESET).append(" / ").append(ChatColor.AQUA);
+                out.append(formatBar(maxDurability, maxDurability, barFormat));
+                out.append(ChatColor.GREEN).append(boxChar);
+                break;
+            }
+            case DEFAULT: {
+                int boxCount = tooltipWidth / 7;
+                int mid = (int) ((double) boxCount * (ratio));
+                for (int i = 0; i < boxCount; i++) {
+                    out.append(i < mid ? ChatColor.GREEN : i == mid ? ChatColor.YELLOW : ChatColor.RED);
+                    out.append(boxChar);
+                }
+                break;
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * @param durability ignored if this item has no durability
+     * @return the vanilla damage value of stacks with this durability
+     */
+    private int damage(int durability) {
+        if (getMaxDurability() > 0) {
+            return damageValue(durability);
+        }
+        if (isCustomItemModel()) {
+            return getDataValue();
+        }
+        return getItem().getMaxDurability() != 0 ? 0 : getDataValue();
+    }
+
+    private int damageValue(int durability) {
+        if (isCustomItemModel()) {
+            return getDataValue();
+        }
+        return getItem().getMaxDurability() - ((short) ((double) getItem().getMaxDurability() * ((double) durability / (double) getMaxDurability())));
+    }
+
+    /**
+     * @return whether an item stack shows the same lore and damage with either durability
+     */
+    private boolean displaysSame(int durability, int other) {
+        if (durability == other || getMaxDurability() <= 0) {
+            return true;
+        }
+        if (damageValue(durability) != damageValue(other)) {
+            return false;
+        }
+        RenderCache render = render();
+        return !render.hasBar || render.bar(durability).equals(render.bar(other));
+    }
+
     private String formatBar(int durability, int maxDurability, BarFormat barFormat) {
         switch (barFormat) {
             case NUMERIC:
@@ -623,26 +802,6 @@ public class RPGItem {
         throw new UnsupportedOperationException();
     }
 
-    private List<String> filterLores(ItemStack i) {
-        List<String> ret = new ArrayList<>();
-        List<PowerLoreFilter> patterns = getPower(PowerLoreFilter.class).stream()
-                                                                        .filter(p -> !Strings.isNullOrEmpty(p.regex))
-                                                                        .map(PowerLoreFilter::compile)
-                                                                        .collect(Collectors.toList());
-        if (patterns.isEmpty()) return Collections.emptyList();
-        if (!i.hasItemMeta() || !i.getItemMeta().hasLore()) return Collections.emptyList();
-        for (String str : i.getItemMeta().getLore()) {
-            for (PowerLoreFilter p : patterns) {
-                Matcher matcher = p.pattern().matcher(ChatColor.stripColor(str));
-                if (p.find ? matcher.find() : matcher.matches()) {
-                    ret.add(str);
-                    break;
-                }
-            }
-        }
-        return ret;
-    }
-
     private ItemMeta refreshAttributeModifiers(ItemMeta itemMeta) {
         List<PowerAttributeModifier> attributeModifiers = getPower(PowerAttributeModifier.class);
         Multimap<Attribute, AttributeModifier> old = itemMeta.getAttributeModifiers();
@@ -656,14 +815,8 @@ public class RPGItem {
         if (!attributeModifiers.isEmpty()) {
             for (PowerAttributeModifier attributeModifier : attributeModifiers) {
                 Attribute attribute = attributeModifier.attribute;
-                UUID uuid = new UUID(attributeModifier.uuidMost, attributeModifier.uuidLeast);
-                AttributeModifier modifier = new AttributeModifier(
-                        uuid,
-                        attributeModifier.name,
-                        attributeModifier.amount,
-                        attributeModifier.operation,
-                        attributeModifier.slot
-                );
+                AttributeModifier modifier = modifier(attributeModifier);
+                UUID uuid = modifier.getUniqueId();
                 if (old != null) {
                     old.entries().stream().filter(m -> m.getValue().getUniqueId().equals(uuid)).findAny().ifPresent(
                             e -> itemMeta.removeAttributeModifier(e.getKey(), e.getValue())
@@ -675,6 +828,42 @@ public class RPGItem {
         return itemMeta;
     }
 
+    private static AttributeModifier modifier(PowerAttributeModifier attributeModifier) {
+        return new AttributeModifier(
+                new UUID(attributeModifier.uuidMost, attributeModifier.uuidLeast),
+                attributeModifier.name,
+                attributeModifier.amount,
+                attributeModifier.operation,
+                attributeModifier.slot
+        );
+    }
+
+    /**
+     * @return whether {@link #refreshAttributeModifiers} would leave the modifiers of this meta as they are
+     */
+    private boolean hasAttributeModifiers(ItemMeta itemMeta) {
+        List<PowerAttributeModifier> attributeModifiers = getPower(PowerAttributeModifier.class);
+        Multimap<Attribute, AttributeModifier> current = itemMeta.getAttributeModifiers();
+        int size = current == null ? 0 : current.size();
+        if (attributeMode.equals(AttributeMode.FULL_UPDATE) ? size != attributeModifiers.size() : size < attributeModifiers.size()) {
+            return false;
+        }
+        for (PowerAttributeModifier attributeModifier : attributeModifiers) {
+            AttributeModifier expected = modifier(attributeModifier);
+            boolean found = current.get(attributeModifier.attribute).stream().anyMatch(m ->
+                    m.getUniqueId().equals(expected.getUniqueId())
+                            && m.getName().equals(expected.getName())
+                            && m.getAmount() == expected.getAmount()
+                            && m.getOperation() == expected.getOperation()
+                            && Objects.equals(m.getSlot(), expected.getSlot())
+            );
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public void resetRecipe(boolean removeOld) {
         boolean hasOldRecipe = false;
         if (removeOld) {
@@ -881,42 +1070,47 @@ public class RPGItem {
         if (i.getType().equals(Material.AIR)) return false;
         if (powers.isEmpty()) return false;
         if (checkPermission(player, true) == Event.Result.DENY) return false;
+        if (!PowerEvents.beforeFire(player, i, this, trigger, powers)) return false;
+        if (!PowerEvents.PRE_FIRE.wants(trigger)) return true;
 
         RPGItemsPowersPreFireEvent<TEvent, TPower, TResult, TReturn> preFire = new RPGItemsPowersPreFireEvent<>(player, i, event, this, trigger, powers);
-        Bukkit.getServer().getPluginManager().callEvent(preFire);
+        PowerEvents.PRE_FIRE.fire(preFire, trigger);
         return !preFire.isCancelled();
     }
 
     @SuppressWarnings("unchecked")
-    private <T> PowerResult<T> checkConditions(Player player, ItemStack i, Power power, List<PowerCondition> conds, Map<Power, PowerResult> context) {
-        Set<String> ids = power.getConditions();
-        List<PowerCondition> conditions = conds.stream().filter(p -> ids.contains(p.id())).collect(Collectors.toList());
-        List<PowerCondition> failed = conditions.stream().filter(p -> p.isStatic() ? !context.get(p).isOK() : !p.check(player, i, context).isOK()).collect(Collectors.toList());
-        if (failed.isEmpty()) return null;
-        return failed.stream().anyMatch(PowerCondition::isCritical) ? PowerResult.abort() : PowerResult.condition();
+    public <TEvent extends Event, TPower extends Power, TResult, TReturn> TReturn power(Player player, ItemStack i, TEvent event, Trigger<TEvent, TPower, TResult, TReturn> trigger, Object context) {
+        return power(player, i, event, trigger, context, -1);
     }
 
-    @SuppressWarnings("unchecked")
-    private Map<PowerCondition, PowerResult> checkStaticCondition(Player player, ItemStack i, List<PowerCondition> conds) {
-        Set<String> ids = powers.stream().flatMap(p -> p.getConditions().stream()).collect(Collectors.toSet());
-        List<PowerCondition> statics = conds.stream().filter(PowerCondition::isStatic).filter(p -> ids.contains(p.id())).collect(Collectors.toList());
-        Map<PowerCondition, PowerResult> result = new LinkedHashMap<>();
-        for (PowerCondition c : statics) {
-            result.put(c, c.check(player, i, result));
+    /**
+     * Fires the powers of a periodic trigger that are due at {@code tick} according to their tick interval
+     */
+    public <TEvent extends Event, TPower extends Power, TResult, TReturn> TReturn tick(Player player, ItemStack i, Trigger<TEvent, TPower, TResult, TReturn> trigger, long tick) {
+        TriggerDispatch dispatch = dispatchTable.get(trigger);
+        if (dispatch == null || !dispatch.isDue(tick)) {
+            return trigger.def(player, i, null);
         }
-        return result;
+        return power(player, i, null, trigger, null, tick);
     }
 
-    public <TEvent extends Event, TPower extends Power, TResult, TReturn> TReturn power(Player player, ItemStack i, TEvent event, Trigger<TEvent, TPower, TResult, TReturn> trigger, Object context) {
-        List<TPower> powers = this.getPower(trigger);
+    public boolean hasTrigger(Trigger trigger) {
+        return dispatchTable.containsKey(trigger);
+    }
+
+    private <TEvent extends Event, TPower extends Power, TResult, TReturn> TReturn power(Player player, ItemStack i, TEvent event, Trigger<TEvent, TPower, TResult, TReturn> trigger, Object context, long tick) {
+        TriggerDispatch dispatch = dispatchTable.getOrDefault(trigger, TriggerDispatch.EMPTY);
         TReturn ret = trigger.def(player, i, event);
-        if (!triggerPreCheck(player, i, event, trigger, powers)) return ret;
+        if (!triggerPreCheck(player, i, event, trigger, (List<TPower>) dispatch.view)) return ret;
         try {
-            List<PowerCondition> conds = getPower(PowerCondition.class, true);
-            Map<PowerCondition, PowerResult> staticCond = checkStaticCondition(player, i, conds);
-            Map<Power, PowerResult> resultMap = new LinkedHashMap<>(staticCond);
-            for (TPower power : powers) {
-                PowerResult<TResult> result = checkConditions(player, i, power, conds, resultMap);
+            Map<Power, PowerResult> resultMap = new LinkedHashMap<>();
+            ConditionGraph.Evaluation conditions = conditionGraph.begin(player, i, resultMap);
+            Power[] powers = dispatch.powers;
+            for (int idx = 0; idx < powers.length; idx++) {
+                if (tick >= 0 && tick % dispatch.intervals[idx] != 0) continue;
+                TPower power = (TPower) powers[idx];
+                PowerResult<TResult> result = conditions.check(dispatch.conditions[idx]);
+                conditions.next();
                 if (result != null) {
                     resultMap.put(power, result);
                 } else {
@@ -930,7 +1124,13 @@ public class RPGItem {
                 ret = trigger.next(ret, result);
                 if (result.isAbort()) break;
             }
-            triggerPostFire(player, i, event, trigger, resultMap, ret);
+            if (PowerEvents.POST_FIRE.wants(trigger)) {
+                triggerPostFire(player, i, event, trigger, conditions.withStaticResults(resultMap), ret);
+            }
+            if (getItemStackDurability(i).map(d -> d <= 0).orElse(false)) {
+                i.setAmount(0);
+                i.setType(Material.AIR);
+            }
             return ret;
         } finally {
             Context.instance().cleanTemp(player.getUniqueId());
@@ -971,18 +1171,73 @@ public class RPGItem {
 
     private <TEvent extends Event, TPower extends Power, TResult, TReturn> void triggerPostFire(Player player, ItemStack itemStack, TEvent event, Trigger<TEvent, TPower, TResult, TReturn> trigger, Map<Power, PowerResult> resultMap, TReturn ret) {
         RPGItemsPowersPostFireEvent<TEvent, TPower, TResult, TReturn> postFire = new RPGItemsPowersPostFireEvent<>(player, itemStack, event, this, trigger, resultMap, ret);
-        Bukkit.getServer().getPluginManager().callEvent(postFire);
-
-        if (getItemStackDurability(itemStack).map(d -> d <= 0).orElse(false)) {
-            itemStack.setAmount(0);
-            itemStack.setType(Material.AIR);
-        }
+        PowerEvents.POST_FIRE.fire(postFire, trigger);
     }
 
     public void rebuild() {
+        rebuildDispatch();
+        PlayerEquipment.instance().invalidateAll();
         List<String> lines = getTooltipLines();
         lines.remove(0);
         setLore(lines);
+        invalidateRender();
+    }
+
+    /**
+     * Starts a new revision, so that stacks rendered before are rendered again by the next {@link #updateItem}
+     */
+    public void invalidateRender() {
+        revision = nextRevision++;
+        render = null;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    /**
+     * Rebuilds the per-trigger power arrays and the condition graph,
+     * so that {@link #power} only walks arrays on the hot path.
+     */
+    @SuppressWarnings("unchecked")
+    private void rebuildDispatch() {
+        Map<Trigger, List<Power>> byTrigger = new HashMap<>();
+        for (Power power : powers) {
+            for (Trigger trigger : power.getTriggers()) {
+                Power casted;
+                try {
+                    casted = power.cast(trigger.getPowerClass());
+                } catch (ClassCastException e) {
+                    plugin.getLogger().log(Level.WARNING, "Power " + power.getName() + " on item " + name + " cannot be triggered by " + trigger.name(), e);
+                    continue;
+                }
+                byTrigger.computeIfAbsent(trigger, t -> new ArrayList<>()).add(casted);
+            }
+        }
+        ConditionGraph graph = ConditionGraph.compile(getPower(PowerCondition.class, true), name);
+        Map<Trigger, TriggerDispatch> table = new HashMap<>();
+        for (Entry<Trigger, List<Power>> entry : byTrigger.entrySet()) {
+            Power[] triggerPowers = entry.getValue().toArray(new Power[0]);
+            int[][] conditions = new int[triggerPowers.length][];
+            int[] intervals = new int[triggerPowers.length];
+            for (int i = 0; i < triggerPowers.length; i++) {
+                conditions[i] = graph.resolve(triggerPowers[i].getConditions());
+                intervals[i] = tickInterval(triggerPowers[i]);
+            }
+            table.put(entry.getKey(), new TriggerDispatch(triggerPowers, conditions, intervals));
+        }
+        conditionGraph = graph;
+        dispatchTable = Collections.unmodifiableMap(table);
+    }
+
+    private static int tickInterval(Power power) {
+        int interval = 1;
+        if (power instanceof PowerTick) {
+            interval = ((PowerTick) power).tickInterval();
+        } else if (power instanceof PowerSneaking) {
+            interval = ((PowerSneaking) power).tickInterval();
+        }
+        return Math.max(1, interval);
     }
 
     @SuppressWarnings("deprecation")
@@ -1061,6 +1316,22 @@ public class RPGItem {
         return rStack;
     }
 
+    /**
+     * @param template a stack made by {@link #toItemStack()} in the current revision
+     * @return a copy of the template, with a stack id of its own if the item has them
+     */
+    ItemStack copyOf(ItemStack template) {
+        ItemStack rStack = template.clone();
+        if (isHasStackId()) {
+            ItemMeta meta = rStack.getItemMeta();
+            SubItemTagContainer rpgitemsTagContainer = makeTag(meta, TAG_META);
+            set(rpgitemsTagContainer, TAG_STACK_ID, UUID.randomUUID());
+            rpgitemsTagContainer.commit();
+            rStack.setItemMeta(meta);
+        }
+        return rStack;
+    }
+
     public void toModel(ItemStack itemStack) {
         updateItem(itemStack);
         ItemMeta itemMeta = itemStack.getItemMeta();
@@ -1148,26 +1419,21 @@ public class RPGItem {
     }
 
     public void setItemStackDurability(ItemStack item, int val) {
-        ItemMeta itemMeta = item.getItemMeta();
-        SubItemTagContainer tagContainer = makeTag(itemMeta, TAG_META);
-        if (getMaxDurability() != -1) {
-            set(tagContainer, TAG_DURABILITY, val);
+        if (getMaxDurability() == -1) {
+            return;
         }
-        tagContainer.commit();
-        item.setItemMeta(itemMeta);
-        this.updateItem(item, true);
+        writeDurability(item, readDurability(item), val);
     }
 
+    /**
+     * Reads the durability of this item stack without writing anything back to it.
+     * Pending deferred writes are taken into account.
+     */
     public Optional<Integer> getItemStackDurability(ItemStack item) {
         if (getMaxDurability() == -1) {
             return Optional.empty();
         }
-        ItemMeta itemMeta = item.getItemMeta();
-        SubItemTagContainer tagContainer = makeTag(itemMeta, TAG_META);
-        int durability = computeIfAbsent(tagContainer, TAG_DURABILITY, ItemTagType.INTEGER, this::getDefaultDurability);
-        tagContainer.commit();
-        item.setItemMeta(itemMeta);
-        return Optional.of(durability);
+        return Optional.of(readDurability(item));
     }
 
     public boolean consumeDurability(ItemStack item, int val) {
@@ -1176,39 +1442,69 @@ public class RPGItem {
 
     public boolean consumeDurability(ItemStack item, int val, boolean checkbound) {
         if (val == 0) return true;
-        int durability;
-        ItemMeta itemMeta = item.getItemMeta();
-        if (getMaxDurability() != -1) {
-            SubItemTagContainer tagContainer = makeTag(itemMeta, TAG_META);
-            durability = computeIfAbsent(tagContainer, TAG_DURABILITY, ItemTagType.INTEGER, this::getDefaultDurability);
-            if (checkbound && (
-                    (val > 0 && durability < getDurabilityLowerBound()) ||
-                            (val < 0 && durability > getDurabilityUpperBound())
-            )) {
-                tagContainer.commit();
-                item.setItemMeta(itemMeta);
-                return false;
-            }
-            if (durability <= val
-                        && hasPower(PowerUnbreakable.class)
-                        && !isCustomItemModel()) {
-                tagContainer.commit();
-                item.setItemMeta(itemMeta);
-                return false;
-            }
-            durability -= val;
-            if (durability > getMaxDurability()) {
-                durability = getMaxDurability();
-            }
-            set(tagContainer, TAG_DURABILITY, durability);
-            tagContainer.commit();
+        if (getMaxDurability() == -1) return true;
+        int original = readDurability(item);
+        int durability = original;
+        if (checkbound && (
+                (val > 0 && durability < getDurabilityLowerBound()) ||
+                        (val < 0 && durability > getDurabilityUpperBound())
+        )) {
+            return false;
         }
-        item.setItemMeta(itemMeta);
-        this.updateItem(item, true);
+        if (durability <= val
+                    && hasPower(PowerUnbreakable.class)
+                    && !isCustomItemModel()) {
+            return false;
+        }
+        durability -= val;
+        if (durability > getMaxDurability()) {
+            durability = getMaxDurability();
+        }
+        writeDurability(item, original, durability);
         return true;
     }
 
+    private int readDurability(ItemStack item) {
+        Integer pending = DurabilityWriteBack.pending(item);
+        if (pending != null) {
+            return pending;
+        }
+        if (!item.hasItemMeta()) {
+            return getDefaultDurability();
+        }
+        CustomItemTagContainer tagContainer = getTag(item.getItemMeta().getCustomTagContainer(), TAG_META);
+        if (tagContainer == null) {
+            return getDefaultDurability();
+        }
+        return optInt(tagContainer, TAG_DURABILITY).orElse(getDefaultDurability());
+    }
+
+    private void writeDurability(ItemStack item, int original, int durability) {
+        if (!plugin.cfg.deferDurabilityWrite || !DurabilityWriteBack.defer(this, item, original, durability)) {
+            applyDurability(item, original, durability);
+        }
+    }
+
+    /**
+     * Stores the durability tag, regenerating lore and damage only when the displayed value changes
+     */
+    void applyDurability(ItemStack item, int original, int durability) {
+        if (item.getType() == Material.AIR || item.getAmount() <= 0) {
+            return;
+        }
+        ItemMeta itemMeta = item.getItemMeta();
+        SubItemTagContainer tagContainer = makeTag(itemMeta, TAG_META);
+        set(tagContainer, TAG_DURABILITY, durability);
+        tagContainer.commit();
+        item.setItemMeta(itemMeta);
+        if (!displaysSame(original, durability)) {
+            this.updateItem(item, true);
+        }
+    }
+
     public void give(Player player, int count, boolean wear) {
+        // no inventory event for items added by the plugin
+        PlayerEquipment.instance().invalidate(player);
         ItemStack itemStack = toItemStack();
         itemStack.setAmount(count);
         if (wear) {
@@ -1319,10 +1615,6 @@ public class RPGItem {
         return msg;
     }
 
-    private <TEvent extends Event, T extends Power, TResult, TReturn> List<T> getPower(Trigger<TEvent, T, TResult, TReturn> trigger) {
-        return powers.stream().filter(p -> p.getTriggers().contains(trigger)).map(p -> p.cast(trigger.getPowerClass())).collect(Collectors.toList());
-    }
-
     public void deinit() {
         powers.forEach(Power::deinit);
     }
@@ -1780,6 +2072,33 @@ public class RPGItem {
         }
     }
 
+    /**
+     * Powers of a single trigger, already cast to the trigger's power class,
+     * with the condition graph nodes each of them references.
+     */
+    private static final class TriggerDispatch {
+        static final TriggerDispatch EMPTY = new TriggerDispatch(new Power[0], new int[0][], new int[0]);
+
+        final Power[] powers;
+        final int[][] conditions;
+        final int[] intervals;
+        final List<Power> view;
+
+        TriggerDispatch(Power[] powers, int[][] conditions, int[] intervals) {
+            this.powers = powers;
+            this.conditions = conditions;
+            this.intervals = intervals;
+            this.view = Collections.unmodifiableList(Arrays.asList(powers));
+        }
+
+        boolean isDue(long tick) {
+            for (int interval : intervals) {
+                if (tick % interval == 0) return true;
+            }
+            return false;
+        }
+    }
+
     public enum AttributeMode {
         FULL_UPDATE, PARTIAL_UPDATE;
     }
@@ -0,0 +1,189 @@
+package think.rpgitems.power;
+
+import org.bukkit.Location;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A command with its placeholders tokenised once, rendered in a single pass.
+ * <p>
+ * Supports {@code {player}}, {@code {player.x|y|z|yaw|pitch}}, {@code {yaw}}, {@code {pitch}},
+ * {@code {entity}}, {@code {entity.uuid|x|y|z|yaw|pitch}} and {@code {damage}}, with the same values
+ * the regex based replacement produced. Placeholders without a value (e.g. entity ones when there is no
+ * entity) and unknown ones are left as they are.
+ */
+public final class CommandTemplate {
+    private enum Placeholder {
+        PLAYER("player"),
+        PLAYER_X("player.x"),
+        PLAYER_Y("player.y"),
+        PLAYER_Z("player.z"),
+        PLAYER_YAW("player.yaw"),
+        PLAYER_PITCH("player.pitch"),
+        YAW("yaw"),
+        PITCH("pitch"),
+        ENTITY("entity"),
+        ENTITY_UUID("entity.uuid"),
+        ENTITY_X("entity.x"),
+        ENTITY_Y("entity.y"),
+        ENTITY_Z("entity.z"),
+        ENTITY_YAW("entity.yaw"),
+        ENTITY_PITCH("entity.pitch"),
+        DAMAGE("damage"),
+        ;
+
+        private static final Map<String, Placeholder> byName = new HashMap<>();
+
+        static {
+            for (Placeholder placeholder : values()) {
+                byName.put(placeholder.name, placeholder);
+            }
+        }
+
+        private final String name;
+
+        Placeholder(String name) {
+            this.name = name;
+        }
+
+        boolean isEntity() {
+            return ordinal() >= ENTITY.ordinal() && ordinal() <= ENTITY_PITCH.ordinal();
+        }
+    }
+
+    private final String source;
+    private final String[] literals;
+    private final Placeholder[] placeholders;
+    private final boolean usesPlayerLocation;
+    private final boolean usesEntity;
+
+    private CommandTemplate(String source, String[] literals, Placeholder[] placeholders) {
+        this.source = source;
+        this.literals = literals;
+        this.placeholders = placeholders;
+        boolean location = false;
+        boolean entity = false;
+        for (Placeholder placeholder : placeholders) {
+            location |= placeholder != Placeholder.PLAYER && !placeholder.isEntity() && placeholder != Placeholder.DAMAGE;
+            entity |= placeholder.isEntity();
+        }
+        this.usesPlayerLocation = location;
+        this.usesEntity = entity;
+    }
+
+    public static CommandTemplate compile(String command) {
+        List<String> literals = new ArrayList<>();
+        List<Placeholder> placeholders = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < command.length()) {
+            char c = command.charAt(i);
+            if (c == '{') {
+                int end = command.indexOf('}', i + 1);
+                if (end > 0) {
+                    Placeholder placeholder = Placeholder.byName.get(command.substring(i + 1, end));
+                    if (placeholder != null) {
+                        literals.add(literal.toString());
+                        literal.setLength(0);
+                        placeholders.add(placeholder);
+                        i = end + 1;
+                        continue;
+                    }
+                }
+            }
+            literal.append(c);
+            i++;
+        }
+        literals.add(literal.toString());
+        return new CommandTemplate(command, literals.toArray(new String[0]), placeholders.toArray(new Placeholder[0]));
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public boolean usesEntity() {
+        return usesEntity;
+    }
+
+    public String render(Player player) {
+        return render(player, null, null, null);
+    }
+
+    /**
+     * @param playerLocation snapshot of the player's location, taken here when null and needed
+     * @param entity         target entity, or null
+     * @param damage         damage, or null
+     */
+    public String render(Player player, Location playerLocation, LivingEntity entity, Double damage) {
+        if (placeholders.length == 0) {
+            return source;
+        }
+        if (playerLocation == null && usesPlayerLocation) {
+            playerLocation = player.getLocation();
+        }
+        Location entityLocation = entity != null && usesEntity ? entity.getLocation() : null;
+        StringBuilder builder = new StringBuilder(source.length() + 32);
+        for (int i = 0; i < placeholders.length; i++) {
+            builder.append(literals[i]);
+            Placeholder placeholder = placeholders[i];
+            String value = value(placeholder, player, playerLocation, entity, entityLocation, damage);
+            if (value == null) {
+                builder.append('{').append(placeholder.name).append('}');
+            } else {
+                builder.append(value);
+            }
+        }
+        builder.append(literals[placeholders.length]);
+        return builder.toString();
+    }
+
+    private static String value(Placeholder placeholder, Player player, Location location, LivingEntity entity, Location entityLocation, Double damage) {
+        switch (placeholder) {
+            case PLAYER:
+                return player.getName();
+            case PLAYER_X:
+                return Float.toString(-location.getBlockX());
+            case PLAYER_Y:
+                return Float.toString(-location.getBlockY());
+            case PLAYER_Z:
+                return Float.toString(-location.getBlockZ());
+            case PLAYER_YAW:
+            case YAW:
+                return Float.toString(90 + location.getYaw());
+            case PLAYER_PITCH:
+            case PITCH:
+                return Float.toString(-location.getPitch());
+            case DAMAGE:
+                return damage == null ? null : String.valueOf(damage);
+            default:
+                break;
+        }
+        if (entity == null) {
+            return null;
+        }
+        switch (placeholder) {
+            case ENTITY:
+                return entity.getName();
+            case ENTITY_UUID:
+                return entity.getUniqueId().toString();
+            case ENTITY_X:
+                return Float.toString(entityLocation.getBlockX());
+            case ENTITY_Y:
+                return Float.toString(entityLocation.getBlockY());
+            case ENTITY_Z:
+                return Float.toString(entityLocation.getBlockZ());
+            case ENTITY_YAW:
+                return Float.toString(90 + entityLocation.getYaw());
+            case ENTITY_PITCH:
+                return Float.toString(-entityLocation.getPitch());
+            default:
+                return null;
+        }
+    }
+}
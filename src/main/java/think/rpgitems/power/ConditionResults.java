@@ -0,0 +1,15 @@
+package think.rpgitems.power;
+
+/**
+ * The conditions referenced by a {@link PowerCompositeCondition}, whose results are evaluated on first access.
+ * <p>
+ * Only valid during the {@link PowerCompositeCondition#combine} call it is passed to.
+ */
+public interface ConditionResults {
+
+    int size();
+
+    PowerCondition condition(int index);
+
+    PowerResult result(int index);
+}
@@ -0,0 +1,185 @@
+package think.rpgitems.power;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.util.Vector;
+import think.rpgitems.RPGItems;
+
+import java.util.*;
+
+/**
+ * Collects the particles powers spawn during a tick and sends them in one pass on the next one.
+ * <p>
+ * Identical requests (same particle, position, spread, speed and data) are merged into a single packet.
+ * Each viewer only receives points within {@code general.particle.view_distance} (32 blocks for non forced
+ * particles, as vanilla does) that are not behind them, and at most {@code general.particle.budget} packets
+ * per tick. Over budget the visible points are thinned evenly instead of cut off.
+ */
+public class ParticleEmitter extends BukkitRunnable {
+    private static final double NEAR_DISTANCE = 8;
+    private static final double VANILLA_DISTANCE = 32;
+    private static final int MAX_FREE = 4096;
+
+    private static final ParticleEmitter instance = new ParticleEmitter();
+
+    private final List<Request> pending = new ArrayList<>();
+    private final Map<Request, Request> merged = new HashMap<>();
+    private final ArrayDeque<Request> free = new ArrayDeque<>();
+    private final Request probe = new Request();
+    private int[] visible = new int[64];
+    private boolean running = false;
+
+    private long requested;
+    private long requestedParticles;
+    private long mergedRequests;
+    private long sentPackets;
+    private long culledDistance;
+    private long culledView;
+    private long culledBudget;
+
+    public static ParticleEmitter instance() {
+        return instance;
+    }
+
+    public void start(Plugin plugin) {
+        if (running) return;
+        running = true;
+        runTaskTimer(plugin, 1, 1);
+    }
+
+    public void emit(World world, Particle particle, Location location, int count, double offsetX, double offsetY, double offsetZ, double speed, Object data, boolean force) {
+        if (!running || !RPGItems.plugin.cfg.particleBatch) {
+            world.spawnParticle(particle, location, count, offsetX, offsetY, offsetZ, speed, data, force);
+            return;
+        }
+        requested++;
+        requestedParticles += count;
+        probe.set(world, particle, location, count, offsetX, offsetY, offsetZ, speed, data, force);
+        Request existing = merged.get(probe);
+        if (existing != null) {
+            existing.count += count;
+            existing.force |= force;
+            mergedRequests++;
+            return;
+        }
+        Request request = free.isEmpty() ? new Request() : free.pop();
+        request.set(world, particle, location, count, offsetX, offsetY, offsetZ, speed, data, force);
+        merged.put(request, request);
+        pending.add(request);
+    }
+
+    @Override
+    public void run() {
+        if (pending.isEmpty()) return;
+        if (visible.length < pending.size()) {
+            visible = new int[Math.max(pending.size(), visible.length * 2)];
+        }
+        int budget = Math.max(1, RPGItems.plugin.cfg.particleBudget);
+        double viewDistance = RPGItems.plugin.cfg.particleViewDistance;
+        double angle = RPGItems.plugin.cfg.particleViewAngle;
+        double cosHalfAngle = angle <= 0 || angle >= 360 ? -1 : Math.cos(Math.toRadians(angle / 2));
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            World world = player.getWorld();
+            Location eye = player.getEyeLocation();
+            Vector direction = eye.getDirection();
+            double ex = eye.getX(), ey = eye.getY(), ez = eye.getZ();
+            double dx = direction.getX(), dy = direction.getY(), dz = direction.getZ();
+            int count = 0;
+            for (int i = 0; i < pending.size(); i++) {
+                Request request = pending.get(i);
+                if (request.world != world) continue;
+                double x = request.x - ex, y = request.y - ey, z = request.z - ez;
+                double distanceSquared = x * x + y * y + z * z;
+                double maxDistance = request.force ? viewDistance : Math.min(viewDistance, VANILLA_DISTANCE);
+                if (distanceSquared > maxDistance * maxDistance) {
+                    culledDistance++;
+                    continue;
+                }
+                if (cosHalfAngle > -1 && distanceSquared > NEAR_DISTANCE * NEAR_DISTANCE
+                            && x * dx + y * dy + z * dz < cosHalfAngle * Math.sqrt(distanceSquared)) {
+                    culledView++;
+                    continue;
+                }
+                visible[count++] = i;
+            }
+            int stride = (count + budget - 1) / budget;
+            for (int i = 0; i < count; i++) {
+                if (stride > 1 && i % stride != 0) {
+                    culledBudget++;
+                    continue;
+                }
+                Request request = pending.get(visible[i]);
+                player.spawnParticle(request.particle, request.x, request.y, request.z, request.count, request.offsetX, request.offsetY, request.offsetZ, request.speed, request.data);
+                sentPackets++;
+            }
+        }
+        for (Request request : pending) {
+            request.world = null;
+            request.data = null;
+            if (free.size() < MAX_FREE) {
+                free.push(request);
+            }
+        }
+        pending.clear();
+        merged.clear();
+    }
+
+    public String stats() {
+        return String.format("particles: %d requests (%d particles, %d merged), %d packets sent, culled %d by distance, %d by view, %d by budget",
+                requested, requestedParticles, mergedRequests, sentPackets, culledDistance, culledView, culledBudget);
+    }
+
+    private static final class Request {
+        private World world;
+        private Particle particle;
+        private double x;
+        private double y;
+        private double z;
+        private int count;
+        private double offsetX;
+        private double offsetY;
+        private double offsetZ;
+        private double speed;
+        private Object data;
+        private boolean force;
+
+        void set(World world, Particle particle, Location location, int count, double offsetX, double offsetY, double offsetZ, double speed, Object data, boolean force) {
+            this.world = world;
+            this.particle = particle;
+            this.x = location.getX();
+            this.y = location.getY();
+            this.z = location.getZ();
+            this.count = count;
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+            this.offsetZ = offsetZ;
+            this.speed = speed;
+            this.data = data;
+            this.force = force;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Request)) return false;
+            Request other = (Request) obj;
+            return world == other.world && particle == other.particle && data == other.data
+                           && x == other.x && y == other.y && z == other.z
+                           && offsetX == other.offsetX && offsetY == other.offsetY && offsetZ == other.offsetZ
+                           && speed == other.speed;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = particle.hashCode();
+            hash = 31 * hash + Double.hashCode(x);
+            hash = 31 * hash + Double.hashCode(y);
+            hash = 31 * hash + Double.hashCode(z);
+            return 31 * hash + Double.hashCode(speed);
+        }
+    }
+}
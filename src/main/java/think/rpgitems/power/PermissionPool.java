@@ -0,0 +1,105 @@
+package think.rpgitems.power;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.permissions.PermissionAttachment;
+import org.bukkit.scheduler.BukkitTask;
+import think.rpgitems.RPGItems;
+
+import java.util.*;
+
+/**
+ * Temporary permission attachments for command powers, shared per player and permission set.
+ * <p>
+ * The first command of a tick creates the attachment; later commands with the same permissions reuse it
+ * without touching the permission tree. Like the one tick attachments they replace, they are removed on the
+ * tick after their last use.
+ */
+final class PermissionPool {
+    private static final Map<UUID, Map<String, Grant>> grants = new HashMap<>();
+    private static final Map<String, String[]> nodes = new HashMap<>();
+    private static BukkitTask sweeper;
+    private static long tick = 0;
+
+    private PermissionPool() {
+    }
+
+    static void attach(Player player, String permissions, List<String> permissionList) {
+        Map<String, Grant> playerGrants = grants.computeIfAbsent(player.getUniqueId(), (ignored) -> new HashMap<>());
+        Grant grant = playerGrants.get(permissions);
+        if (grant != null && grant.attachment.getPermissible() == player) {
+            grant.lastUse = tick;
+            return;
+        }
+        PermissionAttachment attachment = null;
+        for (String permission : permissionList) {
+            if (player.hasPermission(permission)) {
+                break;
+            }
+            if (attachment == null) {
+                attachment = player.addAttachment(RPGItems.plugin);
+            }
+            for (String node : nodes.computeIfAbsent(permission, PermissionPool::prefixes)) {
+                attachment.setPermission(node, true);
+            }
+        }
+        if (attachment == null) {
+            if (playerGrants.isEmpty()) {
+                grants.remove(player.getUniqueId());
+            }
+            return;
+        }
+        playerGrants.put(permissions, new Grant(attachment, tick));
+        if (sweeper == null) {
+            sweeper = Bukkit.getScheduler().runTaskTimer(RPGItems.plugin, PermissionPool::sweep, 1, 1);
+        }
+    }
+
+    /**
+     * @return {@code a}, {@code a.b}, {@code a.b.c} for {@code a.b.c}
+     */
+    private static String[] prefixes(String permission) {
+        String[] perms = permission.split("\\.");
+        String[] prefixes = new String[perms.length];
+        StringBuilder p = new StringBuilder();
+        for (int i = 0; i < perms.length; i++) {
+            p.append(perms[i]);
+            prefixes[i] = p.toString();
+            p.append('.');
+        }
+        return prefixes;
+    }
+
+    private static void sweep() {
+        tick++;
+        Iterator<Map<String, Grant>> players = grants.values().iterator();
+        while (players.hasNext()) {
+            Map<String, Grant> playerGrants = players.next();
+            Iterator<Grant> iterator = playerGrants.values().iterator();
+            while (iterator.hasNext()) {
+                Grant grant = iterator.next();
+                if (tick > grant.lastUse) {
+                    grant.attachment.remove();
+                    iterator.remove();
+                }
+            }
+            if (playerGrants.isEmpty()) {
+                players.remove();
+            }
+        }
+        if (grants.isEmpty()) {
+            sweeper.cancel();
+            sweeper = null;
+        }
+    }
+
+    private static final class Grant {
+        private final PermissionAttachment attachment;
+        private long lastUse;
+
+        Grant(PermissionAttachment attachment, long lastUse) {
+            this.attachment = attachment;
+            this.lastUse = lastUse;
+        }
+    }
+}
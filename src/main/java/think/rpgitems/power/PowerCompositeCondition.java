@@ -0,0 +1,12 @@
+package think.rpgitems.power;
+
+/**
+ * A condition over the conditions it references by id in {@link Power#getConditions()}.
+ * <p>
+ * Items resolve these references when their powers change, and call {@link #combine} instead of
+ * {@link #check} when dispatching, so that a referenced condition is evaluated at most once per dispatch.
+ */
+public interface PowerCompositeCondition<T> extends PowerCondition<T> {
+
+    PowerResult<T> combine(ConditionResults results);
+}
@@ -0,0 +1,20 @@
+package think.rpgitems.power;
+
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import think.rpgitems.item.RPGItem;
+
+import java.util.List;
+
+/**
+ * Called before the powers of an item are fired, ahead of {@link RPGItemsPowersPreFireEvent} and without
+ * constructing it. Registered with {@link PowerEvents#addHook}.
+ */
+@FunctionalInterface
+public interface PowerDispatchHook {
+
+    /**
+     * @return false to cancel the dispatch
+     */
+    boolean beforeFire(Player player, ItemStack stack, RPGItem item, Trigger trigger, List<? extends Power> powers);
+}
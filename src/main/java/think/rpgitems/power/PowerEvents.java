@@ -0,0 +1,154 @@
+package think.rpgitems.power;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.RegisteredListener;
+import think.rpgitems.RPGItems;
+import think.rpgitems.item.RPGItem;
+
+import java.util.*;
+import java.util.logging.Level;
+
+/**
+ * Pre-dispatch hooks, and whether {@link RPGItemsPowersPreFireEvent} and {@link RPGItemsPowersPostFireEvent}
+ * are worth constructing for a trigger.
+ * <p>
+ * The events are only fired when a plugin listens to them. The listeners of a plugin that called
+ * {@link #subscribe} only receive, and only cause firing for, the triggers it subscribed to; listeners of
+ * other plugins receive every trigger. The handler lists are only inspected again after listeners were
+ * registered or unregistered.
+ */
+public final class PowerEvents {
+    private static final Map<String, Set<Trigger>> subscriptions = new HashMap<>();
+    private static PowerDispatchHook[] hooks = new PowerDispatchHook[0];
+
+    public static final Gate PRE_FIRE = new Gate(RPGItemsPowersPreFireEvent.getHandlerList());
+    public static final Gate POST_FIRE = new Gate(RPGItemsPowersPostFireEvent.getHandlerList());
+
+    private PowerEvents() {
+        throw new IllegalStateException();
+    }
+
+    public static void addHook(PowerDispatchHook hook) {
+        if (Arrays.asList(hooks).contains(hook)) return;
+        PowerDispatchHook[] added = Arrays.copyOf(hooks, hooks.length + 1);
+        added[hooks.length] = hook;
+        hooks = added;
+    }
+
+    public static void removeHook(PowerDispatchHook hook) {
+        hooks = Arrays.stream(hooks).filter(h -> h != hook).toArray(PowerDispatchHook[]::new);
+    }
+
+    /**
+     * @return whether all hooks let the powers fire
+     */
+    public static boolean beforeFire(Player player, ItemStack stack, RPGItem item, Trigger trigger, List<? extends Power> powers) {
+        for (PowerDispatchHook hook : hooks) {
+            if (!hook.beforeFire(player, stack, item, trigger, powers)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Limits the fire events {@code plugin}'s listeners receive to these triggers, adding to earlier subscriptions
+     */
+    public static void subscribe(Plugin plugin, Trigger... triggers) {
+        subscriptions.computeIfAbsent(plugin.getName(), k -> new HashSet<>()).addAll(Arrays.asList(triggers));
+        PRE_FIRE.invalidate();
+        POST_FIRE.invalidate();
+    }
+
+    /**
+     * Lets {@code plugin}'s listeners receive the fire events of every trigger again
+     */
+    public static void unsubscribe(Plugin plugin) {
+        subscriptions.remove(plugin.getName());
+        PRE_FIRE.invalidate();
+        POST_FIRE.invalidate();
+    }
+
+    public static final class Gate {
+        private final HandlerList handlers;
+        private RegisteredListener[] seen;
+        private boolean all;
+        private Set<Trigger> triggers = Collections.emptySet();
+        /**
+         * Triggers each listener subscribed to, by index in {@link #seen}, null for every trigger
+         */
+        private Set<Trigger>[] subscribed;
+        private boolean filtered;
+
+        private Gate(HandlerList handlers) {
+            this.handlers = handlers;
+        }
+
+        /**
+         * @return whether any listener wants the event of this trigger
+         */
+        public boolean wants(Trigger trigger) {
+            RegisteredListener[] listeners = handlers.getRegisteredListeners();
+            if (listeners != seen) {
+                update(listeners);
+            }
+            return all || triggers.contains(trigger);
+        }
+
+        /**
+         * Passes the event to the listeners that want this trigger
+         */
+        public void fire(Event event, Trigger trigger) {
+            RegisteredListener[] listeners = handlers.getRegisteredListeners();
+            if (listeners != seen) {
+                update(listeners);
+            }
+            if (!filtered) {
+                Bukkit.getPluginManager().callEvent(event);
+                return;
+            }
+            for (int i = 0; i < listeners.length; i++) {
+                RegisteredListener listener = listeners[i];
+                if (!listener.getPlugin().isEnabled() || (subscribed[i] != null && !subscribed[i].contains(trigger))) {
+                    continue;
+                }
+                try {
+                    listener.callEvent(event);
+                } catch (Throwable e) {
+                    RPGItems.logger.log(Level.SEVERE, "Could not pass event " + event.getEventName() + " to " + listener.getPlugin().getDescription().getFullName(), e);
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void update(RegisteredListener[] listeners) {
+            boolean all = false;
+            boolean filtered = false;
+            Set<Trigger> triggers = new HashSet<>();
+            Set<Trigger>[] subscribed = new Set[listeners.length];
+            for (int i = 0; i < listeners.length; i++) {
+                subscribed[i] = subscriptions.get(listeners[i].getPlugin().getName());
+                if (subscribed[i] == null) {
+                    all = true;
+                } else {
+                    filtered = true;
+                    triggers.addAll(subscribed[i]);
+                }
+            }
+            this.all = all;
+            this.filtered = filtered;
+            this.triggers = triggers;
+            this.subscribed = subscribed;
+            this.seen = listeners;
+        }
+
+        private void invalidate() {
+            seen = null;
+        }
+    }
+}
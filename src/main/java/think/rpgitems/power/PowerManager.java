@@ -2,11 +2,14 @@ package think.rpgitems.power;
 
 import cat.nyaa.nyaacore.Pair;
 import cat.nyaa.nyaacore.utils.ClassPathUtils;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.HashBiMap;
 import org.bukkit.NamespacedKey;
 import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.plugin.Plugin;
 import think.rpgitems.AdminHandler;
 import think.rpgitems.RPGItems;
@@ -29,6 +32,11 @@ import java.util.stream.Stream;
 public class PowerManager {
     private static final Map<Class<? extends Power>, Map<String, PowerProperty>> properties = new HashMap<>();
 
+    /**
+     * Properties built on demand for fields that are not registered, by field
+     */
+    private static final Map<Field, PowerProperty> unregisteredProperties = new HashMap<>();
+
     private static final Map<Class<? extends Power>, PowerMeta> metas = new HashMap<>();
 
     private static final Map<String, Plugin> extensions = new HashMap<>();
@@ -44,6 +52,22 @@ public class PowerManager {
 
     private static final HashMap<NamespacedKey, NamespacedKey> overrides = new HashMap<>();
 
+    /**
+     * General interfaces to try when adapting, by power class
+     */
+    private static final Map<Class<? extends Power>, List<Class<? extends Power>>> adapterPreferences = new HashMap<>();
+
+    /**
+     * Adapted instances by target interface, weakly keyed by the adapted power
+     */
+    private static final Map<Class<? extends Power>, Cache<Power, Power>> adaptedPowers = new HashMap<>();
+
+    /**
+     * Compact power ids assigned in registration order, and the power keys by id
+     */
+    private static final Map<Class<? extends Power>, Integer> powerIds = new HashMap<>();
+    private static final List<NamespacedKey> powerKeysById = new ArrayList<>();
+
     private static void registerPower(Class<? extends Power> clazz) {
         NamespacedKey key;
         try {
@@ -51,6 +75,8 @@ public class PowerManager {
             key = p.getNamespacedKey();
             if (key != null) {
                 powers.put(key, clazz);
+                powerIds.put(clazz, powerKeysById.size());
+                powerKeysById.add(key);
             }
         } catch (Exception e) {
             RPGItems.plugin.getLogger().log(Level.WARNING, "Failed to add power", e);
@@ -127,14 +153,89 @@ public class PowerManager {
     }
 
     public static void setPowerProperty(CommandSender sender, Power power, String field, String value) throws IllegalAccessException {
-        Field f;
         Class<? extends Power> cls = power.getClass();
+        Map<String, PowerProperty> props = properties.get(cls);
+        PowerProperty property = props == null ? null : props.get(field);
+        if (property == null) {
+            try {
+                property = getProperty(cls, cls.getField(field));
+            } catch (NoSuchFieldException e) {
+                throw new AdminHandler.CommandException("internal.error.invalid_command_arg", e);//TODO
+            }
+        }
+        Utils.setPowerProperty(sender, power, property, value);
+    }
+
+    /**
+     * @return the registered property of this field, or a new one if the field is not a registered property
+     */
+    public static PowerProperty getProperty(Class<? extends Power> cls, Field field) {
+        Map<String, PowerProperty> props = properties.get(cls);
+        PowerProperty property = props == null ? null : props.get(field.getName());
+        if (property != null && property.field().equals(field)) {
+            return property;
+        }
+        return unregisteredProperties.computeIfAbsent(field, PowerProperty::of);
+    }
+
+    /**
+     * Reads and writes back every property of a fresh instance of each registered power {@code rounds} times,
+     * reflectively and through the generated accessors, and renders them the old way through a YAML section.
+     */
+    public static String benchmarkProperties(int rounds) {
+        List<Pair<Power, PowerProperty>> corpus = new ArrayList<>();
+        for (Map.Entry<Class<? extends Power>, Map<String, PowerProperty>> entry : properties.entrySet()) {
+            Power power = instantiate(entry.getKey());
+            for (PowerProperty property : entry.getValue().values()) {
+                corpus.add(Pair.of(power, property));
+            }
+        }
+        int sink = 0;
+        long start = System.nanoTime();
         try {
-            f = cls.getField(field);
-        } catch (NoSuchFieldException e) {
-            throw new AdminHandler.CommandException("internal.error.invalid_command_arg", e);//TODO
+            for (int i = 0; i < rounds; i++) {
+                for (Pair<Power, PowerProperty> pair : corpus) {
+                    Field field = pair.getValue().field();
+                    Object value = field.get(pair.getKey());
+                    field.set(pair.getKey(), value);
+                    sink += value == null ? 0 : 1;
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+        long reflectTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            for (Pair<Power, PowerProperty> pair : corpus) {
+                Object value = pair.getValue().get(pair.getKey());
+                pair.getValue().set(pair.getKey(), value);
+                sink += value == null ? 0 : 1;
+            }
         }
-        Utils.setPowerProperty(sender, power, f, value);
+        long accessorTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            for (Pair<Power, PowerProperty> pair : corpus) {
+                YamlConfiguration conf = new YamlConfiguration();
+                Utils.saveProperty(pair.getKey(), conf, "value", pair.getValue());
+                String value = conf.getString("value");
+                sink += value == null ? 0 : 1;
+            }
+        }
+        long yamlTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            for (Pair<Power, PowerProperty> pair : corpus) {
+                String value = Utils.getProperty(pair.getKey(), "value", pair.getValue());
+                sink += value == null ? 0 : 1;
+            }
+        }
+        long renderTime = System.nanoTime() - start;
+        long ops = Math.max(1L, (long) rounds * corpus.size());
+        return String.format("%d properties x %d rounds: reflection %.1fns/op, accessors %.1fns/op; render via yaml %.1fns/op, direct %.1fns/op (%d)",
+                corpus.size(), rounds, reflectTime / (double) ops, accessorTime / (double) ops,
+                yamlTime / (double) ops, renderTime / (double) ops, sink);
     }
 
     public static List<String> getAcceptedValue(Class<? extends Power> cls, AcceptedValue anno) {
@@ -179,9 +280,12 @@ public class PowerManager {
         return getProperties(powers.get(key));
     }
 
+    /**
+     * Read only, so item loader threads may resolve powers while the main thread runs
+     */
     @CheckForNull
     public static Class<? extends Power> getPower(NamespacedKey key) {
-        return powers.get(overrides.computeIfAbsent(key, Function.identity()));
+        return powers.get(overrides.getOrDefault(key, key));
     }
 
     public static <T extends Power> T instantiate(Class<T> power) {
@@ -213,6 +317,23 @@ public class PowerManager {
         return extensions.size() > 1;
     }
 
+    /**
+     * @return the compact id assigned to this power class at registration, or -1 if not registered
+     */
+    public static int getPowerId(Class<? extends Power> cls) {
+        Integer id = powerIds.get(cls);
+        return id == null ? -1 : id;
+    }
+
+    public static int getPowerId(NamespacedKey key) {
+        Class<? extends Power> cls = powers.get(key);
+        return cls == null ? -1 : getPowerId(cls);
+    }
+
+    public static NamespacedKey getPowerKey(int id) {
+        return id >= 0 && id < powerKeysById.size() ? powerKeysById.get(id) : null;
+    }
+
     public static PowerMeta getMeta(NamespacedKey key) {
         return getMeta(powers.get(key));
     }
@@ -223,12 +344,25 @@ public class PowerManager {
 
     public static <G extends Power, S extends Power> void registerAdapter(Class<G> general, Class<S> specified, Function<G, S> adapter) {
         adapters.put(general, specified, adapter);
+        adaptedPowers.remove(specified);
     }
 
     public static <T extends Power> T adaptPower(Power power, Class<T> specified) {
-        List<Class<? extends Power>> generals = Arrays.asList(getMeta(power.getNamespacedKey()).generalInterface());
-        Set<Class<? extends Power>> statics = Power.getStaticInterfaces(power.getClass());
-        List<Class<? extends Power>> preferences = generals.stream().filter(statics::contains).collect(Collectors.toList());
+        Cache<Power, Power> cache = adaptedPowers.computeIfAbsent(specified, k -> CacheBuilder.newBuilder().weakKeys().weakValues().build());
+        Power adapted = cache.getIfPresent(power);
+        if (adapted == null) {
+            adapted = createAdapter(power, specified);
+            cache.put(power, adapted);
+        }
+        return (T) adapted;
+    }
+
+    private static <T extends Power> T createAdapter(Power power, Class<T> specified) {
+        List<Class<? extends Power>> preferences = adapterPreferences.computeIfAbsent(power.getClass(), cls -> {
+            List<Class<? extends Power>> generals = Arrays.asList(getMeta(power.getNamespacedKey()).generalInterface());
+            Set<Class<? extends Power>> statics = Power.getStaticInterfaces(cls);
+            return generals.stream().filter(statics::contains).collect(Collectors.toList());
+        });
 
         for (Class<? extends Power> general : preferences) {
             if (adapters.contains(general, specified)) {
@@ -0,0 +1,165 @@
+package think.rpgitems.power;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerToggleSneakEvent;
+import org.bukkit.event.player.PlayerToggleSprintEvent;
+import org.bukkit.inventory.ItemStack;
+import think.rpgitems.item.RPGItem;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Adapts a {@link PowerPlain} to the event based triggers by delegating to {@link PowerPlain#fire(Player, ItemStack)}
+ */
+public class PowerPlainAdapter implements PowerOffhandClick, PowerSprint, PowerSneak, PowerAttachment {
+    private final PowerPlain power;
+
+    public PowerPlainAdapter(PowerPlain power) {
+        this.power = power;
+    }
+
+    public PowerPlain getPower() {
+        return power;
+    }
+
+    @Override
+    public PowerResult<Void> offhandClick(Player player, ItemStack stack, PlayerInteractEvent event) {
+        return power.fire(player, stack);
+    }
+
+    @Override
+    public PowerResult<Void> sprint(Player player, ItemStack stack, PlayerToggleSprintEvent event) {
+        return power.fire(player, stack);
+    }
+
+    @Override
+    public PowerResult<Void> sneak(Player player, ItemStack stack, PlayerToggleSneakEvent event) {
+        return power.fire(player, stack);
+    }
+
+    @Override
+    public PowerResult<Void> attachment(Player player, ItemStack stack, RPGItem originItem, Event originEvent, ItemStack originStack) {
+        return power.fire(player, stack);
+    }
+
+    @Override
+    public void init(ConfigurationSection s) {
+        power.init(s);
+    }
+
+    @Override
+    public void save(ConfigurationSection s) {
+        power.save(s);
+    }
+
+    @Override
+    public NamespacedKey getNamespacedKey() {
+        return power.getNamespacedKey();
+    }
+
+    @Override
+    public String getName() {
+        return power.getName();
+    }
+
+    @Override
+    public String getLocalizedName(String locale) {
+        return power.getLocalizedName(locale);
+    }
+
+    @Override
+    public String getLocalizedName(Locale locale) {
+        return power.getLocalizedName(locale);
+    }
+
+    @Override
+    public String displayName() {
+        return power.displayName();
+    }
+
+    @Override
+    public String getDisplayName() {
+        return power.getDisplayName();
+    }
+
+    @Override
+    public String displayText() {
+        return power.displayText();
+    }
+
+    @Override
+    public String localizedDisplayText(String locale) {
+        return power.localizedDisplayText(locale);
+    }
+
+    @Override
+    public String localizedDisplayText(Locale locale) {
+        return power.localizedDisplayText(locale);
+    }
+
+    @Override
+    public RPGItem getItem() {
+        return power.getItem();
+    }
+
+    @Override
+    public void setItem(RPGItem item) {
+        power.setItem(item);
+    }
+
+    @Override
+    public Set<Trigger> getTriggers() {
+        return power.getTriggers();
+    }
+
+    @Override
+    public Set<String> getSelectors() {
+        return power.getSelectors();
+    }
+
+    @Override
+    public Set<String> getConditions() {
+        return power.getConditions();
+    }
+
+    @Override
+    public String requiredContext() {
+        return power.requiredContext();
+    }
+
+    @Override
+    public void deinit() {
+        power.deinit();
+    }
+
+    @Override
+    public <T extends Power> T cast(Class<T> powerClass) {
+        if (powerClass.isInstance(this)) {
+            return powerClass.cast(this);
+        }
+        return power.cast(powerClass);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof PowerPlainAdapter) {
+            return power.equals(((PowerPlainAdapter) obj).power);
+        }
+        return power.equals(obj);
+    }
+
+    @Override
+    public int hashCode() {
+        return power.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return power.toString();
+    }
+}
@@ -1,8 +1,23 @@
 package think.rpgitems.power;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 
+/**
+ * A {@link Property} of a power class, with accessors generated when the class is registered.
+ * <p>
+ * Reads and writes go through method handles bound to the field, and the annotations the property
+ * helpers in {@link Utils} consult are looked up once here instead of on every access.
+ */
 public class PowerProperty {
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Power.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Power.class, Object.class);
+
     private final String name;
 
     private final boolean required;
@@ -13,12 +28,76 @@ public class PowerProperty {
 
     private final Field field;
 
+    private final MethodHandle getter;
+
+    private final MethodHandle setter;
+
+    private final Serializer serializer;
+
+    private final Deserializer deserializer;
+
+    private final BooleanChoice booleanChoice;
+
+    private final AcceptedValue acceptedValue;
+
+    private final Class<?> elementType;
+
+    private final Getter sharedGetter;
+
+    private final Setter sharedSetter;
+
     private PowerProperty(String name, boolean required, int order, String[] alias, Field field) {
         this.name = name;
         this.required = required;
         this.order = order;
         this.alias = alias;
         this.field = field;
+        this.getter = getter(field);
+        this.setter = setter(field);
+        this.serializer = field.getAnnotation(Serializer.class);
+        this.deserializer = field.getAnnotation(Deserializer.class);
+        this.booleanChoice = field.getAnnotation(BooleanChoice.class);
+        this.acceptedValue = field.getAnnotation(AcceptedValue.class);
+        Type type = field.getGenericType();
+        Type arg = type instanceof ParameterizedType ? ((ParameterizedType) type).getActualTypeArguments()[0] : null;
+        this.elementType = arg instanceof Class ? (Class<?>) arg : null;
+        this.sharedGetter = serializer == null ? null : shared(serializer.value());
+        this.sharedSetter = deserializer == null ? null : shared(deserializer.value());
+    }
+
+    private static MethodHandle getter(Field field) {
+        try {
+            field.setAccessible(true);
+            return MethodHandles.lookup().unreflectGetter(field).asType(GETTER_TYPE);
+        } catch (IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static MethodHandle setter(Field field) {
+        if (Modifier.isFinal(field.getModifiers())) {
+            return null;
+        }
+        try {
+            field.setAccessible(true);
+            return MethodHandles.lookup().unreflectSetter(field).asType(SETTER_TYPE);
+        } catch (IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Accessors declared as inner classes capture the power, so only the others can be shared
+     */
+    private static <T> T shared(Class<? extends T> cls) {
+        if (cls.getEnclosingClass() != null && !Modifier.isStatic(cls.getModifiers())) {
+            return null;
+        }
+        try {
+            return Getter.getAccessor(null, cls);
+        } catch (RuntimeException e) {
+            return null;
+        }
     }
 
     public String name() {
@@ -41,8 +120,70 @@ public class PowerProperty {
         return field;
     }
 
+    public Class<?> type() {
+        return field.getType();
+    }
+
+    /**
+     * @return the type argument of a collection property, or null
+     */
+    public Class<?> elementType() {
+        return elementType;
+    }
+
+    public Serializer serializer() {
+        return serializer;
+    }
+
+    public Deserializer deserializer() {
+        return deserializer;
+    }
+
+    public BooleanChoice booleanChoice() {
+        return booleanChoice;
+    }
+
+    public AcceptedValue acceptedValue() {
+        return acceptedValue;
+    }
+
+    public Getter getter(Power power) {
+        return sharedGetter != null ? sharedGetter : Getter.from(power, serializer.value());
+    }
+
+    public Setter setter(Power power) {
+        return sharedSetter != null ? sharedSetter : Setter.from(power, deserializer.value());
+    }
+
+    public Object get(Power power) {
+        try {
+            return getter == null ? field.get(power) : (Object) getter.invokeExact(power);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Error reading " + field + " of " + power, e);
+        }
+    }
+
+    public void set(Power power, Object value) {
+        try {
+            if (setter == null) {
+                field.set(power, value);
+            } else {
+                setter.invokeExact(power, value);
+            }
+        } catch (Throwable e) {
+            throw new IllegalStateException("Error writing " + field + " of " + power, e);
+        }
+    }
+
     public static PowerProperty from(Field field, Property annotation, boolean required) {
         if (annotation == null) return null;
         return new PowerProperty(field.getName(), required, annotation.order(), annotation.alias(), field);
     }
+
+    /**
+     * @return a property for a field that is not annotated with {@link Property}
+     */
+    static PowerProperty of(Field field) {
+        return new PowerProperty(field.getName(), false, 0, new String[0], field);
+    }
 }
@@ -20,4 +20,13 @@ public interface PowerSneaking extends Power {
      */
     @CheckReturnValue
     PowerResult<Void> sneaking(Player player, ItemStack stack);
+
+    /**
+     * Ticks between two calls of this power by the ticker
+     *
+     * @return Interval in ticks
+     */
+    default int tickInterval() {
+        return 1;
+    }
 }
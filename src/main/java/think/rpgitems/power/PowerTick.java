@@ -19,4 +19,13 @@ public interface PowerTick extends Power {
      */
     @CheckReturnValue
     PowerResult<Void> tick(Player player, ItemStack stack);
+
+    /**
+     * Ticks between two calls of this power by the ticker
+     *
+     * @return Interval in ticks
+     */
+    default int tickInterval() {
+        return 1;
+    }
 }
@@ -1,49 +1,219 @@
 package think.rpgitems.power;
 
 import org.bukkit.Bukkit;
+import org.bukkit.entity.HumanEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.player.*;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.scheduler.BukkitRunnable;
 import think.rpgitems.data.Context;
+import think.rpgitems.data.PlayerEquipment;
 import think.rpgitems.item.ItemManager;
 import think.rpgitems.item.RPGItem;
 
-import java.util.Optional;
+import java.util.*;
 
 /**
  * BukkitRunnable that runs {@link PowerTick#tick(Player, ItemStack)}
+ * <p>
+ * Only players whose equipped items carry TICK, TICK_OFFHAND or SNEAKING powers are visited. The index is
+ * refreshed from equipment related events, and every player is rescanned once per {@link #RESCAN_INTERVAL}
+ * ticks to catch changes no event reports. Each player gets a phase offset, so powers with a
+ * {@link PowerTick#tickInterval()} above 1 and the rescans are spread over different ticks.
  */
-public class Ticker extends BukkitRunnable {
+public class Ticker extends BukkitRunnable implements Listener {
+    private static final int RESCAN_INTERVAL = 20;
+
+    private final Map<UUID, TickingPlayer> index = new HashMap<>();
+    private final Set<Player> dirty = new HashSet<>();
+    private TickingPlayer[] ticking = new TickingPlayer[0];
+    private long tick = 0;
 
     @Override
     public void run() {
         Context.instance().cleanTick();
-        for (final Player player : Bukkit.getOnlinePlayers()) {
+        PlayerEquipment.instance().nextTick();
+        tick++;
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (dirty.contains(player) || (tick + phase(player)) % RESCAN_INTERVAL == 0) {
+                rescan(player);
+            }
+        }
+        dirty.clear();
+        if (index.isEmpty()) return;
+        // Powers may make players quit, which removes them from the index
+        ticking = index.values().toArray(ticking);
+        int count = index.size();
+        for (int n = 0; n < count; n++) {
+            TickingPlayer entry = ticking[n];
+            ticking[n] = null;
+            Player player = entry.player;
+            long local = tick + entry.phase;
+            if (entry.removed) continue;
             if (ItemManager.canUse(player, null, false) == Event.Result.DENY) continue;
-            ItemStack[] armour = player.getInventory().getArmorContents();
-            for (ItemStack part : armour) {
-                Optional<RPGItem> item = ItemManager.toRPGItem(part);
-                if (!item.isPresent())
-                    continue;
-                RPGItem rgi = item.get();
-                rgi.power(player, part, null, Trigger.TICK);
+            PlayerEquipment.Snapshot equipment = PlayerEquipment.instance().get(player);
+            if (entry.armour) {
+                ItemStack[] armour = equipment.getArmour();
+                for (int i = 0; i < armour.length; i++) {
+                    RPGItem item = equipment.getArmourItem(i);
+                    if (item == null || entry.removed)
+                        continue;
+                    item.tick(player, armour[i], Trigger.TICK, local);
+                }
+            }
+            if (entry.mainhand && !entry.removed) {
+                ItemStack itemInMainHand = equipment.getMainHand();
+                RPGItem mainhand = equipment.getMainHandItem();
+                if (mainhand != null) {
+                    mainhand.tick(player, itemInMainHand, Trigger.TICK, local);
+
+                    if (player.isSneaking() && !entry.removed) {
+                        mainhand.tick(player, itemInMainHand, Trigger.SNEAKING, local);
+                    }
+                } else {
+                    dirty.add(player);
+                }
             }
-            ItemStack itemInMainHand = player.getInventory().getItemInMainHand();
-            ItemStack itemInOffHand = player.getInventory().getItemInOffHand();
-            Optional<RPGItem> offhand = ItemManager.toRPGItem(itemInOffHand);
-            Optional<RPGItem> mainhand = ItemManager.toRPGItem(itemInMainHand);
-            if (mainhand.isPresent()) {
-                mainhand.get().power(player, itemInMainHand, null, Trigger.TICK);
-
-                if (player.isSneaking()) {
-                    mainhand.get().power(player, itemInMainHand, null, Trigger.SNEAKING);
+            if (entry.offhand && !entry.removed) {
+                ItemStack itemInOffHand = equipment.getOffHand();
+                RPGItem offhand = equipment.getOffHandItem();
+                if (offhand != null) {
+                    offhand.tick(player, itemInOffHand, Trigger.TICK_OFFHAND, local);
+                } else {
+                    dirty.add(player);
                 }
             }
-            if (offhand.isPresent()){
-                offhand.get().power(player, itemInOffHand, null, Trigger.TICK_OFFHAND);
+        }
+    }
+
+    private static int phase(Player player) {
+        return player.getUniqueId().hashCode() & 0x7FFFFFFF;
+    }
+
+    private void rescan(Player player) {
+        if (!player.isOnline()) {
+            remove(player);
+            return;
+        }
+        PlayerEquipment.Snapshot equipment = PlayerEquipment.instance().get(player);
+        boolean armour = false;
+        for (int i = 0; i < equipment.getArmour().length; i++) {
+            RPGItem part = equipment.getArmourItem(i);
+            if (part != null && part.hasTrigger(Trigger.TICK)) {
+                armour = true;
+                break;
             }
         }
+        RPGItem mainhandItem = equipment.getMainHandItem();
+        RPGItem offhandItem = equipment.getOffHandItem();
+        boolean mainhand = mainhandItem != null && (mainhandItem.hasTrigger(Trigger.TICK) || mainhandItem.hasTrigger(Trigger.SNEAKING));
+        boolean offhand = offhandItem != null && offhandItem.hasTrigger(Trigger.TICK_OFFHAND);
+        if (!armour && !mainhand && !offhand) {
+            remove(player);
+            return;
+        }
+        TickingPlayer entry = index.computeIfAbsent(player.getUniqueId(), (ignored) -> new TickingPlayer(player));
+        entry.armour = armour;
+        entry.mainhand = mainhand;
+        entry.offhand = offhand;
+    }
+
+    private void remove(Player player) {
+        TickingPlayer entry = index.remove(player.getUniqueId());
+        if (entry != null) {
+            entry.removed = true;
+        }
+    }
+
+    private void markDirty(HumanEntity entity) {
+        if (entity instanceof Player) {
+            dirty.add((Player) entity);
+            PlayerEquipment.instance().invalidate((Player) entity);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent e) {
+        markDirty(e.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent e) {
+        dirty.remove(e.getPlayer());
+        remove(e.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangeItem(PlayerItemHeldEvent e) {
+        markDirty(e.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onSwapHand(PlayerSwapHandItemsEvent e) {
+        markDirty(e.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerInteract(PlayerInteractEvent e) {
+        markDirty(e.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onInventoryClick(InventoryClickEvent e) {
+        markDirty(e.getWhoClicked());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onInventoryDrag(InventoryDragEvent e) {
+        markDirty(e.getWhoClicked());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onInventoryClose(InventoryCloseEvent e) {
+        markDirty(e.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerPickup(EntityPickupItemEvent e) {
+        if (e.getEntity() instanceof Player) {
+            markDirty((Player) e.getEntity());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerDrop(PlayerDropItemEvent e) {
+        markDirty(e.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onItemBreak(PlayerItemBreakEvent e) {
+        markDirty(e.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(PlayerRespawnEvent e) {
+        markDirty(e.getPlayer());
     }
 
+    private static final class TickingPlayer {
+        private final Player player;
+        private final int phase;
+        private boolean armour;
+        private boolean mainhand;
+        private boolean offhand;
+        private boolean removed;
+
+        TickingPlayer(Player player) {
+            this.player = player;
+            this.phase = phase(player);
+        }
+    }
 }
@@ -13,12 +13,10 @@ import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.permissions.PermissionAttachment;
 import org.bukkit.scoreboard.Objective;
 import org.bukkit.util.BoundingBox;
 import org.bukkit.util.Vector;
@@ -26,12 +24,12 @@ import think.rpgitems.AdminHandler;
 import think.rpgitems.I18n;
 import think.rpgitems.RPGItems;
 import think.rpgitems.data.Context;
+import think.rpgitems.data.CooldownTable;
 import think.rpgitems.data.Font;
 import think.rpgitems.power.impl.PowerSelector;
 import think.rpgitems.utils.MaterialUtils;
 
 import java.lang.reflect.Field;
-import java.lang.reflect.ParameterizedType;
 import java.math.BigDecimal;
 import java.nio.ByteBuffer;
 import java.util.*;
@@ -161,25 +159,23 @@ public class Utils {
      * @return the boolean
      */
     public static boolean checkCooldown(Power power, Player player, long cdTicks, boolean showWarn, boolean showPower) {
-        return checkAndSetCooldown(power, player, cdTicks, showWarn, showPower, "cooldown." + power.getItem().getUid()  + "." + power.getNamespacedKey().toString());
+        int id = PowerManager.getPowerId(power.getClass());
+        if (id < 0) {
+            id = CooldownTable.instance().namedId(power.getNamespacedKey().toString());
+        }
+        return checkAndSetCooldown(power, player, cdTicks, showWarn, showPower, CooldownTable.key(power.getItem().getUid(), id));
     }
 
     public static boolean checkCooldownByString(Power power, Player player, String key, long cdTicks, boolean showWarn, boolean showPower) {
-        return checkAndSetCooldown(power, player, cdTicks, showWarn, showPower, "cooldown." + power.getItem().getUid()  + "." + key);
+        return checkAndSetCooldown(power, player, cdTicks, showWarn, showPower, CooldownTable.key(power.getItem().getUid(), CooldownTable.instance().namedId(key)));
     }
 
-    private static boolean checkAndSetCooldown(Power power, Player player, long cooldownTime, boolean showWarn, boolean showPower, String key) {
-        long cooldown;
-        Long value = (Long) Context.instance().get(player.getUniqueId(), key);
-        long nowTick = System.currentTimeMillis() / 50;
-        if (value == null) {
-            cooldown = nowTick;
-        } else {
-            cooldown = value;
-        }
+    private static boolean checkAndSetCooldown(Power power, Player player, long cooldownTime, boolean showWarn, boolean showPower, long key) {
+        CooldownTable cooldowns = CooldownTable.instance();
+        long cooldown = cooldowns.getDeadline(player.getUniqueId(), key);
+        long nowTick = CooldownTable.nowTick();
         if (cooldown <= nowTick) {
-            long cd = nowTick + cooldownTime;
-            Context.instance().put(player.getUniqueId(), key, cd, cd);
+            cooldowns.setDeadline(player.getUniqueId(), key, nowTick + cooldownTime);
             return true;
         } else {
             if (showWarn) {
@@ -195,55 +191,56 @@ public class Utils {
 
     public static void attachPermission(Player player, String permissions) {
         if (permissions.length() != 0 && !permissions.equals("*")) {
-            List<String> permissionList = permissionCache.getUnchecked(permissions);
-            for (String permission : permissionList) {
-                if (player.hasPermission(permission)) {
-                    return;
-                }
-                PermissionAttachment attachment = player.addAttachment(RPGItems.plugin, 1);
-                String[] perms = permission.split("\\.");
-                StringBuilder p = new StringBuilder();
-                for (String perm : perms) {
-                    p.append(perm);
-                    attachment.setPermission(p.toString(), true);
-                    p.append('.');
-                }
-            }
+            PermissionPool.attach(player, permissions, permissionCache.getUnchecked(permissions));
         }
     }
 
-    @SuppressWarnings("unchecked")
     public static void saveProperty(Power p, ConfigurationSection section, String property, Field field) throws IllegalAccessException {
-        Serializer getter = field.getAnnotation(Serializer.class);
-        Object val = field.get(p);
-        if (val == null) return;
-        if (getter != null) {
-            section.set(property, Getter.from(p, getter.value()).get(val));
-        } else {
-            if (Collection.class.isAssignableFrom(field.getType())) {
-                Collection c = (Collection) val;
-                if (c.isEmpty()) return;
-                if (Set.class.isAssignableFrom(field.getType())) {
-                    section.set(property, c.stream().map(Object::toString).sorted().collect(Collectors.joining(",")));
-                } else {
-                    section.set(property, c.stream().map(Object::toString).collect(Collectors.joining(",")));
-                }
+        saveProperty(p, section, property, PowerManager.getProperty(p.getClass(), field));
+    }
+
+    public static void saveProperty(Power p, ConfigurationSection section, String property, PowerProperty prop) {
+        Object val = serializeProperty(p, prop);
+        if (val != null) {
+            section.set(property, val);
+        }
+    }
+
+    /**
+     * @return the value {@link #saveProperty} writes for this property, or null if it writes nothing
+     */
+    @SuppressWarnings("unchecked")
+    public static Object serializeProperty(Power p, PowerProperty prop) {
+        Object val = prop.get(p);
+        if (val == null) return null;
+        if (prop.serializer() != null) {
+            return prop.getter(p).get(val);
+        }
+        Class<?> type = prop.type();
+        if (Collection.class.isAssignableFrom(type)) {
+            Collection c = (Collection) val;
+            if (c.isEmpty()) return null;
+            if (Set.class.isAssignableFrom(type)) {
+                return c.stream().map(Object::toString).sorted().collect(Collectors.joining(","));
             } else {
-                val = field.getType().isEnum() ? ((Enum<?>) val).name() : val;
-                section.set(property, val);
+                return c.stream().map(Object::toString).collect(Collectors.joining(","));
             }
         }
+        return type.isEnum() ? ((Enum<?>) val).name() : val;
     }
 
     public static String getProperty(Power p, String property, Field field) {
-        YamlConfiguration configuration = new YamlConfiguration();
+        return getProperty(p, property, PowerManager.getProperty(p.getClass(), field));
+    }
+
+    public static String getProperty(Power p, String property, PowerProperty prop) {
         try {
-            saveProperty(p, configuration, property, field);
-        } catch (IllegalAccessException e) {
-            RPGItems.plugin.getLogger().log(Level.WARNING, "Error getting property " + property + " from " + field + " in " + p, e);
+            Object val = serializeProperty(p, prop);
+            return val == null ? null : val.toString();
+        } catch (RuntimeException e) {
+            RPGItems.plugin.getLogger().log(Level.WARNING, "Error getting property " + property + " from " + prop.field() + " in " + p, e);
             return null;
         }
-        return configuration.getString(property);
     }
 
     public static Vector distance(BoundingBox bb, Vector vec) {
@@ -446,82 +443,86 @@ public class Utils {
         return (format == null ? "" : format);
     }
 
-    @SuppressWarnings("unchecked")
     public static void setPowerPropertyUnchecked(CommandSender sender, Power power, Field field, String value) {
+        setPowerPropertyUnchecked(sender, power, PowerManager.getProperty(power.getClass(), field), value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static void setPowerPropertyUnchecked(CommandSender sender, Power power, PowerProperty property, String value) {
         try {
             if (value.equals("null")) {
-                field.set(power, null);
+                property.set(power, null);
                 return;
             }
-            Deserializer st = field.getAnnotation(Deserializer.class);
-            field.setAccessible(true);
+            Deserializer st = property.deserializer();
+            Class<?> type = property.type();
+            String fieldName = property.field().getName();
             if (st != null) {
                 try {
-                    Optional<Object> v = Setter.from(power, st.value()).set(value);
+                    Optional<Object> v = property.setter(power).set(value);
                     if (!v.isPresent()) return;
-                    field.set(power, v.get());
+                    property.set(power, v.get());
                 } catch (IllegalArgumentException e) {
                     new Message(I18n.format(st.message(), value)).send(sender);
                 }
             } else {
-                if (field.getType().equals(int.class) || field.getType().equals(Integer.class)) {
+                if (type.equals(int.class) || type.equals(Integer.class)) {
                     try {
-                        field.set(power, Integer.parseInt(value));
+                        property.set(power, Integer.parseInt(value));
                     } catch (NumberFormatException e) {
                         throw new AdminHandler.CommandException("internal.error.bad_int", value);
                     }
-                } else if (field.getType().equals(long.class) || field.getType().equals(Long.class)) {
+                } else if (type.equals(long.class) || type.equals(Long.class)) {
                     try {
-                        field.set(power, Long.parseLong(value));
+                        property.set(power, Long.parseLong(value));
                     } catch (NumberFormatException e) {
                         throw new AdminHandler.CommandException("internal.error.bad_int", value);
                     }
-                } else if (field.getType().equals(float.class) || field.getType().equals(Float.class)) {
+                } else if (type.equals(float.class) || type.equals(Float.class)) {
                     try {
-                        field.set(power, Float.parseFloat(value));
+                        property.set(power, Float.parseFloat(value));
                     } catch (NumberFormatException e) {
                         throw new AdminHandler.CommandException("internal.error.bad_double", value);
                     }
-                } else if (field.getType().equals(double.class) || field.getType().equals(Double.class)) {
+                } else if (type.equals(double.class) || type.equals(Double.class)) {
                     try {
-                        field.set(power, Double.parseDouble(value));
+                        property.set(power, Double.parseDouble(value));
                     } catch (NumberFormatException e) {
                         throw new AdminHandler.CommandException("internal.error.bad_double", value);
                     }
-                } else if (field.getType().equals(String.class)) {
-                    field.set(power, value);
-                } else if (field.getType().equals(boolean.class) || field.getType().equals(Boolean.class)) {
+                } else if (type.equals(String.class)) {
+                    property.set(power, value);
+                } else if (type.equals(boolean.class) || type.equals(Boolean.class)) {
                     if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false")) {
-                        field.set(power, Boolean.valueOf(value));
+                        property.set(power, Boolean.valueOf(value));
                     } else {
-                        throw new AdminHandler.CommandException("message.error.invalid_option", value, field.getName(), "true, false");
+                        throw new AdminHandler.CommandException("message.error.invalid_option", value, fieldName, "true, false");
                     }
-                } else if (field.getType().isEnum()) {
+                } else if (type.isEnum()) {
                     try {
-                        field.set(power, Enum.valueOf((Class<Enum>) field.getType(), value));
+                        property.set(power, Enum.valueOf((Class<Enum>) type, value));
                     } catch (IllegalArgumentException e) {
-                        throw new AdminHandler.CommandException("internal.error.bad_enum", field.getName(), Stream.of(field.getType().getEnumConstants()).map(Object::toString).collect(Collectors.joining(", ")));
+                        throw new AdminHandler.CommandException("internal.error.bad_enum", fieldName, Stream.of(type.getEnumConstants()).map(Object::toString).collect(Collectors.joining(", ")));
                     }
-                } else if (Collection.class.isAssignableFrom(field.getType())) {
-                    ParameterizedType listType = (ParameterizedType) field.getGenericType();
-                    Class<?> listArg = (Class<?>) listType.getActualTypeArguments()[0];
+                } else if (Collection.class.isAssignableFrom(type)) {
+                    Class<?> listArg = property.elementType();
                     String[] valueStrs = value.split(",");
                     Stream<String> values = Arrays.stream(valueStrs).filter(s -> !s.isEmpty()).map(String::trim);
-                    if (field.getType().equals(List.class)) {
+                    if (type.equals(List.class)) {
                         if (listArg.isEnum()) {
                             Class<? extends Enum> enumClass = (Class<? extends Enum>) listArg;
                             Stream<Enum> enumStream = values.map(v -> Enum.valueOf(enumClass, v));
                             List<Enum> list = enumStream.collect(Collectors.toList());
-                            field.set(power, list);
+                            property.set(power, list);
                         } else if (listArg.equals(String.class)) {
                             List<String> list = values.collect(Collectors.toList());
-                            field.set(power, list);
+                            property.set(power, list);
                         } else if (listArg.equals(Integer.class)) {
                             List<Integer> list = values.map(Integer::parseInt).collect(Collectors.toList());
-                            field.set(power, list);
+                            property.set(power, list);
                         } else if (listArg.equals(Double.class)) {
                             List<Double> list = values.map(Double::parseDouble).collect(Collectors.toList());
-                            field.set(power, list);
+                            property.set(power, list);
                         } else {
                             throw new AdminHandler.CommandException("internal.error.command_exception");
                         }
@@ -530,28 +531,28 @@ public class Utils {
                             Class<? extends Enum> enumClass = (Class<? extends Enum>) listArg;
                             Stream<Enum> enumStream = values.map(v -> Enum.valueOf(enumClass, v));
                             Set<Enum> set = enumStream.collect(Collectors.toSet());
-                            field.set(power, set);
+                            property.set(power, set);
                         } else if (listArg.equals(String.class)) {
                             Set<String> set = values.collect(Collectors.toSet());
-                            field.set(power, set);
+                            property.set(power, set);
                         } else if (listArg.equals(Trigger.class)) {
                             Set<String> ignored = new LinkedHashSet<>();
                             Set<Trigger> set = Trigger.getValid(values.collect(Collectors.toList()), ignored);
                             if (!ignored.isEmpty()) {
                                 new Message(I18n.format("message.power.ignored_trigger", String.join(", ", ignored), power.getName(), power.getItem().getName())).send(sender);
                             }
-                            field.set(power, set);
+                            property.set(power, set);
                         } else if (listArg.equals(Integer.class)) {
                             Set<Integer> list = values.map(Integer::parseInt).collect(Collectors.toSet());
-                            field.set(power, list);
+                            property.set(power, list);
                         } else if (listArg.equals(Double.class)) {
                             Set<Double> list = values.map(Double::parseDouble).collect(Collectors.toSet());
-                            field.set(power, list);
+                            property.set(power, list);
                         } else {
                             throw new AdminHandler.CommandException("internal.error.command_exception");
                         }
                     }
-                } else if (field.getType() == ItemStack.class) {
+                } else if (type == ItemStack.class) {
                     Material m = MaterialUtils.getMaterial(value, sender);
                     ItemStack item;
                     if (sender instanceof Player && value.equalsIgnoreCase("HAND")) {
@@ -566,45 +567,50 @@ public class Utils {
                     } else {
                         item = new ItemStack(m);
                     }
-                    field.set(power, item.clone());
+                    property.set(power, item.clone());
                 } else {
-                    throw new AdminHandler.CommandException("internal.error.invalid_command_arg", power.getName(), field.getName());
+                    throw new AdminHandler.CommandException("internal.error.invalid_command_arg", power.getName(), fieldName);
                 }
             }
-        } catch (IllegalAccessException e) {
+        } catch (IllegalStateException e) {
             throw new AdminHandler.CommandException("internal.error.command_exception", e);
         }
     }
 
     public static void setPowerProperty(CommandSender sender, Power power, Field field, String value) throws
             IllegalAccessException {
+        setPowerProperty(sender, power, PowerManager.getProperty(power.getClass(), field), value);
+    }
+
+    public static void setPowerProperty(CommandSender sender, Power power, PowerProperty property, String value) {
         Class<? extends Power> cls = power.getClass();
-        BooleanChoice bc = field.getAnnotation(BooleanChoice.class);
+        String fieldName = property.field().getName();
+        BooleanChoice bc = property.booleanChoice();
         if (bc != null) {
             String trueChoice = bc.trueChoice();
             String falseChoice = bc.falseChoice();
             if (value.equalsIgnoreCase(trueChoice) || value.equalsIgnoreCase(falseChoice)) {
-                field.set(power, value.equalsIgnoreCase(trueChoice));
+                property.set(power, value.equalsIgnoreCase(trueChoice));
             } else {
-                throw new AdminHandler.CommandException("message.error.invalid_option", value, field.getName(), falseChoice + ", " + trueChoice);//TODO
+                throw new AdminHandler.CommandException("message.error.invalid_option", value, fieldName, falseChoice + ", " + trueChoice);//TODO
             }
             return;
         }
-        AcceptedValue as = field.getAnnotation(AcceptedValue.class);
+        AcceptedValue as = property.acceptedValue();
         if (as != null) {
             List<String> acc = PowerManager.getAcceptedValue(cls, as);
-            if (!Collection.class.isAssignableFrom(field.getType())) {
+            if (!Collection.class.isAssignableFrom(property.type())) {
                 if (!acc.contains(value))
-                    throw new AdminHandler.CommandException("message.error.invalid_option", value, field.getName(), String.join(", ", acc));
+                    throw new AdminHandler.CommandException("message.error.invalid_option", value, fieldName, String.join(", ", acc));
             } else {
                 String[] valueStrs = value.split(",");
                 List<String> values = Arrays.stream(valueStrs).filter(s -> !s.isEmpty()).map(String::trim).collect(Collectors.toList());
                 if (values.stream().filter(s -> !s.isEmpty()).anyMatch(v -> !acc.contains(v))) {
-                    throw new AdminHandler.CommandException("message.error.invalid_option", value, field.getName(), String.join(", ", acc));
+                    throw new AdminHandler.CommandException("message.error.invalid_option", value, fieldName, String.join(", ", acc));
                 }
             }
         }
-        setPowerPropertyUnchecked(sender, power, field, value);
+        setPowerPropertyUnchecked(sender, power, property, value);
     }
 
     public static byte[] decodeUUID(UUID complex) {
@@ -10,7 +10,6 @@ import think.rpgitems.item.RPGItem;
 import think.rpgitems.power.*;
 
 import java.io.Serializable;
-import java.lang.reflect.Field;
 import java.util.*;
 
 /**
@@ -53,15 +52,10 @@ public abstract class BasePower implements Serializable, Power {
         for (Map.Entry<String, PowerProperty> entry : properties.entrySet()) {
             String name = entry.getKey();
             PowerProperty property = entry.getValue();
-            Field field = property.field();
             if (name.equals("triggers") && powerMeta.immutableTrigger()) {
                 continue;
             }
-            try {
-                Utils.saveProperty(this, section, name, field);
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException(e);
-            }
+            Utils.saveProperty(this, section, name, property);
         }
     }
 
@@ -72,19 +66,14 @@ public abstract class BasePower implements Serializable, Power {
         for (Map.Entry<String, PowerProperty> entry : properties.entrySet()) {
             String name = entry.getKey();
             PowerProperty property = entry.getValue();
-            Field field = property.field();
             if (name.equals("triggers") && powerMeta.immutableTrigger()) {
                 continue;
             }
-            if (field.getType().isAssignableFrom(ItemStack.class)) {
+            if (property.type().isAssignableFrom(ItemStack.class)) {
                 ItemStack itemStack = section.getItemStack(name);
                 if (itemStack != null) {
-                    try {
-                        field.set(this, itemStack);
-                        continue;
-                    } catch (IllegalAccessException e) {
-                        throw new RuntimeException(e);
-                    }
+                    property.set(this, itemStack);
+                    continue;
                 }
             }
             String value = section.getString(name);
@@ -98,7 +87,7 @@ public abstract class BasePower implements Serializable, Power {
                 value = section.getString("consumption");
             }
             if (value != null) {
-                Utils.setPowerPropertyUnchecked(Bukkit.getConsoleSender(), this, field, value);
+                Utils.setPowerPropertyUnchecked(Bukkit.getConsoleSender(), this, property, value);
             }
         }
     }
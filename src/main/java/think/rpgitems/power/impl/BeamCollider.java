@@ -0,0 +1,92 @@
+package think.rpgitems.power.impl;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.util.BoundingBox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hit detection for one tick of a beam.
+ * <p>
+ * {@link #gather} runs a single entity query around everything the beam can reach this tick and keeps the
+ * candidate boxes as plain doubles, {@link #hits} then tests each sub-step against them without touching
+ * the world again.
+ */
+final class BeamCollider {
+    private double halfX;
+    private double halfY;
+    private double halfZ;
+
+    private LivingEntity[] entities = new LivingEntity[8];
+    private double[] boxes = new double[8 * 6];
+    private int size = 0;
+    private final List<LivingEntity> hits = new ArrayList<>();
+
+    /**
+     * @param halfX half width of a beam particle on the x axis, likewise for y and z
+     */
+    void resize(double halfX, double halfY, double halfZ) {
+        this.halfX = halfX;
+        this.halfY = halfY;
+        this.halfZ = halfZ;
+    }
+
+    void clear() {
+        Arrays.fill(entities, 0, size, null);
+        size = 0;
+        hits.clear();
+    }
+
+    /**
+     * Collects every living entity whose box may meet a particle within {@code reach} blocks of {@code start}
+     */
+    void gather(World world, Location start, double reach) {
+        clear();
+        for (Entity entity : world.getNearbyEntities(start, reach + halfX, reach + halfY, reach + halfZ)) {
+            if (!(entity instanceof LivingEntity)) continue;
+            if (size == entities.length) {
+                entities = Arrays.copyOf(entities, size * 2);
+                boxes = Arrays.copyOf(boxes, size * 2 * 6);
+            }
+            BoundingBox box = entity.getBoundingBox();
+            int offset = size * 6;
+            boxes[offset] = box.getMinX();
+            boxes[offset + 1] = box.getMinY();
+            boxes[offset + 2] = box.getMinZ();
+            boxes[offset + 3] = box.getMaxX();
+            boxes[offset + 4] = box.getMaxY();
+            boxes[offset + 5] = box.getMaxZ();
+            entities[size++] = (LivingEntity) entity;
+        }
+    }
+
+    /**
+     * @return entities overlapping the particle at {@code loc}, at most {@code limit} of them.
+     * The list is reused by the next call.
+     */
+    List<LivingEntity> hits(Location loc, Entity from, boolean canHitSelf, boolean skipDead, int limit) {
+        hits.clear();
+        if (size == 0) return hits;
+        double minX = loc.getX() - halfX, maxX = loc.getX() + halfX;
+        double minY = loc.getY() - halfY, maxY = loc.getY() + halfY;
+        double minZ = loc.getZ() - halfZ, maxZ = loc.getZ() + halfZ;
+        for (int i = 0; i < size && hits.size() < limit; i++) {
+            int offset = i * 6;
+            if (boxes[offset] >= maxX || boxes[offset + 3] <= minX
+                        || boxes[offset + 1] >= maxY || boxes[offset + 4] <= minY
+                        || boxes[offset + 2] >= maxZ || boxes[offset + 5] <= minZ) {
+                continue;
+            }
+            LivingEntity entity = entities[i];
+            if (!canHitSelf && entity.equals(from)) continue;
+            if (skipDead && entity.isDead()) continue;
+            hits.add(entity);
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,127 @@
+package think.rpgitems.power.impl;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.util.Vector;
+import think.rpgitems.RPGItems;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.logging.Level;
+
+/**
+ * Advances every active beam in one pass per tick on the main thread.
+ * <p>
+ * Beams live in a flat array and their state objects are recycled once finished. The timer only runs while
+ * there are beams to advance.
+ */
+final class BeamScheduler {
+    private static final BeamScheduler instance = new BeamScheduler();
+
+    private Beam[] active = new Beam[16];
+    private int size = 0;
+    private final ArrayDeque<Beam> free = new ArrayDeque<>();
+    private BukkitTask task;
+
+    static BeamScheduler instance() {
+        return instance;
+    }
+
+    /**
+     * Queues a beam that starts after {@code delay} ticks. Must be called from the main thread.
+     */
+    void schedule(PowerBeam power, LivingEntity from, ItemStack stack, int delay) {
+        Beam beam = free.isEmpty() ? new Beam() : free.poll();
+        beam.power = power;
+        beam.from = from;
+        beam.stack = stack;
+        beam.delay = delay;
+        if (size == active.length) {
+            active = Arrays.copyOf(active, size * 2);
+        }
+        active[size++] = beam;
+        if (task == null) {
+            task = Bukkit.getScheduler().runTaskTimer(RPGItems.plugin, this::tick, 1, 1);
+        }
+    }
+
+    private void tick() {
+        int i = 0;
+        while (i < size) {
+            Beam beam = active[i];
+            boolean running;
+            try {
+                running = advance(beam);
+            } catch (Exception e) {
+                RPGItems.logger.log(Level.WARNING, "Error advancing beam of " + beam.power.getItem().getName(), e);
+                running = false;
+            }
+            if (running) {
+                i++;
+                continue;
+            }
+            active[i] = active[--size];
+            active[size] = null;
+            beam.reset();
+            free.push(beam);
+        }
+        if (size == 0) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    private boolean advance(Beam beam) {
+        if (beam.delay > 0) {
+            beam.delay--;
+            return true;
+        }
+        if (!beam.from.isValid()) {
+            return false;
+        }
+        if (!beam.started) {
+            beam.started = true;
+            beam.power.start(beam);
+        }
+        return beam.power.advance(beam);
+    }
+
+    /**
+     * Mutable state of one beam, owned by the scheduler and handed to {@link PowerBeam} for each step.
+     */
+    static final class Beam {
+        PowerBeam power;
+        LivingEntity from;
+        ItemStack stack;
+        int delay;
+        boolean started;
+
+        Vector towards;
+        Location lastLocation;
+        Entity target;
+        int bounces;
+        boolean bounced;
+        int step;
+        int particles;
+        double partsPerTick;
+        double reachPerTick;
+        final BeamCollider collider = new BeamCollider();
+
+        private void reset() {
+            power = null;
+            from = null;
+            stack = null;
+            towards = null;
+            lastLocation = null;
+            target = null;
+            started = false;
+            bounced = false;
+            step = 0;
+            collider.clear();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package think.rpgitems.power.impl;
 
 import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
@@ -83,7 +84,8 @@ public class PowerAOECommand extends PowerCommand implements PowerHit {
 
         attachPermission(player, permission);
 
-        String usercmd = handlePlayerPlaceHolder(player, command);
+        CommandTemplate template = template();
+        Location playerLocation = player.getLocation();
 
         boolean wasOp = player.isOp();
         try {
@@ -97,7 +99,6 @@ public class PowerAOECommand extends PowerCommand implements PowerHit {
                 List<LivingEntity> ent = getLivingEntitiesInCone(nearbyEntities, player.getEyeLocation().toVector(), facing, player.getEyeLocation().getDirection());
                 LivingEntity[] entities = ent.toArray(new LivingEntity[0]);
                 for (int i = 0; i < count && i < entities.length; ++i) {
-                    String cmd = usercmd;
                     LivingEntity e = entities[i];
                     if ((mustsee && !player.hasLineOfSight(e))
                                 || (!selfapplication && e == player)
@@ -107,8 +108,7 @@ public class PowerAOECommand extends PowerCommand implements PowerHit {
                         ++count;
                         continue;
                     }
-                    cmd = PowerCommandHit.handleEntityPlaceHolder(e, cmd);
-                    Bukkit.getServer().dispatchCommand(player, cmd);
+                    Bukkit.getServer().dispatchCommand(player, template.render(player, playerLocation, e, null));
                 }
             }
         } finally {
@@ -164,40 +164,35 @@ public class PowerAOEDamage extends BasePower implements PowerOffhandClick, Powe
     public PowerResult<Void> fire(Player player, ItemStack stack) {
         if (!checkCooldown(this, player, cooldown, true, true)) return PowerResult.cd();
         if (!getItem().consumeDurability(stack, cost)) return PowerResult.cost();
-        Context.instance().putTemp(player.getUniqueId(), DAMAGE_SOURCE, getNamespacedKey().toString());
-        Context.instance().putTemp(player.getUniqueId(), OVERRIDING_DAMAGE, damage);
-        Context.instance().putTemp(player.getUniqueId(), SUPPRESS_MELEE, suppressMelee);
         if (selfapplication) dealDamage(player, damage);
         List<LivingEntity> nearbyEntities = getNearestLivingEntities(this, player.getLocation(), player, range, minrange);
         List<LivingEntity> ent = getLivingEntitiesInCone(nearbyEntities, player.getEyeLocation().toVector(), angle, player.getEyeLocation().getDirection());
         LivingEntity[] entities = ent.toArray(new LivingEntity[0]);
+        String source = getNamespacedKey().toString();
         int c = count;
-        for (int i = 0; i < c && i < entities.length; ++i) {
-            LivingEntity e = entities[i];
-            if ((mustsee && !player.hasLineOfSight(e))
-                        || (e == player)
-                        || (!incluePlayers && e instanceof Player)
-            ) {
-                c++;
-                continue;
+        try (Context.DamageFrame frame = Context.instance().pushDamage(player.getUniqueId(), source, damage, suppressMelee, null)) {
+            for (int i = 0; i < c && i < entities.length; ++i) {
+                LivingEntity e = entities[i];
+                if ((mustsee && !player.hasLineOfSight(e))
+                            || (e == player)
+                            || (!incluePlayers && e instanceof Player)
+                ) {
+                    c++;
+                    continue;
+                }
+                if (delay <= 0) {
+                    e.damage(damage, player);
+                } else {
+                    (new BukkitRunnable() {
+                        @Override
+                        public void run() {
+                            try (Context.DamageFrame delayed = Context.instance().pushDamage(player.getUniqueId(), source, damage, suppressMelee, stack)) {
+                                e.damage(damage, player);
+                            }
+                        }
+                    }).runTaskLater(RPGItems.plugin, delay);
+                }
             }
-            if (delay <= 0) {
-                e.damage(damage, player);
-            } else {
-                (new BukkitRunnable() {
-                    @Override
-                    public void run() {
-                        Context.instance().putTemp(player.getUniqueId(), OVERRIDING_DAMAGE, damage);
-                        Context.instance().putTemp(player.getUniqueId(), SUPPRESS_MELEE, suppressMelee);
-                        Context.instance().putTemp(player.getUniqueId(), DAMAGE_SOURCE_ITEM, stack);
-                        e.damage(damage, player);
-                        Context.instance().putTemp(player.getUniqueId(), SUPPRESS_MELEE, suppressMelee);
-                        Context.instance().putTemp(player.getUniqueId(), OVERRIDING_DAMAGE, null);
-                        Context.instance().removeTemp(player.getUniqueId(), DAMAGE_SOURCE_ITEM);
-                    }
-                }).runTaskLater(RPGItems.plugin, delay);
-            }
-
         }
         return PowerResult.ok();
     }
@@ -12,17 +12,13 @@ import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerToggleSneakEvent;
 import org.bukkit.event.player.PlayerToggleSprintEvent;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.util.BoundingBox;
 import org.bukkit.util.RayTraceResult;
 import org.bukkit.util.Vector;
 import org.librazy.nclangchecker.LangKey;
-import think.rpgitems.RPGItems;
 import think.rpgitems.data.Context;
 import think.rpgitems.power.*;
 
 import java.util.*;
-import java.util.logging.Level;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -213,31 +209,28 @@ public class PowerBeam extends BasePower implements PowerPlain, PowerRightClick,
     }
 
     private PowerResult<Void> beam(LivingEntity from, ItemStack stack) {
+        BeamScheduler scheduler = BeamScheduler.instance();
         if (burstCount > 0) {
             for (int i = 0; i < burstCount; i++) {
-                new BukkitRunnable() {
-                    @Override
-                    public void run() {
-                        if (cone) {
-                            for (int j = 0; j < beamAmount; j++) {
-                                internalFireBeam(from, stack);
-                            }
-                        } else {
-                            internalFireBeam(from, stack);
-                        }
-                    }
-                }.runTaskLaterAsynchronously(RPGItems.plugin, i * burstInterval);
+                int beams = cone ? beamAmount : 1;
+                for (int j = 0; j < beams; j++) {
+                    scheduler.schedule(this, from, stack, i * burstInterval);
+                }
             }
-            return PowerResult.ok();
         } else {
-            return internalFireBeam(from, stack);
+            scheduler.schedule(this, from, stack, 0);
         }
+        return PowerResult.ok();
     }
 
     final Vector crosser = new Vector(1, 1, 1);
 
-    private PowerResult<Void> internalFireBeam(LivingEntity from, ItemStack stack) {
+    /**
+     * Aims a beam when its burst comes up, called by the {@link BeamScheduler}
+     */
+    void start(BeamScheduler.Beam beam) {
         lengthPerSpawn = 1 / spawnsPerBlock;
+        LivingEntity from = beam.from;
         Location fromLocation = from.getEyeLocation();
         Vector towards = from.getEyeLocation().getDirection();
 
@@ -254,35 +247,72 @@ public class PowerBeam extends BasePower implements PowerPlain, PowerRightClick,
             }
         }
 
-
         Entity target = null;
         if (from instanceof Player && homing) {
             target = getNextTarget(from.getEyeLocation().getDirection(), fromLocation, from);
-//                    Utils.getLivingEntitiesInCone(Utils.getNearestLivingEntities(this, fromLocation, ((Player) from), Math.min(1000, length), 0), fromLocation.toVector(), homingRange, from.getEyeLocation().getDirection()).stream()
-//                    .filter(livingEntity -> {
-//                        switch (homingTarget) {
-//                            case MOBS:
-//                                return !(livingEntity instanceof Player);
-//                            case PLAYERS:
-//                                return livingEntity instanceof Player && !((Player) livingEntity).getGameMode().equals(GameMode.SPECTATOR);
-//                            case ALL:
-//                                return !(livingEntity instanceof Player) || !((Player) livingEntity).getGameMode().equals(GameMode.SPECTATOR);
-//                        }
-//                        return true;
-//                    })
-//                    .findFirst().orElse(null);
         }
 
-        switch (mode) {
-            case BEAM:
-                new PlainTask(from, towards, amount, length, target, bounce, stack).runTask(RPGItems.plugin);
-                break;
-            case PROJECTILE:
-                new MovingTask(from, towards, amount, length, target, bounce, stack).runTask(RPGItems.plugin);
-                break;
+        beam.towards = towards.normalize();
+        beam.lastLocation = fromLocation;
+        beam.target = target;
+        beam.bounces = bounce;
+        double lpT = ((double) length) / ((double) movementTicks);
+        beam.partsPerTick = lpT / lengthPerSpawn;
+        beam.reachPerTick = Math.ceil(beam.partsPerTick) * lengthPerSpawn;
+        int amountPerBlock = amount / ((int) Math.floor(length));
+        beam.particles = mode == Mode.BEAM ? (int) Math.ceil(amountPerBlock / beam.partsPerTick) : (int) (amountPerBlock / spawnsPerBlock);
+        beam.collider.resize(Math.max(offsetX, 0.1) + 0.1, Math.max(offsetY, 0.1) + 0.1, Math.max(offsetZ, 0.1) + 0.1);
+    }
+
+    /**
+     * Moves a beam for one tick, or all the way in {@link Mode#BEAM}
+     *
+     * @return whether the beam is still travelling
+     */
+    boolean advance(BeamScheduler.Beam beam) {
+        if (mode == Mode.BEAM) {
+            while (beam.step < movementTicks) {
+                if (!step(beam)) return false;
+            }
+            return false;
         }
-        return PowerResult.ok();
+        return step(beam) && beam.step <= movementTicks;
     }
+
+    private boolean step(BeamScheduler.Beam beam) {
+        LivingEntity from = beam.from;
+        World world = from.getWorld();
+        Location lastLocation = beam.lastLocation;
+        boolean isStepHit = false;
+        Vector step = new Vector(0, 0, 0);
+        beam.collider.gather(world, lastLocation, beam.reachPerTick);
+        for (int j = 0; j < beam.partsPerTick; j++) {
+            boolean isHit = tryHit(from, lastLocation, beam.stack, beam.bounced && hitSelfWhenBounced, beam.collider);
+            isStepHit = isHit || isStepHit;
+            Block block = lastLocation.getBlock();
+            if (transp.contains(block.getType())) {
+                spawnParticle(from, world, lastLocation, beam.particles);
+            } else if (!ignoreWall) {
+                if (beam.bounces > 0) {
+                    beam.bounces--;
+                    beam.bounced = true;
+                    makeBounce(block, beam.towards, lastLocation.clone().subtract(step));
+                } else {
+                    return false;
+                }
+            }
+            step = beam.towards.clone().normalize().multiply(lengthPerSpawn);
+            lastLocation.add(step);
+            beam.towards = addGravity(beam.towards, beam.partsPerTick);
+            beam.towards = homingCorrect(beam.towards, lastLocation, beam.target, beam.step, () -> beam.target = getNextTarget(from.getEyeLocation().getDirection(), from.getEyeLocation(), from));
+        }
+        if (isStepHit && homingTargetMode.equals(HomingTargetMode.MULTI_TARGET)) {
+            beam.target = getNextTarget(from.getEyeLocation().getDirection(), from.getEyeLocation(), from);
+        }
+        beam.step++;
+        return !isStepHit || pierce;
+    }
+
     private Random random = new Random();
 
     private Vector yUnit = new Vector(0, 1, 0);
@@ -295,71 +325,6 @@ public class PowerBeam extends BasePower implements PowerPlain, PowerRightClick,
         return PowerResult.noop();
     }
 
-    class PlainTask extends BukkitRunnable {
-        private int bounces;
-        private double length;
-        private final ItemStack stack;
-        private LivingEntity from;
-        private Vector towards;
-        private final int apS;
-        private Entity target;
-        boolean bounced = false;
-
-        public PlainTask(LivingEntity from, Vector towards, int amount, double actualLength, Entity target, int bounces, ItemStack stack) {
-            this.from = from;
-            this.towards = towards;
-            this.length = actualLength;
-            this.stack = stack;
-            this.apS = amount / ((int) Math.floor(actualLength));
-            this.target = target;
-            this.bounces = bounces;
-        }
-
-        @Override
-        public void run() {
-            World world = from.getWorld();
-            towards.normalize();
-            Location lastLocation = from.getEyeLocation();
-            double lpT = length / ((double) movementTicks);
-            double partsPerTick = lpT / lengthPerSpawn;
-            for (int i = 0; i < movementTicks; i++) {
-                boolean isStepHit = false;
-                Vector step = new Vector(0, 0, 0);
-                for (int j = 0; j < partsPerTick; j++) {
-                    boolean isHit = tryHit(from, lastLocation, stack, bounced && hitSelfWhenBounced);
-                    isStepHit = isHit || isStepHit;
-                    Block block = lastLocation.getBlock();
-                    if (transp.contains(block.getType())) {
-                        spawnParticle(from, world, lastLocation, (int) Math.ceil(apS / partsPerTick));
-                    } else if (!ignoreWall) {
-                        if (bounces > 0) {
-                            bounces--;
-                            bounced = true;
-                            makeBounce(block, towards, lastLocation.clone().subtract(step));
-                        } else {
-                            Context.instance().removeTemp(from.getUniqueId(), DAMAGE_SOURCE_ITEM);
-                            return;
-                        }
-                    }
-                    step = towards.clone().normalize().multiply(lengthPerSpawn);
-                    lastLocation.add(step);
-                    towards = addGravity(towards, partsPerTick);
-                    towards = homingCorrect(towards, lastLocation, target, i, () -> target = getNextTarget(from.getEyeLocation().getDirection(), from.getEyeLocation(), from));
-                }
-                if (isStepHit && homingTargetMode.equals(HomingTargetMode.MULTI_TARGET)){
-                    target = getNextTarget(from.getEyeLocation().getDirection(), from.getEyeLocation(), from);
-                }
-                if (isStepHit && !pierce) {
-                    Context.instance().removeTemp(from.getUniqueId(), DAMAGE_SOURCE_ITEM);
-                    return;
-                }
-            }
-            Context.instance().removeTemp(from.getUniqueId(), DAMAGE_SOURCE_ITEM);
-        }
-
-
-    }
-
     Vector gravityVector = new Vector(0, -gravity / 20, 0);
 
     private Vector addGravity(Vector towards, double partsPerTick) {
@@ -368,85 +333,6 @@ public class PowerBeam extends BasePower implements PowerPlain, PowerRightClick,
         return towards.add(gravityVector);
     }
 
-    private class MovingTask extends BukkitRunnable {
-        private final LivingEntity from;
-        private int bounces;
-        private Vector towards;
-        private final ItemStack stack;
-        private final int amountPerSec;
-        private final List<BukkitRunnable> runnables = new LinkedList<>();
-        private Entity target;
-        boolean bounced = false;
-
-        public MovingTask(LivingEntity from, Vector towards, int apS, double actualLength, Entity target, int bounces, ItemStack stack) {
-            this.from = from;
-            this.towards = towards;
-            this.stack = stack;
-            this.amountPerSec = apS / ((int) Math.floor(actualLength));
-            this.target = target;
-            this.bounces = bounces;
-        }
-
-        @Override
-        public void run() {
-            World world = from.getWorld();
-            double lpT = ((double) length) / ((double) movementTicks);
-            double partsPerTick = lpT / lengthPerSpawn;
-            Location lastLocation = from.getEyeLocation();
-            towards.normalize();
-            final int[] finalI = {0};
-            BukkitRunnable bukkitRunnable = new BukkitRunnable() {
-                @Override
-                public void run() {
-                    try {
-                        boolean isStepHit = false;
-                        Vector step = new Vector(0, 0, 0);
-                        for (int k = 0; k < partsPerTick; k++) {
-                            boolean isHit = tryHit(from, lastLocation, stack, bounced && hitSelfWhenBounced);
-                            isStepHit = isHit || isStepHit;
-                            Block block = lastLocation.getBlock();
-                            if (transp.contains(block.getType())) {
-                                spawnParticle(from, world, lastLocation, (int) (amountPerSec / spawnsPerBlock));
-                            } else if (!ignoreWall) {
-                                if (bounces > 0) {
-                                    bounces--;
-                                    bounced = true;
-                                    makeBounce(block, towards, lastLocation.clone().subtract(step));
-                                } else {
-                                    this.cancel();
-                                    return;
-                                }
-                            }
-                            step = towards.clone().normalize().multiply(lengthPerSpawn);
-                            lastLocation.add(step);
-                            towards = addGravity(towards, partsPerTick);
-
-                            towards = homingCorrect(towards, lastLocation, target, finalI[0], () -> target = getNextTarget(from.getEyeLocation().getDirection(), from.getEyeLocation(), from));
-                        }
-                        if (isStepHit && homingTargetMode.equals(HomingTargetMode.MULTI_TARGET)){
-                            target = getNextTarget(from.getEyeLocation().getDirection(), from.getEyeLocation(), from);
-                        }
-                        if (isStepHit && !pierce) {
-                            this.cancel();
-                            Context.instance().removeTemp(from.getUniqueId(), DAMAGE_SOURCE_ITEM);
-                            return;
-                        }
-                        if (finalI[0] >= movementTicks) {
-                            this.cancel();
-                            Context.instance().removeTemp(from.getUniqueId(), DAMAGE_SOURCE_ITEM);
-                        }
-                        finalI[0]++;
-                    } catch (Exception ex) {
-                        from.getServer().getLogger().log(Level.WARNING, "", ex);
-                        this.cancel();
-                        Context.instance().removeTemp(from.getUniqueId(), DAMAGE_SOURCE_ITEM);
-                    }
-                }
-            };
-            bukkitRunnable.runTaskTimer(RPGItems.plugin, 0, 1);
-        }
-    }
-
     private void makeBounce(Block block, Vector towards, Location lastLocation) {
         RayTraceResult rayTraceResult = block.rayTrace(lastLocation, towards, towards.length(), FluidCollisionMode.NEVER);
         if (rayTraceResult == null) {
@@ -516,71 +402,22 @@ public class PowerBeam extends BasePower implements PowerPlain, PowerRightClick,
 //        if (from instanceof Player) {
 //            ((Player) from).spawnParticle(this.particle, lastLocation, i / 2, offsetX, offsetY, offsetZ, speed, extraData);
 //        }
-        world.spawnParticle(this.particle, lastLocation, i, offsetX, offsetY, offsetZ, speed, extraData, true);
+        ParticleEmitter.instance().emit(world, this.particle, lastLocation, i, offsetX, offsetY, offsetZ, speed, extraData, true);
     }
 
-    private boolean tryHit(LivingEntity from, Location loc, ItemStack stack, boolean canHitSelf) {
-
-        double offsetLength = new Vector(offsetX, offsetY, offsetZ).length();
-        double length = Double.isNaN(offsetLength) ? 0 : Math.max(offsetLength, 10);
-        Collection<Entity> candidates = from.getWorld().getNearbyEntities(loc, length, length, length);
-        boolean result = false;
-        if (!pierce) {
-            List<Entity> collect = candidates.stream()
-                    .filter(entity -> (entity instanceof LivingEntity) && (canHitSelf || !entity.equals(from)) && !entity.isDead())
-                    .filter(entity -> canHit(loc, entity))
-                    .limit(1)
-                    .collect(Collectors.toList());
-            if (!collect.isEmpty()) {
-                Entity entity = collect.get(0);
-                if (entity instanceof LivingEntity) {
-                    Context.instance().putTemp(from.getUniqueId(), DAMAGE_SOURCE, getNamespacedKey().toString());
-                    Context.instance().putTemp(from.getUniqueId(), OVERRIDING_DAMAGE, damage);
-                    Context.instance().putTemp(from.getUniqueId(), SUPPRESS_MELEE, suppressMelee);
-                    Context.instance().putTemp(from.getUniqueId(), DAMAGE_SOURCE_ITEM, stack);
-                    ((LivingEntity) entity).damage(damage, from);
-                    Context.instance().putTemp(from.getUniqueId(), SUPPRESS_MELEE, null);
-                    Context.instance().putTemp(from.getUniqueId(), OVERRIDING_DAMAGE, null);
-                    Context.instance().putTemp(from.getUniqueId(), DAMAGE_SOURCE, null);
-                    Context.instance().removeTemp(from.getUniqueId(), DAMAGE_SOURCE_ITEM);
-                }
-                return true;
-            }
-        } else {
-            List<Entity> collect = candidates.stream()
-                    .filter(entity -> (entity instanceof LivingEntity) && (canHitSelf || !entity.equals(from)))
-                    .filter(entity -> canHit(loc, entity))
-                    .collect(Collectors.toList());
-            Context.instance().putTemp(from.getUniqueId(), DAMAGE_SOURCE, getNamespacedKey().toString());
-            Context.instance().putTemp(from.getUniqueId(), OVERRIDING_DAMAGE, damage);
-            Context.instance().putTemp(from.getUniqueId(), SUPPRESS_MELEE, suppressMelee);
-            Context.instance().putTemp(from.getUniqueId(), DAMAGE_SOURCE_ITEM, stack);
-
-            if (!collect.isEmpty()) {
-                collect.stream()
-                        .map(entity -> ((LivingEntity) entity))
-                        .forEach(livingEntity -> {
-                            livingEntity.damage(damage, from);
-                        });
-                result = true;
+    private boolean tryHit(LivingEntity from, Location loc, ItemStack stack, boolean canHitSelf, BeamCollider collider) {
+        List<LivingEntity> collect = pierce
+                                             ? collider.hits(loc, from, canHitSelf, false, Integer.MAX_VALUE)
+                                             : collider.hits(loc, from, canHitSelf, true, 1);
+        if (collect.isEmpty()) {
+            return false;
+        }
+        try (Context.DamageFrame frame = Context.instance().pushDamage(from.getUniqueId(), getNamespacedKey().toString(), damage, suppressMelee, stack)) {
+            for (LivingEntity livingEntity : collect) {
+                livingEntity.damage(damage, from);
             }
-            Context.instance().putTemp(from.getUniqueId(), SUPPRESS_MELEE, null);
-            Context.instance().putTemp(from.getUniqueId(), OVERRIDING_DAMAGE, null);
-            Context.instance().putTemp(from.getUniqueId(), DAMAGE_SOURCE, null);
-            Context.instance().removeTemp(from.getUniqueId(), DAMAGE_SOURCE_ITEM);
-
         }
-        return result;
-    }
-
-    private boolean canHit(Location loc, Entity entity) {
-        BoundingBox boundingBox = entity.getBoundingBox();
-        BoundingBox particleBox;
-        double x = Math.max(offsetX, 0.1);
-        double y = Math.max(offsetY, 0.1);
-        double z = Math.max(offsetZ, 0.1);
-        particleBox = BoundingBox.of(loc, x + 0.1, y + 0.1, z + 0.1);
-        return boundingBox.overlaps(particleBox) || particleBox.overlaps(boundingBox);
+        return true;
     }
 
     private enum Mode {
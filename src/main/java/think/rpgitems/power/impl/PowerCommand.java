@@ -60,6 +60,8 @@ public class PowerCommand extends BasePower implements PowerRightClick, PowerLef
     @Property
     public boolean requireHurtByEntity = true;
 
+    private CommandTemplate template;
+
     @Override
     public void init(ConfigurationSection section) {
         if (section.isBoolean("isRight")) {
@@ -67,6 +69,17 @@ public class PowerCommand extends BasePower implements PowerRightClick, PowerLef
             triggers = Collections.singleton(isRight ? Trigger.RIGHT_CLICK : Trigger.LEFT_CLICK);
         }
         super.init(section);
+        template = CommandTemplate.compile(command);
+    }
+
+    /**
+     * @return {@link #command} compiled, recompiled if the property was changed since
+     */
+    protected CommandTemplate template() {
+        if (template == null || !template.getSource().equals(command)) {
+            template = CommandTemplate.compile(command);
+        }
+        return template;
     }
 
     @Override
@@ -91,7 +104,7 @@ public class PowerCommand extends BasePower implements PowerRightClick, PowerLef
     protected PowerResult<Void> executeCommand(Player player) {
         if (!player.isOnline()) return PowerResult.noop();
 
-        String cmd = handlePlayerPlaceHolder(player, command);
+        String cmd = template().render(player);
         if (permission.equals("console")) {
             Bukkit.dispatchCommand(Bukkit.getConsoleSender(), cmd);
         } else {
@@ -114,15 +127,7 @@ public class PowerCommand extends BasePower implements PowerRightClick, PowerLef
     }
 
     public static String handlePlayerPlaceHolder(Player player, String cmd) {
-        cmd = cmd.replaceAll("\\{player}", player.getName());
-        cmd = cmd.replaceAll("\\{player\\.x}", Float.toString(-player.getLocation().getBlockX()));
-        cmd = cmd.replaceAll("\\{player\\.y}", Float.toString(-player.getLocation().getBlockY()));
-        cmd = cmd.replaceAll("\\{player\\.z}", Float.toString(-player.getLocation().getBlockZ()));
-        cmd = cmd.replaceAll("\\{player\\.yaw}", Float.toString(90 + player.getEyeLocation().getYaw()));
-        cmd = cmd.replaceAll("\\{player\\.pitch}", Float.toString(-player.getEyeLocation().getPitch()));
-        cmd = cmd.replaceAll("\\{yaw}", Float.toString(player.getLocation().getYaw() + 90));
-        cmd = cmd.replaceAll("\\{pitch}", Float.toString(-player.getLocation().getPitch()));
-        return cmd;
+        return CommandTemplate.compile(cmd).render(player);
     }
 
     @Override
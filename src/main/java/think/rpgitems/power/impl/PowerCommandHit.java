@@ -45,13 +45,7 @@ public class PowerCommandHit extends PowerCommand implements PowerHit, PowerLivi
             if (permission.equals("*"))
                 player.setOp(true);
 
-            String cmd = command;
-
-            cmd = handleEntityPlaceHolder(e, cmd);
-
-            cmd = handlePlayerPlaceHolder(player, cmd);
-
-            cmd = cmd.replaceAll("\\{damage}", String.valueOf(damage));
+            String cmd = template().render(player, null, e, damage);
 
             boolean result = player.performCommand(cmd);
             return result ? PowerResult.ok() : PowerResult.fail();
@@ -1,13 +1,16 @@
 package think.rpgitems.power.impl;
 
 import com.udojava.evalex.Expression;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import think.rpgitems.power.*;
+import think.rpgitems.utils.CompiledExpression;
 
 import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 import static think.rpgitems.power.Utils.*;
@@ -27,6 +30,30 @@ public class PowerEvalCondition extends BasePower implements PowerCondition<BigD
     @Property(required = true)
     public String expression;
 
+    private enum Variable {
+        playerYaw, playerPitch, playerX, playerY, playerZ, playerLastDamage
+    }
+
+    private static final Variable[] VARIABLES = Variable.values();
+    private static final CompiledExpression.Scope SCOPE = CompiledExpression.Scope.of(Variable.class).with("playerScoreBoard", "playerContext", "now");
+
+    private String compiledFrom;
+    private CompiledExpression compiled;
+
+    @Override
+    public void init(ConfigurationSection section) {
+        super.init(section);
+        compile();
+    }
+
+    private void compile() {
+        if (Objects.equals(compiledFrom, expression)) {
+            return;
+        }
+        compiled = CompiledExpression.compile(expression, SCOPE);
+        compiledFrom = expression;
+    }
+
     @Override
     public String id() {
         return id;
@@ -44,6 +71,41 @@ public class PowerEvalCondition extends BasePower implements PowerCondition<BigD
 
     @Override
     public PowerResult<BigDecimal> check(Player player, ItemStack stack, Map<Power, PowerResult> c) {
+        compile();
+        if (compiled != null) {
+            try {
+                double result = compiled.eval(new CompiledExpression.Bindings() {
+                    @Override
+                    public double variable(int slot) {
+                        switch (VARIABLES[slot]) {
+                            case playerYaw:
+                                return player.getLocation().getYaw();
+                            case playerPitch:
+                                return player.getLocation().getPitch();
+                            case playerX:
+                                return player.getLocation().getX();
+                            case playerY:
+                                return player.getLocation().getY();
+                            case playerZ:
+                                return player.getLocation().getZ();
+                            case playerLastDamage:
+                                return player.getLastDamage();
+                            default:
+                                throw new IllegalStateException();
+                        }
+                    }
+
+                    @Override
+                    public Player player() {
+                        return player;
+                    }
+                });
+                // EvalEx strips trailing zeros from its result, so any value of 1 equals BigDecimal.ONE
+                return result == 1 ? PowerResult.ok(BigDecimal.ONE) : PowerResult.fail(BigDecimal.valueOf(result));
+            } catch (RuntimeException ignored) {
+                // Let EvalEx evaluate it again and report the error
+            }
+        }
         Expression e = new Expression(expression);
         e.and("playerYaw", lazyNumber(() -> (double) player.getLocation().getYaw()))
          .and("playerPitch", lazyNumber(() -> (double) player.getLocation().getPitch()))
@@ -1,6 +1,7 @@
 package think.rpgitems.power.impl;
 
 import com.udojava.evalex.Expression;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
@@ -11,8 +12,10 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.projectiles.ProjectileSource;
 import think.rpgitems.item.RPGItem;
 import think.rpgitems.power.*;
+import think.rpgitems.utils.CompiledExpression;
 
 import java.math.BigDecimal;
+import java.util.Objects;
 import java.util.logging.Level;
 
 /**
@@ -31,9 +34,105 @@ public class PowerEvalDamage extends BasePower implements PowerHit, PowerHitTake
     public boolean setBaseDamage = false;
 
     // Feel free to add variable below
+    // Numeric variables also have to be listed in HitVariable / TakeHitVariable to be usable by the compiled evaluator
+
+    private enum HitVariable {
+        damage, isDamageByProjectile, damagerTicksLived, finalDamage, distance,
+        playerYaw, playerPitch, playerX, playerY, playerZ,
+        entityYaw, entityPitch, entityX, entityY, entityZ, entityLastDamage
+    }
+
+    private enum TakeHitVariable {
+        damage, finalDamage, isDamageByEntity,
+        playerYaw, playerPitch, playerX, playerY, playerZ, playerLastDamage,
+        isDamageByProjectile, damagerTicksLived, distance,
+        entityYaw, entityPitch, entityX, entityY, entityZ
+    }
+
+    private static final HitVariable[] HIT_VARIABLES = HitVariable.values();
+    private static final TakeHitVariable[] TAKE_HIT_VARIABLES = TakeHitVariable.values();
+    private static final CompiledExpression.Scope HIT_SCOPE = CompiledExpression.Scope.of(HitVariable.class).with("playerScoreBoard");
+    private static final CompiledExpression.Scope TAKE_HIT_SCOPE = CompiledExpression.Scope.of(TakeHitVariable.class).with("playerScoreBoard", "playerContext", "now");
+
+    private String compiledFrom;
+    private CompiledExpression compiledHit;
+    private CompiledExpression compiledTakeHit;
+
+    @Override
+    public void init(ConfigurationSection section) {
+        super.init(section);
+        compile();
+    }
+
+    private void compile() {
+        if (Objects.equals(compiledFrom, expression)) {
+            return;
+        }
+        compiledHit = CompiledExpression.compile(expression, HIT_SCOPE);
+        compiledTakeHit = CompiledExpression.compile(expression, TAKE_HIT_SCOPE);
+        compiledFrom = expression;
+    }
 
     @Override
     public PowerResult<Double> hit(Player player, ItemStack stack, LivingEntity entity, double damage, EntityDamageByEntityEvent event) {
+        compile();
+        if (compiledHit != null) {
+            Entity damager = event.getDamager();
+            try {
+                double ret = compiledHit.eval(new CompiledExpression.Bindings() {
+                    @Override
+                    public double variable(int slot) {
+                        switch (HIT_VARIABLES[slot]) {
+                            case damage:
+                                return damage;
+                            case isDamageByProjectile:
+                                return damager instanceof Projectile ? 1 : 0;
+                            case damagerTicksLived:
+                                return damager.getTicksLived();
+                            case finalDamage:
+                                return event.getFinalDamage();
+                            case distance:
+                                return player.getLocation().distance(entity.getLocation());
+                            case playerYaw:
+                                return player.getLocation().getYaw();
+                            case playerPitch:
+                                return player.getLocation().getPitch();
+                            case playerX:
+                                return player.getLocation().getX();
+                            case playerY:
+                                return player.getLocation().getY();
+                            case playerZ:
+                                return player.getLocation().getZ();
+                            case entityYaw:
+                                return entity.getLocation().getYaw();
+                            case entityPitch:
+                                return entity.getLocation().getPitch();
+                            case entityX:
+                                return entity.getLocation().getX();
+                            case entityY:
+                                return entity.getLocation().getY();
+                            case entityZ:
+                                return entity.getLocation().getZ();
+                            case entityLastDamage:
+                                return entity.getLastDamage();
+                            default:
+                                throw new IllegalStateException();
+                        }
+                    }
+
+                    @Override
+                    public Player player() {
+                        return player;
+                    }
+                });
+                if (setBaseDamage) {
+                    event.setDamage(ret);
+                }
+                return PowerResult.ok(ret);
+            } catch (RuntimeException ignored) {
+                // Let EvalEx evaluate it again and report the error
+            }
+        }
         try {
             Expression ex = new Expression(expression);
             boolean byProjectile = false;
@@ -83,6 +182,68 @@ public class PowerEvalDamage extends BasePower implements PowerHit, PowerHitTake
     @Override
     public PowerResult<Double> takeHit(Player player, ItemStack stack, double damage, EntityDamageEvent event) {
         boolean byEntity = event instanceof EntityDamageByEntityEvent;
+        compile();
+        if (compiledTakeHit != null) {
+            Entity damager = byEntity ? ((EntityDamageByEntityEvent) event).getDamager() : null;
+            Entity source = damager instanceof Projectile && ((Projectile) damager).getShooter() instanceof Entity ? (Entity) ((Projectile) damager).getShooter() : damager;
+            try {
+                double ret = compiledTakeHit.eval(new CompiledExpression.Bindings() {
+                    @Override
+                    public double variable(int slot) {
+                        TakeHitVariable variable = TAKE_HIT_VARIABLES[slot];
+                        if (!byEntity && variable.ordinal() >= TakeHitVariable.isDamageByProjectile.ordinal()) {
+                            throw new IllegalStateException("Unknown variable " + variable);
+                        }
+                        switch (variable) {
+                            case damage:
+                                return damage;
+                            case finalDamage:
+                                return event.getFinalDamage();
+                            case isDamageByEntity:
+                                return byEntity ? 1 : 0;
+                            case playerYaw:
+                                return player.getLocation().getYaw();
+                            case playerPitch:
+                                return player.getLocation().getPitch();
+                            case playerX:
+                                return player.getLocation().getX();
+                            case playerY:
+                                return player.getLocation().getY();
+                            case playerZ:
+                                return player.getLocation().getZ();
+                            case playerLastDamage:
+                                return player.getLastDamage();
+                            case isDamageByProjectile:
+                                return source != damager ? 1 : 0;
+                            case damagerTicksLived:
+                                return damager.getTicksLived();
+                            case distance:
+                                return player.getLocation().distance(source.getLocation());
+                            case entityYaw:
+                                return source.getLocation().getYaw();
+                            case entityPitch:
+                                return source.getLocation().getPitch();
+                            case entityX:
+                                return source.getLocation().getX();
+                            case entityY:
+                                return source.getLocation().getY();
+                            case entityZ:
+                                return source.getLocation().getZ();
+                            default:
+                                throw new IllegalStateException();
+                        }
+                    }
+
+                    @Override
+                    public Player player() {
+                        return player;
+                    }
+                });
+                return PowerResult.ok(ret);
+            } catch (RuntimeException ignored) {
+                // Let EvalEx evaluate it again and report the error
+            }
+        }
         try {
 
             Expression ex = new Expression(expression);
@@ -11,7 +11,7 @@ import java.util.Map;
 import java.util.Set;
 
 @PowerMeta(marker = true, withConditions = true)
-public class PowerOrCondition extends BasePower implements PowerCondition<Map.Entry<Power, PowerResult>> {
+public class PowerOrCondition extends BasePower implements PowerCompositeCondition<Map.Entry<Power, PowerResult>> {
 
     @Property(order = 0, required = true)
     public String id;
@@ -60,6 +60,16 @@ public class PowerOrCondition extends BasePower implements PowerCondition<Map.En
         return PowerResult.fail();
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public PowerResult<Map.Entry<Power, PowerResult>> combine(ConditionResults results) {
+        for (int i = 0; i < results.size(); i++) {
+            PowerResult result = results.result(i);
+            if (result.isOK()) return PowerResult.ok(Pair.of(results.condition(i), result));
+        }
+        return PowerResult.fail();
+    }
+
     @Override
     public String getName() {
         return "orcondition";
@@ -131,7 +131,7 @@ public class PowerParticle extends BasePower implements PowerRightClick, PowerLe
                 player.getWorld().playEffect(player.getLocation(), effect, 0);
             }
         } else {
-            player.getWorld().spawnParticle(particle, player.getLocation(), particleCount, offsetX, offsetY, offsetZ, extra, getData(), force);
+            ParticleEmitter.instance().emit(player.getWorld(), particle, player.getLocation(), particleCount, offsetX, offsetY, offsetZ, extra, getData(), force);
         }
     }
 
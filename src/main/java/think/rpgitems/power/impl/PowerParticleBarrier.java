@@ -24,10 +24,12 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
 import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.util.Consumer;
 import org.bukkit.util.EulerAngle;
 import org.bukkit.util.Vector;
 import think.rpgitems.RPGItems;
 import think.rpgitems.power.*;
+import think.rpgitems.utils.EffectStands;
 import think.rpgitems.utils.PotionEffectUtils;
 
 import java.util.*;
@@ -179,13 +181,12 @@ public class PowerParticleBarrier extends BasePower implements PowerPlain, Power
         base.setYaw(base.getYaw() - 90);
         Vector l = base.getDirection().setY(0).normalize();
 
-        ArmorStand asL = makeAs(eyeLocation.clone().add(l.multiply(2)));
-        asL.setLeftArmPose(new EulerAngle(90 * Math.PI / 180, 60 * Math.PI / 180, 0));
+        EffectStands.Stand asL = makeAs(eyeLocation.clone().add(l.multiply(2)), as -> as.setLeftArmPose(new EulerAngle(90 * Math.PI / 180, 60 * Math.PI / 180, 0)));
 
-        ArmorStand asR = makeAs(eyeLocation.clone().add(r.multiply(2)));
-        asR.setRightArmPose(new EulerAngle(90 * Math.PI / 180, 300 * Math.PI / 180, 0));
+        EffectStands.Stand asR = makeAs(eyeLocation.clone().add(r.multiply(2)), as -> as.setRightArmPose(new EulerAngle(90 * Math.PI / 180, 300 * Math.PI / 180, 0)));
 
-        ArmorStand asB = makeAs(eyeLocation.clone().subtract(f.multiply(2)));
+        EffectStands.Stand asB = makeAs(eyeLocation.clone().subtract(f.multiply(2)), as -> {
+        });
 
         new BukkitRunnable() {
             private int dur = 100;
@@ -221,8 +222,8 @@ public class PowerParticleBarrier extends BasePower implements PowerPlain, Power
     }
 
     @SuppressWarnings("deprecation")
-    private ArmorStand makeAs(Location loc) {
-        return loc.getWorld().spawn(loc, ArmorStand.class, as -> {
+    private EffectStands.Stand makeAs(Location loc, Consumer<ArmorStand> pose) {
+        return EffectStands.spawn(loc, as -> {
             as.setCanPickupItems(false);
             as.setMarker(true);
             as.setPersistent(false);
@@ -231,6 +232,7 @@ public class PowerParticleBarrier extends BasePower implements PowerPlain, Power
             as.setGravity(false);
             as.setVisible(false);
             as.getEquipment().setItemInOffHand(new ItemStack(Material.SHIELD));
+            pose.accept(as);
         });
     }
 
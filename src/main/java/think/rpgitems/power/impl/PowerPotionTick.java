@@ -42,7 +42,7 @@ public class PowerPotionTick extends BasePower implements PowerTick, PowerSneaki
     @Property
     public int cost = 0;
     /**
-     * Interval of this power
+     * Cooldown between two applications of the effect, in ticks
      */
     @Property(order = 2)
     public int interval = 0;
@@ -56,6 +56,16 @@ public class PowerPotionTick extends BasePower implements PowerTick, PowerSneaki
      */
     @Property
     public boolean clear = false;
+    /**
+     * Ticks between two checks of this power, whether to apply the effect is then decided by {@link #interval}
+     */
+    @Property
+    public int period = 1;
+
+    @Override
+    public int tickInterval() {
+        return period;
+    }
 
     @Override
     public PowerResult<Void> tick(Player player, ItemStack stack) {
@@ -22,8 +22,6 @@ import think.rpgitems.power.*;
 import java.util.List;
 import java.util.Random;
 
-import static think.rpgitems.Events.DAMAGE_SOURCE;
-import static think.rpgitems.Events.OVERRIDING_DAMAGE;
 import static think.rpgitems.power.Utils.checkCooldown;
 import static think.rpgitems.power.Utils.getNearbyEntities;
 
@@ -139,11 +137,9 @@ public class PowerRumble extends BasePower implements PowerRightClick, PowerLeft
                                 continue;
                             }
                             if (damage > 0) {
-                                Context.instance().putTemp(player.getUniqueId(), DAMAGE_SOURCE, getNamespacedKey().toString());
-                                Context.instance().putTemp(player.getUniqueId(), OVERRIDING_DAMAGE, damage);
-                                ((LivingEntity) e).damage(damage, player);
-                                Context.instance().putTemp(player.getUniqueId(), OVERRIDING_DAMAGE, null);
-                                Context.instance().putTemp(player.getUniqueId(), DAMAGE_SOURCE, null);
+                                try (Context.DamageFrame frame = Context.instance().pushDamage(player.getUniqueId(), getNamespacedKey().toString(), damage, false, null)) {
+                                    ((LivingEntity) e).damage(damage, player);
+                                }
 
                             }
                         }
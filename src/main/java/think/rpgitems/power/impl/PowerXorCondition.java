@@ -10,7 +10,7 @@ import java.util.Map;
 import java.util.Set;
 
 @PowerMeta(marker = true, withConditions = true)
-public class PowerXorCondition extends BasePower implements PowerCondition<Void> {
+public class PowerXorCondition extends BasePower implements PowerCompositeCondition<Void> {
 
     @Property(order = 0, required = true)
     public String id;
@@ -63,6 +63,15 @@ public class PowerXorCondition extends BasePower implements PowerCondition<Void>
         return ans ? PowerResult.ok() : PowerResult.fail();
     }
 
+    @Override
+    public PowerResult<Void> combine(ConditionResults results) {
+        boolean ans = init;
+        for (int i = 0; i < results.size(); i++) {
+            ans = ans ^ results.result(i).isOK();
+        }
+        return ans ? PowerResult.ok() : PowerResult.fail();
+    }
+
     @Override
     public String getName() {
         return "xorcondition";
@@ -6,7 +6,9 @@ import com.sk89q.worldedit.world.World;
 import com.sk89q.worldguard.LocalPlayer;
 import com.sk89q.worldguard.WorldGuard;
 import com.sk89q.worldguard.protection.ApplicableRegionSet;
+import com.sk89q.worldguard.protection.flags.Flags;
 import com.sk89q.worldguard.protection.flags.SetFlag;
+import com.sk89q.worldguard.protection.flags.StateFlag.State;
 import com.sk89q.worldguard.protection.flags.StringFlag;
 import com.sk89q.worldguard.protection.flags.registry.FlagConflictException;
 import com.sk89q.worldguard.protection.flags.registry.FlagRegistry;
@@ -107,7 +109,10 @@ public class WGHandler extends Handler {
         LocalPlayer localPlayer = WGSupport.wgPlugin.wrapPlayer(p);
         RegionContainer container = worldGuardInstance.getPlatform().getRegionContainer();
         RegionManager regions = container.get(localPlayer.getWorld());
-        if (regions == null) return;
+        if (regions == null) {
+            WGSupport.policyByPlayer.put(p.getUniqueId(), new WGPolicy(null, false, false, null, null, null, null));
+            return;
+        }
         ApplicableRegionSet set = regions.getApplicableRegions(localPlayer.getLocation().toVector().toBlockPoint());
         refresh(set, localPlayer);
     }
@@ -121,16 +126,15 @@ public class WGHandler extends Handler {
         Collection<String> ei = set.queryValue(localPlayer, enabledItem);
         Collection<String> du = set.queryValue(localPlayer, disabledPlayer);
         Collection<String> eu = set.queryValue(localPlayer, enabledPlayer);
-        WGSupport.warningMessageByPlayer.put(uuid, wm);
-        WGSupport.disabledPowerByPlayer.put(uuid, dp);
-        WGSupport.enabledPowerByPlayer.put(uuid, ep);
-        WGSupport.disabledItemByPlayer.put(uuid, di);
-        WGSupport.enabledItemByPlayer.put(uuid, ei);
+        State pvp = set.queryState(localPlayer, Flags.PVP);
+        boolean disabled;
         if (eu == null || eu.isEmpty()) {
-            WGSupport.disabledByPlayer.put(uuid, du != null && du.contains(uuid.toString()));
+            disabled = du != null && du.contains(uuid.toString());
         } else {
-            WGSupport.disabledByPlayer.put(uuid, !eu.contains(uuid.toString()));
+            disabled = !eu.contains(uuid.toString());
         }
+        boolean pvpDenied = pvp != null && !pvp.equals(State.ALLOW);
+        WGSupport.policyByPlayer.put(uuid, new WGPolicy(wm, disabled, pvpDenied, dp, ep, di, ei));
     }
 
     static void registerHandler() {
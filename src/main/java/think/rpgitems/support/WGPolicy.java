@@ -0,0 +1,126 @@
+package think.rpgitems.support;
+
+import org.bukkit.NamespacedKey;
+import think.rpgitems.item.ItemManager;
+import think.rpgitems.item.RPGItem;
+import think.rpgitems.power.Power;
+import think.rpgitems.power.PowerManager;
+
+import java.util.*;
+
+/**
+ * The RPGItems flags of the regions a player is in, compiled into bitsets over item indices and power ids.
+ * <p>
+ * Flags are queried when the player joins or crosses a region boundary. The bitsets are compiled on first use
+ * and again whenever {@link WGSupport#invalidatePolicies()} was called since, as item and group names in
+ * the flags resolve against the loaded items.
+ */
+final class WGPolicy {
+    private static final Collection<String> ALL = Arrays.asList("*", "all");
+
+    final String warning;
+    final boolean disabled;
+    final boolean pvpDenied;
+    final long queried = System.nanoTime();
+
+    private final Collection<String> disabledPowers;
+    private final Collection<String> enabledPowers;
+    private final Collection<String> disabledItems;
+    private final Collection<String> enabledItems;
+
+    private int epoch = -1;
+    private boolean allItemsDenied;
+    private BitSet deniedItems;
+    private BitSet allowedItems;
+    private boolean powerWhitelist;
+    private boolean allPowersDenied;
+    private boolean allPowersAllowed;
+    private BitSet powers;
+
+    WGPolicy(String warning, boolean disabled, boolean pvpDenied, Collection<String> disabledPowers, Collection<String> enabledPowers, Collection<String> disabledItems, Collection<String> enabledItems) {
+        this.warning = warning;
+        this.disabled = disabled;
+        this.pvpDenied = pvpDenied;
+        this.disabledPowers = disabledPowers;
+        this.enabledPowers = enabledPowers;
+        this.disabledItems = disabledItems;
+        this.enabledItems = enabledItems;
+    }
+
+    private void compile() {
+        allItemsDenied = disabledItems != null && disabledItems.contains("*");
+        deniedItems = items(disabledItems);
+        allowedItems = items(enabledItems);
+        powerWhitelist = enabledPowers != null && !enabledPowers.isEmpty();
+        if (powerWhitelist) {
+            allPowersAllowed = enabledPowers.contains("*");
+            powers = powers(enabledPowers);
+        } else {
+            allPowersDenied = disabledPowers != null && disabledPowers.stream().anyMatch(ALL::contains);
+            powers = powers(disabledPowers);
+        }
+        epoch = WGSupport.policyEpoch;
+    }
+
+    private static BitSet items(Collection<String> names) {
+        BitSet bits = new BitSet();
+        if (names == null) return bits;
+        for (String name : names) {
+            for (RPGItem item : ItemManager.getItems(name)) {
+                bits.set(WGSupport.itemIndex(item));
+            }
+        }
+        return bits;
+    }
+
+    private static BitSet powers(Collection<String> keys) {
+        BitSet bits = new BitSet();
+        if (keys == null) return bits;
+        for (NamespacedKey key : PowerManager.getPowers().keySet()) {
+            if (keys.contains(key.toString())) {
+                bits.set(PowerManager.getPowerId(key));
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * @return whether all the regions' item and power flags let these powers of the item fire
+     */
+    boolean allows(RPGItem item, Collection<? extends Power> powers) {
+        if (epoch != WGSupport.policyEpoch) {
+            compile();
+        }
+        if (allItemsDenied) {
+            return false;
+        }
+        if (item == null || item.isIgnoreWorldGuard()) {
+            return true;
+        }
+        int index = WGSupport.itemIndex(item);
+        if (allowedItems.isEmpty() ? deniedItems.get(index) : !allowedItems.get(index)) {
+            return false;
+        }
+        if (powers == null) {
+            return true;
+        }
+        for (Power power : powers) {
+            if (!allows(item.getPowerKey(power))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean allows(NamespacedKey key) {
+        int id = PowerManager.getPowerId(key);
+        if (id < 0) {
+            String name = key.toString();
+            return powerWhitelist ? enabledPowers.contains(name) || allPowersAllowed : disabledPowers == null || !disabledPowers.contains(name) && !allPowersDenied;
+        }
+        if (powerWhitelist) {
+            return allPowersAllowed || this.powers.get(id);
+        }
+        return !allPowersDenied && !this.powers.get(id);
+    }
+}
@@ -1,41 +1,36 @@
 package think.rpgitems.support;
 
-import com.sk89q.worldguard.LocalPlayer;
-import com.sk89q.worldguard.WorldGuard;
 import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
-import com.sk89q.worldguard.protection.flags.Flags;
-import com.sk89q.worldguard.protection.flags.StateFlag.State;
-import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 import org.bukkit.event.Event;
-import org.bukkit.event.EventHandler;
-import org.bukkit.event.Listener;
 import org.bukkit.plugin.Plugin;
 import think.rpgitems.RPGItems;
-import think.rpgitems.item.ItemManager;
 import think.rpgitems.item.RPGItem;
 import think.rpgitems.power.Power;
-import think.rpgitems.power.RPGItemsPowersPreFireEvent;
+import think.rpgitems.power.PowerDispatchHook;
+import think.rpgitems.power.PowerEvents;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
-import java.util.stream.Collectors;
 
 public class WGSupport {
 
     public static boolean useWorldGuard = true;
     public static boolean forceRefresh = false;
-    static Map<UUID, String> warningMessageByPlayer;
-    static Map<UUID, Collection<String>> disabledPowerByPlayer;
-    static Map<UUID, Collection<String>> enabledPowerByPlayer;
-    static Map<UUID, Collection<String>> disabledItemByPlayer;
-    static Map<UUID, Collection<String>> enabledItemByPlayer;
-    static Map<UUID, Boolean> disabledByPlayer;
+    static Map<UUID, WGPolicy> policyByPlayer = new HashMap<>();
+    /**
+     * Bumped when items or groups change, so that policies resolve their item names again
+     */
+    static int policyEpoch;
+    private static final Map<Integer, Integer> itemIndices = new HashMap<>();
+    private static final long FORCE_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
     static WorldGuardPlugin wgPlugin;
     private static RPGItems plugin;
     private static boolean hasSupport = false;
+    private static final PowerDispatchHook HOOK = (player, stack, item, trigger, powers) -> canUse(player, item, powers, plugin.cfg.wgShowWarning) != Event.Result.DENY;
 
     public static void load() {
         try {
@@ -68,13 +63,8 @@ public class WGSupport {
             }
             hasSupport = true;
             WGHandler.registerHandler();
-            warningMessageByPlayer = new HashMap<>();
-            disabledPowerByPlayer = new HashMap<>();
-            enabledPowerByPlayer = new HashMap<>();
-            disabledItemByPlayer = new HashMap<>();
-            enabledItemByPlayer = new HashMap<>();
-            disabledByPlayer = new HashMap<>();
-            Bukkit.getPluginManager().registerEvents(new EventListener(), plugin);
+            policyByPlayer = new HashMap<>();
+            PowerEvents.addHook(HOOK);
             for (Player p : plugin.getServer().getOnlinePlayers()) {
                 WGHandler.refreshPlayerWG(p);
             }
@@ -101,54 +91,47 @@ public class WGSupport {
         return hasSupport;
     }
 
-    private static Event.Result canPvP(Player player) {
-        if (!hasSupport || !useWorldGuard)
-            return Event.Result.ALLOW;
+    /**
+     * Makes policies resolve item and group names again, after items or groups changed
+     */
+    public static void invalidatePolicies() {
+        policyEpoch++;
+        itemIndices.clear();
+    }
+
+    public static void removePolicy(Player player) {
+        policyByPlayer.remove(player.getUniqueId());
+    }
 
-        LocalPlayer localPlayer = wgPlugin.wrapPlayer(player);
-        State stat = WorldGuard.getInstance().getPlatform().getRegionContainer().createQuery().queryState(localPlayer.getLocation(), localPlayer, Flags.PVP);
-        return (stat == null || stat.equals(State.ALLOW)) ? Event.Result.ALLOW : Event.Result.DENY;
+    /**
+     * @return the bit of this item in the policies of the current epoch
+     */
+    static int itemIndex(RPGItem item) {
+        return itemIndices.computeIfAbsent(item.getUid(), k -> itemIndices.size());
     }
 
     private static Event.Result canUse(Player player, RPGItem item, Collection<? extends Power> powers) {
         if (!hasSupport || !useWorldGuard) {
             return Event.Result.DEFAULT;
         }
-        if (plugin.cfg.wgNoPvP && canPvP(player) == Event.Result.DENY) return Event.Result.DENY;
-        if (forceRefresh) WGHandler.refreshPlayerWG(player);
-        Boolean disabled = disabledByPlayer.get(player.getUniqueId());
-        if (disabled != null && disabled) {
-            return Event.Result.DENY;
+        WGPolicy policy = policyByPlayer.get(player.getUniqueId());
+        if (forceRefresh && (policy == null || System.nanoTime() - policy.queried > FORCE_REFRESH_NANOS)) {
+            WGHandler.refreshPlayerWG(player);
+            policy = policyByPlayer.get(player.getUniqueId());
         }
-        Collection<String> disableds = disabledItemByPlayer.get(player.getUniqueId());
-        Collection<String> enableds = enabledItemByPlayer.get(player.getUniqueId());
-
-        if (disableds != null && disableds.contains("*")) {
-            return Event.Result.DENY;
-        }
-        if (item == null || item.isIgnoreWorldGuard()) {
+        if (policy == null) {
             return Event.Result.ALLOW;
         }
-        List<String> disabledItems = disableds == null ? null : disableds.stream().map(ItemManager::getItems).flatMap(Set::stream).map(RPGItem::getName).collect(Collectors.toList());
-        List<String> enabledItems = enableds == null ? null : enableds.stream().map(ItemManager::getItems).flatMap(Set::stream).map(RPGItem::getName).collect(Collectors.toList());
-        String itemName = item.getName();
-        if (notEnabled(disabledItems, enabledItems, itemName)) return Event.Result.DENY;
-
-        Collection<String> disabledPower = disabledPowerByPlayer.get(player.getUniqueId());
-        Collection<String> enabledPower = enabledPowerByPlayer.get(player.getUniqueId());
-
-        if (powers == null) return Event.Result.ALLOW;
-        for (Power power : powers) {
-            String powerName = item.getPowerKey(power).toString();
-            if (notEnabled(disabledPower, enabledPower, powerName)) return Event.Result.DENY;
-        }
-        return Event.Result.ALLOW;
+        if (plugin.cfg.wgNoPvP && policy.pvpDenied) return Event.Result.DENY;
+        if (policy.disabled) return Event.Result.DENY;
+        return policy.allows(item, powers) ? Event.Result.ALLOW : Event.Result.DENY;
     }
 
     public static Event.Result canUse(Player player, RPGItem item, Collection<? extends Power> powers, boolean showWarn) {
         Event.Result result = canUse(player, item, powers);
         if (result == Event.Result.DENY && showWarn) {
-            String message = warningMessageByPlayer.get(player.getUniqueId());
+            WGPolicy policy = policyByPlayer.get(player.getUniqueId());
+            String message = policy == null ? null : policy.warning;
             if (message != null) {
                 player.sendMessage(ChatColor.translateAlternateColorCodes('&', message));
             }
@@ -156,25 +139,11 @@ public class WGSupport {
         return result;
     }
 
-    private static boolean notEnabled(Collection<String> disabled, Collection<String> enabled, String name) {
-        if (enabled == null || enabled.isEmpty()) {
-            return disabled != null && (disabled.contains(name) || disabled.contains("*") || disabled.contains("all"));
-        } else return !(enabled.contains(name) || enabled.contains("*"));
-    }
-
     public static void unload() {
+        PowerEvents.removeHook(HOOK);
         if (!hasSupport) {
             return;
         }
         WGHandler.unregisterHandler();
     }
-
-    public static class EventListener implements Listener {
-        @EventHandler
-        public <TEvent extends Event, TPower extends Power, TResult, TReturn> void onPreTrigger(RPGItemsPowersPreFireEvent<TEvent, TPower, TResult, TReturn> event) {
-            if (canUse(event.getPlayer(), event.getItem(), event.getPowers(), plugin.cfg.wgShowWarning) == Event.Result.DENY) {
-                event.setCancelled(true);
-            }
-        }
-    }
 }
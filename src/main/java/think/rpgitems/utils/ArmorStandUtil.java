@@ -1,6 +1,7 @@
 package think.rpgitems.utils;
 
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.ArmorStand;
 import org.bukkit.entity.Entity;
 import org.bukkit.metadata.FixedMetadataValue;
@@ -10,21 +11,29 @@ import think.rpgitems.RPGItems;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+/**
+ * Projectiles need a real entity as shooter, so unlike the stands in {@link EffectStands} these are spawned.
+ * One stand per world serves every entity, instead of one per entity.
+ */
 public class ArmorStandUtil {
-    private static Map<Entity, ArmorStand> projectileSources = new LinkedHashMap<>();
+    private static Map<World, ArmorStand> projectileSources = new LinkedHashMap<>();
     private static final String META_KEY = "RPGItems.ArmorStand";
 
     public static ArmorStand asProjectileSource(Entity player) {
-        return projectileSources.computeIfAbsent(player, player1 -> {
-            Location clone = player1.getLocation().clone();
-            clone.setY(255);
-            return summonAndRemoveLater(player, clone, 1200);
-        });
+        ArmorStand source = projectileSources.get(player.getWorld());
+        if (source != null && source.isValid()) {
+            return source;
+        }
+        Location clone = player.getLocation().clone();
+        clone.setY(255);
+        source = summonAndRemoveLater(clone, 1200);
+        projectileSources.put(player.getWorld(), source);
+        return source;
     }
 
-    private static ArmorStand summonAndRemoveLater(Entity entity, Location location, int delay) {
+    private static ArmorStand summonAndRemoveLater(Location location, int delay) {
         ArmorStand summon = summon(location);
-        removeLater(entity, summon, delay);
+        removeLater(location.getWorld(), summon, delay);
         return summon;
     }
 
@@ -47,11 +56,11 @@ public class ArmorStandUtil {
         return armorStand;
     }
 
-    private static void removeLater(Entity entity, ArmorStand armorStand, int delay) {
+    private static void removeLater(World world, ArmorStand armorStand, int delay) {
         new BukkitRunnable() {
             @Override
             public void run() {
-                projectileSources.remove(entity);
+                projectileSources.remove(world, armorStand);
                 armorStand.remove();
             }
         }.runTaskLater(RPGItems.plugin, delay);
@@ -0,0 +1,544 @@
+package think.rpgitems.utils;
+
+import org.bukkit.entity.Player;
+import org.bukkit.scoreboard.Objective;
+import think.rpgitems.data.Context;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * An arithmetic expression compiled once into a tree of primitive double evaluators.
+ * <p>
+ * Understands the numeric subset of the EvalEx syntax used by eval powers: number literals, the
+ * arithmetic, comparison and boolean operators with EvalEx precedence and associativity, the common math
+ * functions, and {@code playerScoreBoard}, {@code playerContext} and {@code now} where the {@link Scope}
+ * provides them. Variables are resolved against the scope at compile time and read through their slot
+ * index when evaluated.
+ * <p>
+ * Anything outside that subset (string variables, unknown functions, malformed input) makes
+ * {@link #compile} return {@code null}, so callers can fall back to EvalEx. Evaluation throws where EvalEx
+ * would fail, e.g. on a {@code playerContext} value that is not a number.
+ * <p>
+ * Arithmetic is done in doubles. Literals, variables and the result of every operation EvalEx rounds are
+ * rounded to 7 significant digits like EvalEx's {@link MathContext#DECIMAL32}, so comparisons see the same
+ * values they see in EvalEx, e.g. {@code 0.1 * 3 == 0.3} holds and {@code 1 / 3 * 3 == 1} does not.
+ */
+public final class CompiledExpression {
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final String source;
+    private final Node root;
+
+    private CompiledExpression(String source, Node root) {
+        this.source = source;
+        this.root = root;
+    }
+
+    /**
+     * @return the compiled expression, or {@code null} if it is not supported by the compiler
+     */
+    public static CompiledExpression compile(String expression, Scope scope) {
+        if (expression == null) {
+            return null;
+        }
+        try {
+            Parser parser = new Parser(expression, scope);
+            Node root = parser.parseExpression(0);
+            if (parser.peek() != null) {
+                return null;
+            }
+            return new CompiledExpression(expression, root);
+        } catch (NotCompilable e) {
+            return null;
+        }
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public double eval(Bindings bindings) {
+        return root.eval(bindings);
+    }
+
+    /**
+     * Rounds to 7 significant digits, half to even, as {@link MathContext#DECIMAL32} does
+     */
+    static double round(double x) {
+        if (x == 0 || Double.isNaN(x) || Double.isInfinite(x)) {
+            return x;
+        }
+        int shift = 6 - (int) Math.floor(Math.log10(Math.abs(x)));
+        if (shift >= -22 && shift <= 22) {
+            double scaled = shift >= 0 ? x * POWERS_OF_TEN[shift] : x / POWERS_OF_TEN[-shift];
+            double fraction = Math.abs(scaled - Math.floor(scaled));
+            // the scaled value is not exact, so leave ties to BigDecimal
+            if (Math.abs(fraction - 0.5) > 1e-6) {
+                double rounded = Math.rint(scaled);
+                return shift >= 0 ? rounded / POWERS_OF_TEN[shift] : rounded * POWERS_OF_TEN[-shift];
+            }
+        }
+        return BigDecimal.valueOf(x).round(MathContext.DECIMAL32).doubleValue();
+    }
+
+    /**
+     * Input outside the supported subset, which is left to EvalEx
+     */
+    private static final class NotCompilable extends Exception {
+        NotCompilable(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    /**
+     * Variables known to an expression, by slot index, and the player functions registered with EvalEx
+     */
+    public static final class Scope {
+        private final Map<String, Integer> slots = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private final Set<String> functions = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+        public Scope(String... names) {
+            for (int i = 0; i < names.length; i++) {
+                slots.put(names[i], i);
+            }
+        }
+
+        /**
+         * A scope whose slot indexes are the ordinals of {@code variables}
+         */
+        public static <E extends Enum<E>> Scope of(Class<E> variables) {
+            E[] constants = variables.getEnumConstants();
+            String[] names = new String[constants.length];
+            for (E constant : constants) {
+                names[constant.ordinal()] = constant.name();
+            }
+            return new Scope(names);
+        }
+
+        /**
+         * @param functions any of {@code playerScoreBoard}, {@code playerContext} and {@code now}
+         * @return this scope, also providing these functions
+         */
+        public Scope with(String... functions) {
+            this.functions.addAll(Arrays.asList(functions));
+            return this;
+        }
+
+        Integer slot(String name) {
+            return slots.get(name);
+        }
+
+        boolean provides(String function) {
+            return functions.contains(function);
+        }
+    }
+
+    /**
+     * Supplies variable values for one evaluation
+     */
+    public interface Bindings {
+        double variable(int slot);
+
+        Player player();
+    }
+
+    @FunctionalInterface
+    private interface Node {
+        double eval(Bindings b);
+    }
+
+    private static double bool(boolean b) {
+        return b ? 1 : 0;
+    }
+
+    private static final class Parser {
+        private final String input;
+        private final Scope scope;
+        private int pos = 0;
+        private String token;
+
+        Parser(String input, Scope scope) throws NotCompilable {
+            this.input = input;
+            this.scope = scope;
+            next();
+        }
+
+        String peek() {
+            return token;
+        }
+
+        private void next() throws NotCompilable {
+            while (pos < input.length() && Character.isWhitespace(input.charAt(pos))) {
+                pos++;
+            }
+            if (pos >= input.length()) {
+                token = null;
+                return;
+            }
+            int start = pos;
+            char c = input.charAt(pos);
+            if (Character.isDigit(c) || (c == '.' && pos + 1 < input.length() && Character.isDigit(input.charAt(pos + 1)))) {
+                while (pos < input.length() && (Character.isDigit(input.charAt(pos)) || input.charAt(pos) == '.')) {
+                    pos++;
+                }
+                if (pos + 1 < input.length() && (input.charAt(pos) == 'e' || input.charAt(pos) == 'E')) {
+                    int exp = pos + 1;
+                    if (input.charAt(exp) == '+' || input.charAt(exp) == '-') {
+                        exp++;
+                    }
+                    if (exp < input.length() && Character.isDigit(input.charAt(exp))) {
+                        pos = exp;
+                        while (pos < input.length() && Character.isDigit(input.charAt(pos))) {
+                            pos++;
+                        }
+                    }
+                }
+            } else if (Character.isLetter(c) || c == '_') {
+                while (pos < input.length() && (Character.isLetterOrDigit(input.charAt(pos)) || input.charAt(pos) == '_')) {
+                    pos++;
+                }
+            } else if (c == '"') {
+                pos++;
+                while (pos < input.length() && input.charAt(pos) != '"') {
+                    pos++;
+                }
+                if (pos >= input.length()) {
+                    throw new NotCompilable("unterminated string");
+                }
+                pos++;
+            } else if (input.startsWith("&&", pos) || input.startsWith("||", pos) || input.startsWith(">=", pos)
+                               || input.startsWith("<=", pos) || input.startsWith("==", pos) || input.startsWith("!=", pos)
+                               || input.startsWith("<>", pos)) {
+                pos += 2;
+            } else {
+                pos++;
+            }
+            token = input.substring(start, pos);
+        }
+
+        private void expect(String s) throws NotCompilable {
+            if (!s.equals(token)) {
+                throw new NotCompilable("expected " + s);
+            }
+            next();
+        }
+
+        private static int precedence(String op) {
+            if (op == null) return -1;
+            switch (op) {
+                case "||":
+                    return 2;
+                case "&&":
+                    return 4;
+                case "=":
+                case "==":
+                case "!=":
+                case "<>":
+                    return 7;
+                case ">":
+                case ">=":
+                case "<":
+                case "<=":
+                    return 10;
+                case "+":
+                case "-":
+                    return 20;
+                case "*":
+                case "/":
+                case "%":
+                    return 30;
+                case "^":
+                    return 40;
+                default:
+                    return -1;
+            }
+        }
+
+        Node parseExpression(int minPrecedence) throws NotCompilable {
+            Node left = parseUnary();
+            while (true) {
+                String op = token;
+                int prec = precedence(op);
+                if (prec < 0 || prec < minPrecedence) {
+                    return left;
+                }
+                next();
+                // ^ is right associative in EvalEx
+                Node right = parseExpression(op.equals("^") ? prec : prec + 1);
+                left = binary(op, left, right);
+            }
+        }
+
+        private static Node binary(String op, Node l, Node r) throws NotCompilable {
+            switch (op) {
+                case "||":
+                    return b -> bool(l.eval(b) != 0 || r.eval(b) != 0);
+                case "&&":
+                    return b -> bool(l.eval(b) != 0 && r.eval(b) != 0);
+                case "=":
+                case "==":
+                    return b -> bool(l.eval(b) == r.eval(b));
+                case "!=":
+                case "<>":
+                    return b -> bool(l.eval(b) != r.eval(b));
+                case ">":
+                    return b -> bool(l.eval(b) > r.eval(b));
+                case ">=":
+                    return b -> bool(l.eval(b) >= r.eval(b));
+                case "<":
+                    return b -> bool(l.eval(b) < r.eval(b));
+                case "<=":
+                    return b -> bool(l.eval(b) <= r.eval(b));
+                case "+":
+                    return b -> round(l.eval(b) + r.eval(b));
+                case "-":
+                    return b -> round(l.eval(b) - r.eval(b));
+                case "*":
+                    return b -> round(l.eval(b) * r.eval(b));
+                case "/":
+                    return b -> {
+                        double divisor = r.eval(b);
+                        if (divisor == 0) {
+                            throw new ArithmeticException("Division by zero");
+                        }
+                        return round(l.eval(b) / divisor);
+                    };
+                case "%":
+                    return b -> round(l.eval(b) % r.eval(b));
+                case "^":
+                    return b -> round(Math.pow(l.eval(b), r.eval(b)));
+                default:
+                    throw new NotCompilable(op);
+            }
+        }
+
+        private Node parseUnary() throws NotCompilable {
+            if ("-".equals(token)) {
+                next();
+                Node operand = parseUnary();
+                return b -> -operand.eval(b);
+            }
+            if ("+".equals(token)) {
+                next();
+                return parseUnary();
+            }
+            return parsePrimary();
+        }
+
+        private Node parsePrimary() throws NotCompilable {
+            String t = token;
+            if (t == null) {
+                throw new NotCompilable("unexpected end");
+            }
+            char c = t.charAt(0);
+            if (Character.isDigit(c) || c == '.') {
+                next();
+                double value;
+                try {
+                    value = new BigDecimal(t, MathContext.DECIMAL32).doubleValue();
+                } catch (NumberFormatException e) {
+                    throw new NotCompilable(t);
+                }
+                return b -> value;
+            }
+            if (t.equals("(")) {
+                next();
+                Node inner = parseExpression(0);
+                expect(")");
+                return inner;
+            }
+            if (Character.isLetter(c) || c == '_') {
+                next();
+                if ("(".equals(token)) {
+                    next();
+                    return function(t);
+                }
+                return variable(t);
+            }
+            throw new NotCompilable(t);
+        }
+
+        private Node variable(String name) throws NotCompilable {
+            Integer slot = scope.slot(name);
+            if (slot != null) {
+                int s = slot;
+                return b -> round(b.variable(s));
+            }
+            switch (name.toUpperCase(Locale.ROOT)) {
+                case "PI":
+                    return b -> Math.PI;
+                case "E":
+                    return b -> Math.E;
+                case "TRUE":
+                    return b -> 1;
+                case "FALSE":
+                    return b -> 0;
+                default:
+                    throw new NotCompilable(name);
+            }
+        }
+
+        private String stringArgument() throws NotCompilable {
+            String t = token;
+            if (t == null || t.length() < 2 || t.charAt(0) != '"') {
+                throw new NotCompilable("expected string literal");
+            }
+            next();
+            return t.substring(1, t.length() - 1);
+        }
+
+        private List<Node> arguments() throws NotCompilable {
+            List<Node> args = new ArrayList<>();
+            if (")".equals(token)) {
+                next();
+                return args;
+            }
+            while (true) {
+                args.add(parseExpression(0));
+                if (",".equals(token)) {
+                    next();
+                    continue;
+                }
+                expect(")");
+                return args;
+            }
+        }
+
+        private Node function(String name) throws NotCompilable {
+            if (name.equalsIgnoreCase("playerScoreBoard") && scope.provides("playerScoreBoard")) {
+                String objectiveName = stringArgument();
+                expect(",");
+                Node fallback = parseExpression(0);
+                expect(")");
+                return b -> {
+                    Player player = b.player();
+                    Objective objective = player.getScoreboard().getObjective(objectiveName);
+                    if (objective == null) {
+                        return fallback.eval(b);
+                    }
+                    return objective.getScore(player.getName()).getScore();
+                };
+            }
+            if (name.equalsIgnoreCase("playerContext") && scope.provides("playerContext")) {
+                String key = stringArgument();
+                expect(",");
+                Node fallback = parseExpression(0);
+                expect(")");
+                return b -> {
+                    Object obj = Context.instance().get(b.player().getUniqueId(), key);
+                    if (obj == null) {
+                        return fallback.eval(b);
+                    }
+                    if (!(obj instanceof Number)) {
+                        throw new IllegalStateException("playerContext " + key + " is not a number: " + obj);
+                    }
+                    return ((Number) obj).doubleValue();
+                };
+            }
+            List<Node> args = arguments();
+            int n = args.size();
+            switch (name.toUpperCase(Locale.ROOT)) {
+                case "NOW":
+                    if (!scope.provides("now")) throw new NotCompilable(name);
+                    arity(args, 0);
+                    return b -> System.currentTimeMillis();
+                case "RANDOM":
+                    arity(args, 0);
+                    return b -> round(ThreadLocalRandom.current().nextDouble());
+                case "IF": {
+                    arity(args, 3);
+                    Node cond = args.get(0), then = args.get(1), otherwise = args.get(2);
+                    return b -> cond.eval(b) != 0 ? then.eval(b) : otherwise.eval(b);
+                }
+                case "NOT": {
+                    arity(args, 1);
+                    Node a = args.get(0);
+                    return b -> bool(a.eval(b) == 0);
+                }
+                case "MAX": {
+                    if (n == 0) throw new NotCompilable(name);
+                    Node[] nodes = args.toArray(new Node[0]);
+                    return b -> {
+                        double max = nodes[0].eval(b);
+                        for (int i = 1; i < nodes.length; i++) {
+                            max = Math.max(max, nodes[i].eval(b));
+                        }
+                        return max;
+                    };
+                }
+                case "MIN": {
+                    if (n == 0) throw new NotCompilable(name);
+                    Node[] nodes = args.toArray(new Node[0]);
+                    return b -> {
+                        double min = nodes[0].eval(b);
+                        for (int i = 1; i < nodes.length; i++) {
+                            min = Math.min(min, nodes[i].eval(b));
+                        }
+                        return min;
+                    };
+                }
+                case "ROUND": {
+                    arity(args, 2);
+                    Node a = args.get(0), precision = args.get(1);
+                    // EvalEx rounds with the rounding mode of MathContext.DECIMAL32
+                    return b -> BigDecimal.valueOf(a.eval(b)).setScale((int) precision.eval(b), RoundingMode.HALF_EVEN).doubleValue();
+                }
+                case "ABS":
+                    return unary(args, x -> round(Math.abs(x)));
+                case "FLOOR":
+                    return unary(args, Math::floor);
+                case "CEILING":
+                    return unary(args, Math::ceil);
+                case "SQRT":
+                    // EvalEx cuts its square root off after 7 decimal places instead
+                    return unary(args, x -> BigDecimal.valueOf(Math.sqrt(x)).setScale(7, RoundingMode.DOWN).doubleValue());
+                case "LOG":
+                    return unary(args, x -> round(Math.log(x)));
+                case "LOG10":
+                    return unary(args, x -> round(Math.log10(x)));
+                case "SIN":
+                    return unary(args, x -> round(Math.sin(Math.toRadians(x))));
+                case "COS":
+                    return unary(args, x -> round(Math.cos(Math.toRadians(x))));
+                case "TAN":
+                    return unary(args, x -> round(Math.tan(Math.toRadians(x))));
+                case "SINR":
+                    return unary(args, x -> round(Math.sin(x)));
+                case "COSR":
+                    return unary(args, x -> round(Math.cos(x)));
+                case "TANR":
+                    return unary(args, x -> round(Math.tan(x)));
+                case "RAD":
+                    return unary(args, x -> round(Math.toRadians(x)));
+                case "DEG":
+                    return unary(args, x -> round(Math.toDegrees(x)));
+                default:
+                    throw new NotCompilable(name);
+            }
+        }
+
+        private static void arity(List<Node> args, int expected) throws NotCompilable {
+            if (args.size() != expected) {
+                throw new NotCompilable("expected " + expected + " arguments");
+            }
+        }
+
+        private static Node unary(List<Node> args, DoubleUnaryOperator op) throws NotCompilable {
+            arity(args, 1);
+            Node a = args.get(0);
+            return b -> op.applyAsDouble(a.eval(b));
+        }
+    }
+}
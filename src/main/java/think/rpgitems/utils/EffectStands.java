@@ -0,0 +1,235 @@
+package think.rpgitems.utils;
+
+import cat.nyaa.nyaacore.utils.ReflectionUtils;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.ArmorStand;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.util.Consumer;
+import think.rpgitems.RPGItems;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.logging.Level;
+
+/**
+ * Armor stands used purely as visuals.
+ * <p>
+ * Stands are NMS entities that never join the world, so they skip entity tracking, collision and chunk saving.
+ * Viewers within {@link #VIEW_DISTANCE} get spawn and equipment packets directly, and the moves of all
+ * stands are flushed in one pass per tick. When the packet classes can not be resolved, real non persistent
+ * stands are spawned instead.
+ */
+public class EffectStands {
+    private static final double VIEW_DISTANCE = 64;
+
+    private static final List<VirtualStand> stands = new ArrayList<>();
+    private static BukkitTask flusher;
+
+    public interface Stand {
+        void teleport(Location location);
+
+        void remove();
+    }
+
+    /**
+     * @param setup applied to the stand before anyone sees it, as with {@link World#spawn(Location, Class, Consumer)}
+     */
+    public static Stand spawn(Location location, Consumer<ArmorStand> setup) {
+        if (Packets.available) {
+            try {
+                VirtualStand stand = new VirtualStand(location, setup);
+                stands.add(stand);
+                if (flusher == null) {
+                    flusher = Bukkit.getScheduler().runTaskTimer(RPGItems.plugin, EffectStands::flush, 0, 1);
+                }
+                return stand;
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                RPGItems.logger.log(Level.WARNING, "Error creating client side armor stand, falling back to real entities", e);
+                Packets.available = false;
+            }
+        }
+        return new RealStand(location.getWorld().spawn(location, ArmorStand.class, setup));
+    }
+
+    private static void flush() {
+        Map<Player, List<Integer>> destroys = new HashMap<>();
+        Iterator<VirtualStand> iterator = stands.iterator();
+        while (iterator.hasNext()) {
+            VirtualStand stand = iterator.next();
+            try {
+                if (stand.removed) {
+                    for (Player viewer : stand.viewers) {
+                        destroys.computeIfAbsent(viewer, (ignored) -> new ArrayList<>()).add(stand.id);
+                    }
+                    stand.viewers.clear();
+                    iterator.remove();
+                    continue;
+                }
+                stand.update(destroys);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                RPGItems.logger.log(Level.WARNING, "Error updating client side armor stand", e);
+                stand.viewers.clear();
+                iterator.remove();
+            }
+        }
+        for (Map.Entry<Player, List<Integer>> entry : destroys.entrySet()) {
+            if (!entry.getKey().isOnline()) continue;
+            int[] ids = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+            try {
+                Packets.send(entry.getKey(), Packets.destroy.newInstance((Object) ids));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                RPGItems.logger.log(Level.WARNING, "Error removing client side armor stands", e);
+            }
+        }
+        if (stands.isEmpty()) {
+            flusher.cancel();
+            flusher = null;
+        }
+    }
+
+    private static final class VirtualStand implements Stand {
+        private final Object handle;
+        private final int id;
+        private final Set<Player> viewers = new HashSet<>();
+        private World world;
+        private Location location;
+        private boolean moved;
+        private boolean removed;
+
+        VirtualStand(Location location, Consumer<ArmorStand> setup) throws ReflectiveOperationException {
+            Object worldHandle = Packets.getWorldHandle.invoke(location.getWorld());
+            this.handle = Packets.armorStand.newInstance(worldHandle, location.getX(), location.getY(), location.getZ());
+            Packets.setPositionRotation.invoke(handle, location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch());
+            this.id = (int) Packets.getId.invoke(handle);
+            this.world = location.getWorld();
+            this.location = location.clone();
+            setup.accept((ArmorStand) Packets.getBukkitEntity.invoke(handle));
+        }
+
+        @Override
+        public void teleport(Location location) {
+            if (removed) return;
+            this.location = location.clone();
+            moved = true;
+        }
+
+        @Override
+        public void remove() {
+            removed = true;
+        }
+
+        void update(Map<Player, List<Integer>> destroys) throws ReflectiveOperationException {
+            if (location.getWorld() != world) {
+                for (Player viewer : viewers) {
+                    destroys.computeIfAbsent(viewer, (ignored) -> new ArrayList<>()).add(id);
+                }
+                viewers.clear();
+                world = location.getWorld();
+            }
+            viewers.removeIf(viewer -> !viewer.isOnline() || viewer.getWorld() != world);
+            Object teleport = null;
+            if (moved) {
+                Packets.setPositionRotation.invoke(handle, location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch());
+                teleport = Packets.teleport.newInstance(handle);
+                moved = false;
+            }
+            for (Player player : world.getPlayers()) {
+                boolean inRange = player.getLocation().distanceSquared(location) < VIEW_DISTANCE * VIEW_DISTANCE;
+                boolean viewing = viewers.contains(player);
+                if (inRange && !viewing) {
+                    Packets.send(player, Packets.spawn.newInstance(handle));
+                    for (Object slot : Packets.slots) {
+                        Object item = Packets.getEquipment.invoke(handle, slot);
+                        if (item != null && !(boolean) Packets.isEmpty.invoke(item)) {
+                            Packets.send(player, Packets.equipment.newInstance(id, slot, item));
+                        }
+                    }
+                    viewers.add(player);
+                } else if (!inRange && viewing) {
+                    destroys.computeIfAbsent(player, (ignored) -> new ArrayList<>()).add(id);
+                    viewers.remove(player);
+                } else if (inRange && teleport != null) {
+                    Packets.send(player, teleport);
+                }
+            }
+        }
+    }
+
+    private static final class RealStand implements Stand {
+        private final ArmorStand armorStand;
+
+        RealStand(ArmorStand armorStand) {
+            this.armorStand = armorStand;
+        }
+
+        @Override
+        public void teleport(Location location) {
+            armorStand.teleport(location);
+        }
+
+        @Override
+        public void remove() {
+            armorStand.remove();
+        }
+    }
+
+    private static final class Packets {
+        static boolean available;
+        static Method getWorldHandle;
+        static Constructor<?> armorStand;
+        static Method setPositionRotation;
+        static Method getId;
+        static Method getBukkitEntity;
+        static Method getEquipment;
+        static Method isEmpty;
+        static Object[] slots;
+        static Constructor<?> spawn;
+        static Constructor<?> equipment;
+        static Constructor<?> teleport;
+        static Constructor<?> destroy;
+        static Method getPlayerHandle;
+        static Field playerConnection;
+        static Method sendPacket;
+
+        static {
+            try {
+                getWorldHandle = ReflectionUtils.getOBCClass("CraftWorld").getMethod("getHandle");
+                Class<?> nmsWorld = ReflectionUtils.getNMSClass("World");
+                Class<?> nmsEntity = ReflectionUtils.getNMSClass("Entity");
+                Class<?> nmsLiving = ReflectionUtils.getNMSClass("EntityLiving");
+                Class<?> nmsItemStack = ReflectionUtils.getNMSClass("ItemStack");
+                Class<?> enumItemSlot = ReflectionUtils.getNMSClass("EnumItemSlot");
+                armorStand = ReflectionUtils.getNMSClass("EntityArmorStand").getConstructor(nmsWorld, double.class, double.class, double.class);
+                setPositionRotation = nmsEntity.getMethod("setPositionRotation", double.class, double.class, double.class, float.class, float.class);
+                getId = nmsEntity.getMethod("getId");
+                getBukkitEntity = nmsEntity.getMethod("getBukkitEntity");
+                getEquipment = nmsLiving.getMethod("getEquipment", enumItemSlot);
+                isEmpty = nmsItemStack.getMethod("isEmpty");
+                slots = enumItemSlot.getEnumConstants();
+                spawn = ReflectionUtils.getNMSClass("PacketPlayOutSpawnEntityLiving").getConstructor(nmsLiving);
+                equipment = ReflectionUtils.getNMSClass("PacketPlayOutEntityEquipment").getConstructor(int.class, enumItemSlot, nmsItemStack);
+                teleport = ReflectionUtils.getNMSClass("PacketPlayOutEntityTeleport").getConstructor(nmsEntity);
+                destroy = ReflectionUtils.getNMSClass("PacketPlayOutEntityDestroy").getConstructor(int[].class);
+                getPlayerHandle = ReflectionUtils.getOBCClass("entity.CraftPlayer").getMethod("getHandle");
+                playerConnection = ReflectionUtils.getNMSClass("EntityPlayer").getField("playerConnection");
+                sendPacket = ReflectionUtils.getNMSClass("PlayerConnection").getMethod("sendPacket", ReflectionUtils.getNMSClass("Packet"));
+                available = true;
+            } catch (Exception e) {
+                RPGItems.logger.log(Level.INFO, "Client side armor stands unavailable, using real entities", e);
+                available = false;
+            }
+        }
+
+        static void send(Player player, Object packet) throws ReflectiveOperationException {
+            Object connection = playerConnection.get(getPlayerHandle.invoke(player));
+            if (connection != null) {
+                sendPacket.invoke(connection, packet);
+            }
+        }
+    }
+}
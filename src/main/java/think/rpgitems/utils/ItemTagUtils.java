@@ -1,11 +1,13 @@
 package think.rpgitems.utils;
 
+import cat.nyaa.nyaacore.utils.ReflectionUtils;
 import com.google.common.base.FinalizablePhantomReference;
 import com.google.common.base.FinalizableReferenceQueue;
 import com.google.common.collect.Sets;
 import org.bukkit.Bukkit;
 import org.bukkit.NamespacedKey;
 import org.bukkit.OfflinePlayer;
+import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.inventory.meta.tags.CustomItemTagContainer;
 import org.bukkit.inventory.meta.tags.ItemTagAdapterContext;
@@ -14,6 +16,8 @@ import think.rpgitems.RPGItems;
 import think.rpgitems.power.Utils;
 
 import java.lang.ref.PhantomReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
 import java.util.Optional;
@@ -211,6 +215,149 @@ public final class ItemTagUtils {
         return makeTag(container, key);
     }
 
+    /**
+     * Checks whether {@code item} carries a custom tag container under {@code key}.
+     * <p>
+     * For CraftItemStacks this peeks at the NBT directly instead of materialising
+     * the whole ItemMeta, falling back to the meta when the server internals are not reachable.
+     */
+    @SuppressWarnings("deprecation")
+    public static boolean hasTagContainer(ItemStack item, NamespacedKey key) {
+        if (item == null || !item.hasItemMeta()) {
+            return false;
+        }
+        if (NbtPeek.available && NbtPeek.craftItemStack.isInstance(item)) {
+            try {
+                Object handle = NbtPeek.handle.get(item);
+                Object tag = handle == null ? null : NbtPeek.getTag.invoke(handle);
+                if (tag == null || !(boolean) NbtPeek.hasKeyOfType.invoke(tag, NbtPeek.BUKKIT_CUSTOM_TAG, NbtPeek.TAG_COMPOUND)) {
+                    return false;
+                }
+                Object custom = NbtPeek.getCompound.invoke(tag, NbtPeek.BUKKIT_CUSTOM_TAG);
+                return (boolean) NbtPeek.hasKeyOfType.invoke(custom, key.toString(), NbtPeek.TAG_COMPOUND);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                RPGItems.logger.log(Level.WARNING, "Error peeking item NBT, falling back to ItemMeta", e);
+                NbtPeek.available = false;
+            }
+        }
+        return item.getItemMeta().getCustomTagContainer().hasCustomTag(key, ItemTagType.TAG_CONTAINER);
+    }
+
+    /**
+     * @return the server's stack behind a CraftItemStack, shared by every mirror of it,
+     * or null for other stacks and when the server internals are not reachable
+     */
+    public static Object peekHandle(ItemStack item) {
+        if (!NbtPeek.available || !NbtPeek.craftItemStack.isInstance(item)) {
+            return null;
+        }
+        try {
+            return NbtPeek.handle.get(item);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            RPGItems.logger.log(Level.WARNING, "Error peeking item NBT, falling back to ItemMeta", e);
+            NbtPeek.available = false;
+            return null;
+        }
+    }
+
+    /**
+     * Reads an int of the custom tag container {@code container} straight from a CraftItemStack's NBT.
+     *
+     * @return null if the value is absent or the NBT cannot be peeked at
+     */
+    public static Integer peekInt(ItemStack item, NamespacedKey container, NamespacedKey key) {
+        Object compound = peekCompound(item, container, key, NbtPeek.TAG_INT);
+        if (compound == null) {
+            return null;
+        }
+        try {
+            return (int) NbtPeek.getInt.invoke(compound, key.toString());
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            RPGItems.logger.log(Level.WARNING, "Error peeking item NBT, falling back to ItemMeta", e);
+            NbtPeek.available = false;
+            return null;
+        }
+    }
+
+    /**
+     * Reads a byte of the custom tag container {@code container} straight from a CraftItemStack's NBT.
+     *
+     * @return null if the value is absent or the NBT cannot be peeked at
+     */
+    public static Byte peekByte(ItemStack item, NamespacedKey container, NamespacedKey key) {
+        Object compound = peekCompound(item, container, key, NbtPeek.TAG_BYTE);
+        if (compound == null) {
+            return null;
+        }
+        try {
+            return (byte) NbtPeek.getByte.invoke(compound, key.toString());
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            RPGItems.logger.log(Level.WARNING, "Error peeking item NBT, falling back to ItemMeta", e);
+            NbtPeek.available = false;
+            return null;
+        }
+    }
+
+    /**
+     * @return the NBT compound of {@code container} if it holds {@code key} with the given NBT type id
+     */
+    private static Object peekCompound(ItemStack item, NamespacedKey container, NamespacedKey key, int type) {
+        if (!NbtPeek.available || !NbtPeek.craftItemStack.isInstance(item)) {
+            return null;
+        }
+        try {
+            Object handle = NbtPeek.handle.get(item);
+            Object tag = handle == null ? null : NbtPeek.getTag.invoke(handle);
+            if (tag == null || !(boolean) NbtPeek.hasKeyOfType.invoke(tag, NbtPeek.BUKKIT_CUSTOM_TAG, NbtPeek.TAG_COMPOUND)) {
+                return null;
+            }
+            Object custom = NbtPeek.getCompound.invoke(tag, NbtPeek.BUKKIT_CUSTOM_TAG);
+            if (!(boolean) NbtPeek.hasKeyOfType.invoke(custom, container.toString(), NbtPeek.TAG_COMPOUND)) {
+                return null;
+            }
+            Object compound = NbtPeek.getCompound.invoke(custom, container.toString());
+            return (boolean) NbtPeek.hasKeyOfType.invoke(compound, key.toString(), type) ? compound : null;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            RPGItems.logger.log(Level.WARNING, "Error peeking item NBT, falling back to ItemMeta", e);
+            NbtPeek.available = false;
+            return null;
+        }
+    }
+
+    private static final class NbtPeek {
+        static final String BUKKIT_CUSTOM_TAG = "PublicBukkitValues";
+        static final int TAG_BYTE = 1;
+        static final int TAG_INT = 3;
+        static final int TAG_COMPOUND = 10;
+
+        static boolean available;
+        static Class<?> craftItemStack;
+        static Field handle;
+        static Method getTag;
+        static Method hasKeyOfType;
+        static Method getCompound;
+        static Method getInt;
+        static Method getByte;
+
+        static {
+            try {
+                craftItemStack = ReflectionUtils.getOBCClass("inventory.CraftItemStack");
+                handle = craftItemStack.getDeclaredField("handle");
+                handle.setAccessible(true);
+                getTag = ReflectionUtils.getNMSClass("ItemStack").getMethod("getTag");
+                Class<?> nbtTagCompound = ReflectionUtils.getNMSClass("NBTTagCompound");
+                hasKeyOfType = nbtTagCompound.getMethod("hasKeyOfType", String.class, int.class);
+                getCompound = nbtTagCompound.getMethod("getCompound", String.class);
+                getInt = nbtTagCompound.getMethod("getInt", String.class);
+                getByte = nbtTagCompound.getMethod("getByte", String.class);
+                available = true;
+            } catch (Exception e) {
+                RPGItems.logger.log(Level.INFO, "Item NBT peeking unavailable, using ItemMeta", e);
+                available = false;
+            }
+        }
+    }
+
     public static class UUIDItemTagType implements ItemTagType<byte[], UUID> {
         @Override
         public Class<byte[]> getPrimitiveType() {
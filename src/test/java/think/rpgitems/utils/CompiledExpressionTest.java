@@ -0,0 +1,156 @@
+package think.rpgitems.utils;
+
+import com.udojava.evalex.Expression;
+import org.bukkit.entity.Player;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares {@link CompiledExpression} with the EvalEx interpreter it stands in for.
+ */
+public class CompiledExpressionTest {
+    private static final CompiledExpression.Scope SCOPE = new CompiledExpression.Scope("x", "y");
+    private static final String X = "2.25";
+    private static final String Y = "-1.5";
+
+    private static final String[] NUMERIC = {
+            "1 + 2 * 3",
+            "(1 + 2) * 3",
+            "10 / 4",
+            "1 / 3",
+            "7 % 3",
+            "2 ^ 10",
+            "2 ^ 3 ^ 2",
+            "2 ^ 2 ^ 3",
+            "(2 ^ 3) ^ 2",
+            "2 ^ -1",
+            "2 ^ 0.5",
+            "x * 2 + y ^ 2",
+            "-x + y",
+            "MAX(x, y, 3)",
+            "MIN(x, y)",
+            "ABS(y)",
+            "IF(x > y, x, y)",
+            "SQRT(16)",
+            "SQRT(2)",
+            "SQRT(12345678)",
+            "FLOOR(x)",
+            "CEILING(y)",
+            "SIN(30)",
+            "ROUND(2.5, 0)",
+            "ROUND(3.5, 0)",
+            "ROUND(-2.5, 0)",
+            "ROUND(0.125, 2)",
+            "ROUND(x, 1)",
+    };
+
+    /**
+     * Expressions PowerEvalCondition takes as passed when the result is 1
+     */
+    private static final String[] CONDITIONS = {
+            "x > y",
+            "x < y",
+            "x == 2.25",
+            "x <> y || FALSE",
+            "x > 0 && y < 0",
+            "NOT(x < y)",
+            "TRUE",
+            "1",
+            "0",
+            "1.0",
+            "0.5 * 2",
+            "x - 1.25",
+            "IF(x > 0, 1, 0)",
+            "IF(x > 0, 1.0, 0)",
+            "1 / 3 * 3 == 1",
+            "1 / 3 * 3",
+            "0.1 * 3 == 0.3",
+            "0.1 + 0.2 == 0.3",
+            "2 / 3 + 1 / 3",
+            "10 / 3 * 3 > 9.999999",
+            "SQRT(2) ^ 2 == 2",
+            "SQRT(2) == 1.4142135",
+            "SQRT(200) > 14.14214",
+            "x * 1.0000001 == x",
+            "1.00000001 == 1",
+            "12345678 == 12345680",
+    };
+
+    private static BigDecimal evalEx(String expression) {
+        return new Expression(expression).with("x", new BigDecimal(X)).and("y", new BigDecimal(Y)).eval();
+    }
+
+    private static double eval(CompiledExpression compiled) {
+        return compiled.eval(new CompiledExpression.Bindings() {
+            @Override
+            public double variable(int slot) {
+                return Double.parseDouble(slot == 0 ? X : Y);
+            }
+
+            @Override
+            public Player player() {
+                throw new UnsupportedOperationException();
+            }
+        });
+    }
+
+    private static CompiledExpression compile(String expression) {
+        CompiledExpression compiled = CompiledExpression.compile(expression, SCOPE);
+        assertNotNull("not compiled: " + expression, compiled);
+        return compiled;
+    }
+
+    @Test
+    public void numericResultsMatchEvalEx() {
+        for (String expression : NUMERIC) {
+            double expected = evalEx(expression).doubleValue();
+            // EvalEx rounds every step to 7 significant digits
+            double delta = Math.max(1e-9, Math.abs(expected) * 1e-6);
+            assertEquals(expression, expected, eval(compile(expression)), delta);
+        }
+    }
+
+    @Test
+    public void conditionsMatchEvalEx() {
+        for (String expression : CONDITIONS) {
+            assertEquals(expression, evalEx(expression).equals(BigDecimal.ONE), eval(compile(expression)) == 1);
+        }
+    }
+
+    @Test
+    public void roundsLikeDecimal32() {
+        for (double x : new double[]{1d / 3, 2d / 3, 0.1 * 3, 123456.75, 123456.85, 1234567.5, 2.5e-8, -9.9999995, 1e30 / 7}) {
+            double expected = BigDecimal.valueOf(x).round(MathContext.DECIMAL32).doubleValue();
+            assertEquals(Double.toString(x), expected, CompiledExpression.round(x), 0);
+        }
+    }
+
+    @Test
+    public void evalExStripsTrailingZeros() {
+        // So a condition of 1.0 passed with EvalEx too
+        assertEquals(BigDecimal.ONE, evalEx("1.0"));
+        assertEquals(BigDecimal.ONE, evalEx("x - 1.25"));
+    }
+
+    @Test
+    public void playerFunctionsNeedTheScope() {
+        assertNull(CompiledExpression.compile("now()", SCOPE));
+        assertNull(CompiledExpression.compile("playerContext(\"key\", 1)", SCOPE));
+        assertNull(CompiledExpression.compile("playerScoreBoard(\"score\", 1)", SCOPE));
+        CompiledExpression.Scope scope = new CompiledExpression.Scope("x").with("now", "playerContext");
+        assertNotNull(CompiledExpression.compile("now() > 0", scope));
+        assertNotNull(CompiledExpression.compile("playerContext(\"key\", 1) + x", scope));
+    }
+
+    @Test
+    public void unsupportedInputIsNotCompiled() {
+        assertNull(CompiledExpression.compile("entityType == \"ZOMBIE\"", SCOPE));
+        assertNull(CompiledExpression.compile("unknown(1)", SCOPE));
+        assertNull(CompiledExpression.compile("1 +", SCOPE));
+        assertNull(CompiledExpression.compile("(1", SCOPE));
+    }
+}